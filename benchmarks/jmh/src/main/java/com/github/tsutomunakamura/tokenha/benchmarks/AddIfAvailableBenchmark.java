@@ -0,0 +1,92 @@
+package com.github.tsutomunakamura.tokenha.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+
+/**
+ * addIfAvailable() when the token is accepted (full queue, so every add also evicts the oldest
+ * token) and when it is rejected by the cooldown, single-threaded and contended.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddIfAvailableBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int maxTokens;
+
+    @Param({"IN_MEMORY", "JSON_FILE"})
+    public PersistenceMode persistenceMode;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path directory;
+    private TokenHa accepting;
+    private TokenHa coolingDown;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkSupport.createDirectory();
+        accepting = new TokenHa(BenchmarkSupport.config(maxTokens, persistenceMode, directory.resolve("accepting.json"))
+            .build());
+        BenchmarkSupport.fill(accepting, maxTokens);
+
+        coolingDown = new TokenHa(BenchmarkSupport.config(maxTokens, persistenceMode, directory.resolve("cooling-down.json"))
+            .coolTimeToAddMillis(24 * 60 * 60 * 1000L)
+            .build());
+        coolingDown.addIfAvailable(BenchmarkSupport.token(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        accepting.close();
+        coolingDown.close();
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean accepted() {
+        return accepting.addIfAvailable(BenchmarkSupport.token(sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean acceptedContended() {
+        return accepting.addIfAvailable(BenchmarkSupport.token(sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean rejectedByCooldown() {
+        return coolingDown.addIfAvailable("rejected");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean rejectedByCooldownContended() {
+        return coolingDown.addIfAvailable("rejected");
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.tsutomunakamura.tokenha.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.EvictionThreadConfig;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.persistence.TokenStore;
+
+/**
+ * Configuration and fixtures shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    /**
+     * The background eviction thread must not touch the measured instances, so its first
+     * sweep is pushed past the end of any run. Each benchmark runs in its own fork, where
+     * the first TokenHa fixes the configuration of the singleton.
+     */
+    static final EvictionThreadConfig QUIET_EVICTION = new EvictionThreadConfig.Builder()
+        .initialDelayMillis(24 * 60 * 60 * 1000L)
+        .intervalMillis(24 * 60 * 60 * 1000L)
+        .build();
+
+    private BenchmarkSupport() {
+    }
+
+    static TokenHaConfig.Builder config(int maxTokens, PersistenceMode persistenceMode, Path file) {
+        return new TokenHaConfig.Builder()
+            .maxTokens(maxTokens)
+            .numberOfLastTokens(0)
+            .coolTimeToAddMillis(0)
+            .expirationTimeMillis(24 * 60 * 60 * 1000L)
+            .persistenceMode(persistenceMode)
+            .persistenceFilePath(file.toString())
+            .evictionThreadConfig(QUIET_EVICTION);
+    }
+
+    /**
+     * Fill a queue up to its capacity. Cooldown must be zero.
+     */
+    static void fill(TokenHa tokenHa, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!tokenHa.addIfAvailable(token(i))) {
+                throw new IllegalStateException("Token " + i + " was rejected");
+            }
+        }
+    }
+
+    static String token(long i) {
+        return "benchmark-token-" + i;
+    }
+
+    static Path createDirectory() throws IOException {
+        return Files.createTempDirectory("tokenha-benchmark");
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tokens with timestamps far in the past, oldest first.
+     */
+    static List<TokenElement> expiredTokens(int count) {
+        List<TokenElement> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(new TokenElement(token(i), 1_000_000L + i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Store that loads a fixed list of tokens and persists nothing, so the eviction
+     * benchmark can restore the same expired queue before every invocation.
+     */
+    static final class FixedTokenStore implements TokenStore {
+
+        private final List<TokenElement> tokens;
+
+        FixedTokenStore(List<TokenElement> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public List<TokenElement> load() {
+            return new ArrayList<>(tokens);
+        }
+
+        @Override
+        public void save(List<TokenElement> tokens) {
+        }
+
+        @Override
+        public void append(TokenElement token, int evictedOldest) {
+        }
+
+        @Override
+        public void evict(int count) {
+        }
+
+        @Override
+        public boolean needsFullSave() {
+            return false;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public boolean delete() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.tsutomunakamura.tokenha.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * evictExpiredTokens() on a full queue whose tokens are all expired.
+ * The queue is restored from a fixed store before every invocation, which is why the
+ * per-invocation setup is used; results below a microsecond include its timing overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvictionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int maxTokens;
+
+    private Path directory;
+    private TokenHa tokenHa;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkSupport.createDirectory();
+        List<TokenElement> expired = BenchmarkSupport.expiredTokens(maxTokens);
+        tokenHa = new TokenHa(BenchmarkSupport.config(maxTokens, PersistenceMode.IN_MEMORY, directory.resolve("eviction.json"))
+            .expirationTimeMillis(1)
+            .tokenStoreFactory(config -> new BenchmarkSupport.FixedTokenStore(expired))
+            .build());
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreExpiredTokens() throws IOException {
+        tokenHa.loadFromFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tokenHa.close();
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<TokenElement> evictExpiredTokens() {
+        return tokenHa.evictExpiredTokens();
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.tsutomunakamura.tokenha.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+
+/**
+ * JSON serialization and loading of a full queue from the JSON file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int maxTokens;
+
+    private Path directory;
+    private TokenHa tokenHa;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkSupport.createDirectory();
+        tokenHa = new TokenHa(BenchmarkSupport.config(maxTokens, PersistenceMode.JSON_FILE, directory.resolve("persistence.json"))
+            .build());
+        BenchmarkSupport.fill(tokenHa, maxTokens);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tokenHa.close();
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String toJson() {
+        return tokenHa.toJson();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String toJsonContended() {
+        return tokenHa.toJson();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int loadFromFile() throws IOException {
+        tokenHa.loadFromFile();
+        return tokenHa.getQueueSize();
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.tsutomunakamura.tokenha.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Read paths on a full queue, single-threaded and with concurrent readers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int maxTokens;
+
+    private Path directory;
+    private TokenHa tokenHa;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkSupport.createDirectory();
+        tokenHa = new TokenHa(BenchmarkSupport.config(maxTokens, PersistenceMode.IN_MEMORY, directory.resolve("read.json"))
+            .build());
+        BenchmarkSupport.fill(tokenHa, maxTokens);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tokenHa.close();
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TokenElement newestToken() {
+        return tokenHa.newestToken();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenElement newestTokenContended() {
+        return tokenHa.newestToken();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<TokenElement> getDescList() {
+        return tokenHa.getDescList();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<TokenElement> getDescListContended() {
+        return tokenHa.getDescList();
+    }
+}
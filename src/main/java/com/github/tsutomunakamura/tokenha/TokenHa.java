@@ -1,28 +1,32 @@
 package com.github.tsutomunakamura.tokenha;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
-import com.github.tsutomunakamura.tokenha.data.TokenData;
+import com.github.tsutomunakamura.tokenha.config.TokenStorage;
 import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.jmx.TokenHaJmx;
 import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
-import com.github.tsutomunakamura.tokenha.persistence.FilePersistence;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
+import com.github.tsutomunakamura.tokenha.persistence.JsonFileTokenStore;
+import com.github.tsutomunakamura.tokenha.persistence.TokenJson;
+import com.github.tsutomunakamura.tokenha.persistence.TokenStore;
+import com.github.tsutomunakamura.tokenha.persistence.WriteBehindFlusher;
+import com.github.tsutomunakamura.tokenha.queue.TokenSnapshot;
+import com.github.tsutomunakamura.tokenha.eviction.Evictable;
 import com.github.tsutomunakamura.tokenha.eviction.EvictionThread;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import javax.management.ObjectName;
 
 /**
  * A simple token handling utility class.
  */
-public class TokenHa implements AutoCloseable {
+public class TokenHa implements AutoCloseable, Evictable {
 
     private static final Logger logger = TokenHaLogger.getLogger(TokenHa.class);
     
@@ -33,16 +37,24 @@ public class TokenHa implements AutoCloseable {
     private final long coolTimeToAddMillis;
     private final String persistenceFilePath;
     private final boolean enableAutoEvictIfQueueIsFull;
+    private final TokenStorage tokenStorage;
+    private final boolean lazyExpiration;
 
-    private Deque<TokenElement> fifoQueue = new ArrayDeque<>();
-    private FilePersistence filePersistence; // File persistence handler
-    
-    // Gson for JSON serialization/deserialization
-    private static final Gson gson = new Gson();
+    // Sentinel for lastAcceptedTimeMillis while no token is held
+    private static final long NO_ACCEPTED_TOKEN = Long.MIN_VALUE;
 
-    // Strategy 2: Cached unmodifiable snapshot for optimal performance
-    private List<TokenElement> snapshotList = new ArrayList<>();
-    private List<TokenElement> unmodifiableSnapshot = Collections.emptyList();
+    // Immutable FIFO published on every mutation. Writers replace it while holding the monitor;
+    // readers only read this field, so they never block.
+    private volatile TokenSnapshot tokens;
+    // Timestamp of the newest accepted token. Read and claimed with CAS so that
+    // callers rejected by the cooldown never touch the monitor.
+    private final AtomicLong lastAcceptedTimeMillis = new AtomicLong(NO_ACCEPTED_TOKEN);
+    private final TokenStore tokenStore; // Persistence backend selected by the configuration
+    private WriteBehindFlusher writeBehindFlusher; // Null when saving synchronously
+    private final TokenHaMetrics metrics; // Null unless metrics or JMX are enabled
+    private final ObjectName mbeanName; // Null unless JMX is enabled
+    // Earliest eviction deadline reported to the eviction thread, guarded by this
+    private long publishedDeadlineMillis = Long.MAX_VALUE;
     
     /**
      * Constructor with default configuration.
@@ -65,97 +77,274 @@ public class TokenHa implements AutoCloseable {
         this.coolTimeToAddMillis = config.getCoolTimeToAddMillis();
         this.persistenceFilePath = config.getPersistenceFilePath();
         this.enableAutoEvictIfQueueIsFull = config.isEnableAutoEvictIfQueueIsFull();
+        this.tokenStorage = config.getTokenStorage();
+        this.lazyExpiration = config.isLazyExpiration();
+        this.tokens = TokenSnapshot.empty(tokenStorage);
         
-        EvictionThread.getInstance(config.getEvictionThreadConfig()).register(this);
-        filePersistence = new FilePersistence(persistenceFilePath);
-        
-        // Initialize snapshot
-        updateSnapshot();
+        this.metrics = config.isMetricsEnabled() || config.isJmxEnabled() ? new TokenHaMetrics() : null;
+        this.tokenStore = config.getTokenStoreFactory().create(config);
+        try {
+            if (metrics != null) {
+                tokenStore.setMetrics(metrics);
+            }
+            if (config.isWriteBehindEnabled()) {
+                writeBehindFlusher = new WriteBehindFlusher(this::saveNow, config.getWriteBehindIntervalMillis(),
+                    config.getThreadMode());
+            }
+            EvictionThread.getInstance(config.getEvictionThreadConfig()).register(this);
+            this.mbeanName = config.isJmxEnabled() ? TokenHaJmx.register(this) : null;
+        } catch (RuntimeException e) {
+            // Nobody can close a half-constructed instance, so release the store's file lock and the flusher's scheduler here
+            EvictionThread.getInstance().unregister(this);
+            if (writeBehindFlusher != null) {
+                writeBehindFlusher.close();
+            }
+            tokenStore.close();
+            throw e;
+        }
     }
 
     /**
      * Add token if cooldown period has passed. Conditionally removes oldest token if queue is at max capacity.
-     * This method is synchronized to prevent race conditions.
+     * The cooldown is checked and claimed lock-free with a CAS on the newest accepted timestamp,
+     * so callers rejected by the cooldown return without blocking. Only the caller that wins
+     * the claim enters the synchronized mutation section. Winners may enter it in a different
+     * order than they claimed. With a cooldown, a claim overtaken by a later one is rejected,
+     * since its token would land closer than the cooldown to the newest token; without one,
+     * its token is stamped with the time of the newest token so the queue stays in time order.
      * 
      * @param token the token string to add
      * @return true if token was added, false if cooldown period has not passed or queue is full and auto-eviction is disabled
+     * @throws IllegalArgumentException if the token store does not accept the token, e.g. it does not fit into a mapped ring slot
      */
-    public synchronized boolean addIfAvailable(String token) {
-        if (!passedCoolTimeToAdd()) {
-            return false;
+    public boolean addIfAvailable(String token) {
+        long now = System.currentTimeMillis();
+        long previous;
+        do {
+            previous = lastAcceptedTimeMillis.get();
+            if (!passedCoolTime(previous, now)) {
+                if (metrics != null) {
+                    metrics.recordRejected();
+                }
+                return false;
+            }
+        } while (!lastAcceptedTimeMillis.compareAndSet(previous, now));
+
+        if (metrics == null) {
+            return addClaimed(token, now, previous, 0);
+        }
+        boolean added = addClaimed(token, now, previous, System.nanoTime());
+        if (added) {
+            metrics.recordAccepted();
+        } else {
+            metrics.recordRejected();
+        }
+        return added;
+    }
+
+    /**
+     * Mutation section for a caller that has claimed the cooldown slot at {@code now}.
+     * Releases the claim again if the token cannot be added.
+     */
+    private synchronized boolean addClaimed(String token, long now, long previous, long claimedNanos) {
+        if (metrics != null) {
+            metrics.getLockWaitNanos().record(System.nanoTime() - claimedNanos);
+        }
+        TokenSnapshot current = tokens;
+        long addedAt = now;
+        if (!current.isEmpty()) {
+            long newest = current.timeMillisFromOldest(current.size() - 1);
+            if (coolTimeToAddMillis > 0 && now - newest < coolTimeToAddMillis) {
+                // A later claim entered the monitor first; adding this token would break the cooldown spacing
+                releaseClaim(now, previous);
+                return false;
+            }
+            // Without a cooldown a later claim may have entered first; never stamp a token before the newest one
+            addedAt = Math.max(now, newest);
+        }
+
+        if (!tokenStore.accepts(token)) {
+            releaseClaim(now, previous);
+            throw new IllegalArgumentException("Token is not accepted by the token store");
         }
 
+        // In lazy expiration mode expired tokens are dropped by the add itself
+        int expired = lazyExpiration ? countExpired(current, addedAt) : 0;
+
         // Check if queue is full and auto-eviction is disabled
-        if (isFilled() && !enableAutoEvictIfQueueIsFull) {
+        boolean filled = current.size() - expired >= maxTokens;
+        if (filled && !enableAutoEvictIfQueueIsFull) {
+            releaseClaim(now, previous);
             return false;
         }
 
         // Remove oldest token if queue is full and auto-eviction is enabled
-        if (isFilled() && enableAutoEvictIfQueueIsFull) {
-            fifoQueue.poll();
+        int evicted = expired;
+        if (filled && enableAutoEvictIfQueueIsFull) {
+            evicted++;
         }
         
-        // Add the new token
-        fifoQueue.add(new TokenElement(token, System.currentTimeMillis()));
-        filePersistence.save(toJson());
-        
-        // Update snapshot after modification
-        updateSnapshot();
+        // Add the new token; O(1) regardless of the queue size
+        TokenElement element = new TokenElement(token, addedAt);
+        long rebuildNanos = metrics != null ? System.nanoTime() : 0;
+        tokens = current.withoutOldest(evicted).withNewest(element, maxTokens);
+        if (metrics != null) {
+            metrics.getSnapshotRebuildNanos().record(System.nanoTime() - rebuildNanos);
+        }
+        publishDeadline();
+        persistAdd(element, evicted);
 
         return true;
     }
 
     /**
-     * Internal method to update the snapshot after queue modifications.
-     * This creates a new snapshot list for thread-safe iteration.
-     * The snapshot provides elements in descending order (newest to oldest).
-     * Creates an unmodifiable view for optimal performance on reads.
+     * Give back a claim made at {@code now} that did not add a token.
+     * With a cooldown two claims never share a timestamp, so the CAS only undoes this claim.
+     * Without one, concurrent claims may share {@code now} and the claim is kept rather than
+     * undo another caller's; it cannot reject anyone since every claim passes a zero cooldown.
      */
-    private void updateSnapshot() {
-        // Create and prepare the new snapshot in a local variable first
-        List<TokenElement> newSnapshot = new ArrayList<>(fifoQueue);
-        // Reverse to get descending order (newest first)
-        Collections.reverse(newSnapshot);
-        // Atomically replace the snapshot
-        snapshotList = newSnapshot;
-        // Create unmodifiable view once - this avoids allocation on getDescList() calls
-        unmodifiableSnapshot = Collections.unmodifiableList(snapshotList);
+    private void releaseClaim(long now, long previous) {
+        if (coolTimeToAddMillis > 0) {
+            lastAcceptedTimeMillis.compareAndSet(now, previous);
+        }
     }
 
     /**
      * Get the newest token in the queue.
-     * Synchronized for thread-safe read.
+     * Wait-free: reads the published snapshot without taking the monitor.
      */
-    public synchronized TokenElement newestToken() {
-        return fifoQueue.peekLast();
+    public TokenElement newestToken() {
+        return visibleTokens().newest();
     }
 
     /**
      * Get an unmodifiable list of tokens in descending order (newest to oldest).
-     * Returns a cached unmodifiable view with zero allocation overhead.
-     * The list is thread-safe and won't throw ConcurrentModificationException.
+     * Returns a read-only view of the current immutable snapshot, created once per snapshot.
+     * The list never changes after it is returned, so it is thread-safe and
+     * won't throw ConcurrentModificationException; with {@code TokenStorage.OFF_HEAP} this
+     * holds for about {@code maxTokens} later additions, after which its reads throw it.
      * 
      * @return Unmodifiable list for read-only traversal in descending order
      */
-    public synchronized List<TokenElement> getDescList() {
-        // Return the cached unmodifiable view - zero allocation, O(1) performance
-        return unmodifiableSnapshot;
+    public List<TokenElement> getDescList() {
+        // The snapshot is maintained incrementally by each mutation; hand out its view, never the snapshot
+        return visibleTokens().descending();
     }
 
     /**
      * Get the current queue size.
-     * Synchronized for thread-safe read.
+     * Wait-free: reads the published snapshot without taking the monitor.
+     */
+    public int getQueueSize() {
+        return visibleTokens().size();
+    }
+
+    /**
+     * Get the tokens visible to readers. In lazy expiration mode the expired tokens that
+     * the eviction thread has not removed yet are cut off the snapshot, which is an
+     * O(log n) search and an O(1) view; otherwise the snapshot is returned as is.
+     */
+    private TokenSnapshot visibleTokens() {
+        TokenSnapshot current = tokens;
+        if (!lazyExpiration) {
+            return current;
+        }
+        return current.withoutOldest(countExpired(current, System.currentTimeMillis()));
+    }
+
+    /**
+     * Count the expired tokens at the old end of a snapshot, keeping the last {@code numberOfLastTokens}.
+     * Timestamps ascend from the oldest token, so the expired tokens form a prefix found by binary search.
+     */
+    private int countExpired(TokenSnapshot snapshot, long currentTime) {
+        int low = 0;
+        int high = Math.max(0, snapshot.size() - numberOfLastTokens);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (currentTime - snapshot.timeMillisFromOldest(mid) > expirationTimeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Persist an added token incrementally if the store supports it,
+     * otherwise save all tokens (or only mark them dirty in write-behind mode).
+     */
+    private void persistAdd(TokenElement element, int evictedOldest) {
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        if (canWriteIncrementally()) {
+            tokenStore.append(element, evictedOldest);
+        } else {
+            persist();
+        }
+        recordSave(startNanos);
+    }
+
+    /**
+     * Persist the removal of the oldest tokens.
      */
-    public synchronized int getQueueSize() {
-        return fifoQueue.size();
+    private void persistEvict(int count) {
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        if (canWriteIncrementally()) {
+            tokenStore.evict(count);
+        } else {
+            persist();
+        }
+        recordSave(startNanos);
+    }
+
+    private void recordSave(long startNanos) {
+        // In write-behind mode this only covers marking the tokens dirty
+        if (metrics != null) {
+            metrics.getSaveNanos().record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private boolean canWriteIncrementally() {
+        return writeBehindFlusher == null && !tokenStore.needsFullSave();
+    }
+
+    /**
+     * Save the current tokens, or only mark them dirty in write-behind mode.
+     */
+    private void persist() {
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.markDirty();
+        } else {
+            saveNow();
+        }
+    }
+
+    private void saveNow() {
+        tokenStore.save(currentTokens());
+    }
+
+    private List<TokenElement> currentTokens() {
+        return tokens.ascending();
+    }
+
+    /**
+     * Write pending changes to the persistence file immediately.
+     * Only has an effect in write-behind mode; otherwise every change is already saved.
+     */
+    public void flush() {
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.flush();
+        }
     }
 
     // Cleanup method to unregister from singleton eviction thread
     public void close() {
+        TokenHaJmx.unregister(mbeanName);
         EvictionThread.getInstance().unregister(this);
-        if (filePersistence != null) {
-            filePersistence.close();
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.close();
         }
+        tokenStore.close();
     }
 
     /**
@@ -163,11 +352,12 @@ public class TokenHa implements AutoCloseable {
      * Behavior depends on enableAutoEvictIfQueueIsFull configuration:
      * - If true: returns true when cooldown period has passed (regardless of queue fullness)
      * - If false: returns true when queue is not full AND cooldown period has passed
-     * Synchronized for consistent read of multiple conditions.
+     * Lock-free; like any check-then-act, the answer may be outdated by the time
+     * {@link #addIfAvailable(String)} is called, which re-checks both conditions.
      * 
      * @return true if token can be added, false otherwise
      */
-    public synchronized boolean availableToAdd() {
+    public boolean availableToAdd() {
         if (enableAutoEvictIfQueueIsFull) {
             // When auto-eviction is enabled, only cooldown matters
             return passedCoolTimeToAdd();
@@ -179,108 +369,159 @@ public class TokenHa implements AutoCloseable {
 
     /**
      * Check if the queue is filled to capacity.
-     * Made synchronized for thread-safe read.
+     * Wait-free: reads the published snapshot without taking the monitor.
      */
-    public synchronized boolean isFilled() {
-        return fifoQueue.size() >= maxTokens;
+    public boolean isFilled() {
+        return visibleTokens().size() >= maxTokens;
     }
 
     /**
      * Check if enough time has passed since the last token was added.
-     * Made synchronized for thread-safe read.
+     * Lock-free: reads the newest accepted timestamp without taking the monitor.
+     */
+    public boolean passedCoolTimeToAdd() {
+        return passedCoolTime(lastAcceptedTimeMillis.get(), System.currentTimeMillis());
+    }
+
+    private boolean passedCoolTime(long lastAccepted, long currentTime) {
+        if (lastAccepted == NO_ACCEPTED_TOKEN) {
+            return true;
+        }
+        return currentTime - lastAccepted >= coolTimeToAddMillis;
+    }
+
+    /**
+     * Get the time at which {@link #evictExpiredTokens()} will next remove a token,
+     * i.e. when the oldest token beyond the last {@code numberOfLastTokens} expires.
+     * Wait-free: reads the published snapshot without taking the monitor.
+     *
+     * @return the deadline in epoch milliseconds, or {@code Long.MAX_VALUE} if no token
+     *         can expire until more tokens are added
      */
-    public synchronized boolean passedCoolTimeToAdd() {
-        TokenElement newestToken = fifoQueue.peekLast();
-        if (newestToken != null) {
-            long currentTime = System.currentTimeMillis();
-            long timeSinceLastToken = currentTime - newestToken.getTimeMillis();
-            return timeSinceLastToken >= coolTimeToAddMillis;
+    public long nextEvictionDeadlineMillis() {
+        TokenSnapshot current = tokens;
+        if (current.size() <= numberOfLastTokens) {
+            return Long.MAX_VALUE;
+        }
+        long oldest = current.timeMillisFromOldest(0);
+        if (oldest > Long.MAX_VALUE - expirationTimeMillis - 1) {
+            return Long.MAX_VALUE;
         }
+        // A token is evicted once strictly more than expirationTimeMillis has passed
+        return oldest + expirationTimeMillis + 1;
+    }
+
+    /**
+     * Tokens report their deadline to the eviction thread, so it sleeps until the
+     * deadline instead of polling this instance.
+     * @return always true
+     */
+    @Override
+    public boolean publishesEvictionDeadlines() {
         return true;
     }
 
+    /**
+     * Report the eviction deadline to the eviction thread if it moved earlier than the last
+     * reported one. It only moves earlier when the queue grows beyond {@code numberOfLastTokens}
+     * or is restored, so this costs nothing on most adds. Must be called while holding this.
+     */
+    private void publishDeadline() {
+        long deadline = nextEvictionDeadlineMillis();
+        if (deadline < publishedDeadlineMillis) {
+            publishedDeadlineMillis = deadline;
+            EvictionThread.getInstance().deadlineChanged(this, deadline);
+        }
+    }
+
     /**
      * Evict expired tokens from the queue.
-     * Already synchronized, updated to use updateSnapshot().
+     * Already synchronized; removing the expired prefix replaces the snapshot in O(1).
      */
     public synchronized List<TokenElement> evictExpiredTokens() {
-        List<TokenElement> expiredTokens = new ArrayList<>();
-
         long currentTime = System.currentTimeMillis();
-        while (!fifoQueue.isEmpty()) {
-            if (fifoQueue.size() <= numberOfLastTokens) {
-                // Do not remove if we have only the last tokens left
-                break;
-            }
+        TokenSnapshot current = tokens;
+        // Timestamps are compared without creating elements for the tokens that are kept
+        int expired = countExpired(current, currentTime);
 
-            // Get the oldest element
-            TokenElement element = fifoQueue.peek();
-            if (element != null && (currentTime - element.getTimeMillis()) > expirationTimeMillis) {
-                expiredTokens.add(fifoQueue.poll());
-            } else {
-                break;
-            }
+        if (expired == 0) {
+            return null;
+        }
+        List<TokenElement> expiredTokens = new ArrayList<>(expired);
+        for (int i = 0; i < expired; i++) {
+            expiredTokens.add(current.getFromOldest(i));
         }
 
-        if (expiredTokens.size() == 0) {
-            return null;
+        long rebuildNanos = metrics != null ? System.nanoTime() : 0;
+        current = current.withoutOldest(expiredTokens.size());
+        tokens = current;
+        if (metrics != null) {
+            metrics.getSnapshotRebuildNanos().record(System.nanoTime() - rebuildNanos);
+        }
+        // The head moved later; the caller (usually the eviction thread) reads the new deadline
+        publishedDeadlineMillis = nextEvictionDeadlineMillis();
+        if (current.isEmpty()) {
+            // Nothing left to cool down from
+            TokenElement newestEvicted = expiredTokens.get(expiredTokens.size() - 1);
+            lastAcceptedTimeMillis.compareAndSet(newestEvicted.getTimeMillis(), NO_ACCEPTED_TOKEN);
         }
 
-        filePersistence.save(toJson());
-        
-        // Update snapshot after modification
-        updateSnapshot();
+        persistEvict(expiredTokens.size());
         
         return expiredTokens;
     }
     
     /**
-     * Load tokens from file if it exists and deserialize using Gson.
+     * Load tokens from the token store if it holds any.
      */
     public synchronized void loadFromFile() throws IOException {
-        String content = filePersistence.load();
-        if (content != null) {
-            logger.trace("Loaded content: {}", content);
-            
-            try {
-                TokenData data = gson.fromJson(content, TokenData.class);
-                
-                if (data != null && data.getTokens() != null && !data.getTokens().isEmpty()) {
-                    // Clear current queue
-                    fifoQueue.clear();
-                    
-                    // If tokens exceed maxTokens, keep only the newest ones
-                    List<TokenElement> tokens = data.getTokens();
-                    if (tokens.size() > maxTokens) {
-                        tokens = tokens.subList(tokens.size() - maxTokens, tokens.size());
-                    }
-                    
-                    // Add all tokens to queue in proper order (oldest to newest)
-                    for (TokenElement token : tokens) {
-                        fifoQueue.add(token);
-                    }
-                    
-                    // Update snapshot after loading
-                    updateSnapshot();
-                    
-                    logger.debug("Loaded {} tokens from file", fifoQueue.size());
-                }
-            } catch (JsonSyntaxException e) {
-                logger.warn("Error parsing JSON with Gson: {}", e.getMessage());
-            }
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        List<TokenElement> loaded = tokenStore.load(maxTokens);
+        if (metrics != null) {
+            metrics.getLoadNanos().record(System.nanoTime() - startNanos);
         }
+        restoreTokens(loaded);
+    }
+
+    /**
+     * Replace the queue with loaded tokens (oldest to newest). Empty input leaves the queue unchanged.
+     */
+    private void restoreTokens(List<TokenElement> loaded) {
+        if (loaded == null || loaded.isEmpty()) {
+            return;
+        }
+
+        // If tokens exceed maxTokens, keep only the newest ones
+        if (loaded.size() > maxTokens) {
+            loaded = loaded.subList(loaded.size() - maxTokens, loaded.size());
+        }
+        
+        // Replace the queue, keeping the proper order (oldest to newest)
+        TokenSnapshot restored = TokenSnapshot.of(loaded, maxTokens, tokenStorage);
+        tokens = restored;
+        lastAcceptedTimeMillis.set(restored.timeMillisFromOldest(restored.size() - 1));
+        // Restored tokens may expire earlier than the reported deadline
+        publishedDeadlineMillis = Long.MAX_VALUE;
+        publishDeadline();
+        
+        logger.debug("Loaded {} tokens from file", restored.size());
     }
     
     /**
      * Set the file path for persistence.
      * Note: This method is deprecated. Use TokenHaConfig to set persistence file path during construction.
      * @param filePath the file path to use for saving/loading tokens
+     * @throws IllegalStateException if the instance is not configured with the JSON file store
      * @deprecated Use TokenHaConfig instead
      */
     @Deprecated
     public void setPersistenceFilePath(String filePath) throws IOException {
-        // Only update the FilePersistence instance, not the field (which is final)
-        filePersistence.setFilePath(filePath);
+        if (!(tokenStore instanceof JsonFileTokenStore)) {
+            throw new IllegalStateException("The file path can only be changed with the JSON_FILE persistence mode "
+                + "and the default token store; configure persistenceFilePath instead");
+        }
+        // Only update the store, not the field (which is final)
+        ((JsonFileTokenStore) tokenStore).setFilePath(filePath);
     }
     
     /**
@@ -291,12 +532,20 @@ public class TokenHa implements AutoCloseable {
         return persistenceFilePath;
     }
     
+    /**
+     * Get the latency histograms of this instance.
+     * @return the live metrics, or null if neither {@code metricsEnabled} nor {@code jmxEnabled} is set
+     */
+    public TokenHaMetrics getMetrics() {
+        return metrics;
+    }
+    
     /**
      * Check if the persistence file exists.
      * @return true if the file exists, false otherwise
      */
     public boolean persistenceFileExists() {
-        return filePersistence.fileExists();
+        return tokenStore.exists();
     }
     
     /**
@@ -304,16 +553,14 @@ public class TokenHa implements AutoCloseable {
      * @return true if file was deleted or didn't exist, false if deletion failed
      */
     public boolean deletePersistenceFile() {
-        return filePersistence.deleteFile();
+        return tokenStore.delete();
     }
 
     /**
-     * Serialize TokenHa to JSON using Gson.
+     * Serialize TokenHa to JSON, streaming the tokens of the current snapshot.
      * @return JSON string representation of tokens
      */
-    public synchronized String toJson() {
-        List<TokenElement> tokenList = new ArrayList<>(fifoQueue);
-        TokenData data = new TokenData(tokenList);
-        return gson.toJson(data);
+    public String toJson() {
+        return TokenJson.toJson(tokens.ascending());
     }
 }
@@ -0,0 +1,68 @@
+package com.github.tsutomunakamura.tokenha.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+
+/**
+ * Creates the threads used for background work.
+ *
+ * This is the Java 17 variant, which only supports platform threads. The multi-release jar
+ * contains a Java 21 variant under {@code META-INF/versions/21} that creates virtual threads
+ * for {@link ThreadMode#VIRTUAL}; both variants must keep the same public API.
+ */
+public final class ThreadFactories {
+
+    private static final Logger logger = TokenHaLogger.getLogger(ThreadFactories.class);
+
+    private static final AtomicBoolean fallbackWarned = new AtomicBoolean(false);
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Check if {@link ThreadMode#VIRTUAL} creates virtual threads on this runtime.
+     * @return true on Java 21 or later with the multi-release jar
+     */
+    public static boolean isVirtualThreadSupported() {
+        return false;
+    }
+
+    /**
+     * Create a factory for threads named {@code namePrefix} followed by a counter.
+     * Platform threads are daemon threads so they never keep the JVM alive.
+     * @param namePrefix prefix of the thread names
+     * @param mode kind of threads to create
+     * @return a new thread factory
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix, ThreadMode mode) {
+        if (mode == ThreadMode.VIRTUAL && fallbackWarned.compareAndSet(false, true)) {
+            logger.warn("Virtual threads require Java 21 or later, using platform threads instead");
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Create an executor for tasks that may block on I/O.
+     * Platform threads are pooled, at most {@code parallelism} of them;
+     * with virtual threads every task gets its own thread and callers bound the concurrency.
+     * @param namePrefix prefix of the thread names
+     * @param parallelism maximum number of pooled platform threads
+     * @param mode kind of threads to create
+     * @return a new executor
+     */
+    public static ExecutorService newWorkerPool(String namePrefix, int parallelism, ThreadMode mode) {
+        return Executors.newFixedThreadPool(parallelism, newThreadFactory(namePrefix, mode));
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.tsutomunakamura.tokenha.config;
+
+/**
+ * How far a JSON or binary file save is pushed towards the storage device before it returns.
+ */
+public enum DurabilityLevel {
+
+    /**
+     * Hand the data to the OS without syncing. A completed save survives a JVM crash
+     * but not an OS crash or power loss.
+     */
+    NONE,
+
+    /**
+     * Sync the file content but not its metadata ({@code fdatasync}). Cheaper than
+     * {@link #FSYNC} where the file system can skip updating timestamps.
+     */
+    FLUSH,
+
+    /**
+     * Sync the file content and metadata ({@code fsync}) on every save (default).
+     */
+    FSYNC,
+
+    /**
+     * Like {@link #FSYNC}, and also sync the directory so that the creation of the file,
+     * or its replacement by an atomic save, survives a crash as well.
+     */
+    FSYNC_DIRECTORY;
+}
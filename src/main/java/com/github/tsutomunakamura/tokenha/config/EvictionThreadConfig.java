@@ -16,18 +16,30 @@ public class EvictionThreadConfig {
     // Default values
     private static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
     private static final long DEFAULT_INTERVAL_MILLIS = 10000;
+    private static final int DEFAULT_PARALLELISM = 1;
+    private static final ThreadMode DEFAULT_THREAD_MODE = ThreadMode.PLATFORM;
+    private static final boolean DEFAULT_JMX_ENABLED = false;
     
     private final long initialDelayMillis;
     private final long intervalMillis;
+    private final int parallelism;
+    private final ThreadMode threadMode;
+    private final boolean jmxEnabled;
     
     private EvictionThreadConfig(Builder builder) {
         this.initialDelayMillis = builder.initialDelayMillis;
         this.intervalMillis = builder.intervalMillis;
+        this.parallelism = builder.parallelism;
+        this.threadMode = builder.threadMode;
+        this.jmxEnabled = builder.jmxEnabled;
     }
     
     // Getters
     public long getInitialDelayMillis() { return initialDelayMillis; }
     public long getIntervalMillis() { return intervalMillis; }
+    public int getParallelism() { return parallelism; }
+    public ThreadMode getThreadMode() { return threadMode; }
+    public boolean isJmxEnabled() { return jmxEnabled; }
     
     /**
      * Create a default configuration.
@@ -42,7 +54,10 @@ public class EvictionThreadConfig {
     public Builder toBuilder() {
         return new Builder()
             .initialDelayMillis(this.initialDelayMillis)
-            .intervalMillis(this.intervalMillis);
+            .intervalMillis(this.intervalMillis)
+            .parallelism(this.parallelism)
+            .threadMode(this.threadMode)
+            .jmxEnabled(this.jmxEnabled);
     }
     
     /**
@@ -54,6 +69,7 @@ public class EvictionThreadConfig {
         // Use helper methods that handle invalid values gracefully
         long initialDelay = getLongProperty(props, "tokenha.eviction.initial.delay.millis", DEFAULT_INITIAL_DELAY_MILLIS);
         long interval = getLongProperty(props, "tokenha.eviction.interval.millis", DEFAULT_INTERVAL_MILLIS);
+        long parallelism = getLongProperty(props, "tokenha.eviction.parallelism", DEFAULT_PARALLELISM);
         
         // Apply values with validation - use defaults if validation fails
         try {
@@ -70,6 +86,22 @@ public class EvictionThreadConfig {
             builder.intervalMillis(DEFAULT_INTERVAL_MILLIS);
         }
         
+        try {
+            builder.parallelism(Math.toIntExact(parallelism));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            logger.warn("Invalid parallelism, using default: {}", DEFAULT_PARALLELISM);
+            builder.parallelism(DEFAULT_PARALLELISM);
+        }
+        
+        try {
+            builder.threadMode(TokenHaConfig.getEnumProperty(props, "tokenha.eviction.thread.mode", ThreadMode.class, DEFAULT_THREAD_MODE));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid thread mode, using default: {}", DEFAULT_THREAD_MODE);
+            builder.threadMode(DEFAULT_THREAD_MODE);
+        }
+        
+        builder.jmxEnabled(getBooleanProperty(props, "tokenha.eviction.jmx.enabled", DEFAULT_JMX_ENABLED));
+        
         return builder.build();
     }
     
@@ -82,10 +114,16 @@ public class EvictionThreadConfig {
         // Use helper methods that handle invalid values gracefully
         long initialDelay = getLongEnv("TOKENHA_EVICTION_INITIAL_DELAY_MILLIS", DEFAULT_INITIAL_DELAY_MILLIS);
         long interval = getLongEnv("TOKENHA_EVICTION_INTERVAL_MILLIS", DEFAULT_INTERVAL_MILLIS);
+        long parallelism = getLongEnv("TOKENHA_EVICTION_PARALLELISM", DEFAULT_PARALLELISM);
+        ThreadMode threadMode = TokenHaConfig.getEnumEnv("TOKENHA_EVICTION_THREAD_MODE", ThreadMode.class, DEFAULT_THREAD_MODE);
+        boolean jmxEnabled = getBooleanEnv("TOKENHA_EVICTION_JMX_ENABLED", DEFAULT_JMX_ENABLED);
         
         // Apply values with validation - use defaults if validation fails
         builder.initialDelayMillis(initialDelay)
-               .intervalMillis(interval);
+               .intervalMillis(interval)
+               .parallelism(Math.toIntExact(parallelism))
+               .threadMode(threadMode)
+               .jmxEnabled(jmxEnabled);
         
         return builder.build();
     }
@@ -96,6 +134,9 @@ public class EvictionThreadConfig {
     public static class Builder {
         private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
         private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private ThreadMode threadMode = DEFAULT_THREAD_MODE;
+        private boolean jmxEnabled = DEFAULT_JMX_ENABLED;
         
         public Builder initialDelayMillis(long initialDelayMillis) {
             if (initialDelayMillis < 0) {
@@ -113,6 +154,39 @@ public class EvictionThreadConfig {
             return this;
         }
         
+        /**
+         * Number of worker threads that evict due instances concurrently.
+         * 1 (the default) evicts sequentially on the scheduler thread.
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("Parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * Kind of threads running the sweeps and the eviction workers.
+         * {@link ThreadMode#VIRTUAL} falls back to platform threads before Java 21.
+         */
+        public Builder threadMode(ThreadMode threadMode) {
+            if (threadMode == null) {
+                throw new IllegalArgumentException("Thread mode cannot be null");
+            }
+            this.threadMode = threadMode;
+            return this;
+        }
+        
+        /**
+         * Register an {@code EvictionThreadMXBean} with the platform MBean server while
+         * the eviction thread is running. Off by default.
+         */
+        public Builder jmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+            return this;
+        }
+        
         public EvictionThreadConfig build() {
             return new EvictionThreadConfig(this);
         }
@@ -127,6 +201,14 @@ public class EvictionThreadConfig {
         return defaultValue;
     }
     
+    private static boolean getBooleanProperty(Properties props, String key, boolean defaultValue) {
+        String value = props.getProperty(key);
+        if (value != null) {
+            return Boolean.parseBoolean(value.trim());
+        }
+        return defaultValue;
+    }
+    
     private static long getLongEnv(String key, long defaultValue) {
         String value = System.getenv(key);
         if (value != null) {
@@ -135,11 +217,22 @@ public class EvictionThreadConfig {
         return defaultValue;
     }
     
+    private static boolean getBooleanEnv(String key, boolean defaultValue) {
+        String value = System.getenv(key);
+        if (value != null) {
+            return Boolean.parseBoolean(value.trim());
+        }
+        return defaultValue;
+    }
+    
     @Override
     public String toString() {
         return "EvictionThreadConfig{" +
                 "initialDelayMillis=" + initialDelayMillis +
                 ", intervalMillis=" + intervalMillis +
+                ", parallelism=" + parallelism +
+                ", threadMode=" + threadMode +
+                ", jmxEnabled=" + jmxEnabled +
                 '}';
     }
 }
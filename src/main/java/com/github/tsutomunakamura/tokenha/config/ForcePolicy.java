@@ -0,0 +1,18 @@
+package com.github.tsutomunakamura.tokenha.config;
+
+/**
+ * When memory-mapped persistence forces dirty pages to the storage device.
+ */
+public enum ForcePolicy {
+
+    /**
+     * Force after every mutation. A completed add survives an OS crash (default).
+     */
+    EVERY_WRITE,
+
+    /**
+     * Leave write-back to the OS and force only when the store is closed.
+     * A completed add survives a JVM crash but not an OS crash.
+     */
+    ON_CLOSE;
+}
@@ -0,0 +1,32 @@
+package com.github.tsutomunakamura.tokenha.config;
+
+/**
+ * Persistence engines available to TokenHa instances.
+ */
+public enum PersistenceMode {
+
+    /**
+     * Rewrite the whole token list as a JSON document on every change (default).
+     */
+    JSON_FILE,
+
+    /**
+     * Rewrite the whole token list in a compact, checksummed binary format on every change.
+     */
+    BINARY_FILE,
+
+    /**
+     * Append small add/evict records to a write-ahead log and compact it into a snapshot periodically.
+     */
+    WRITE_AHEAD_LOG,
+
+    /**
+     * Write each token into a fixed-size slot of a memory-mapped ring file sized for {@code maxTokens}.
+     */
+    MAPPED_RING,
+
+    /**
+     * Keep tokens in memory only. No file is opened or locked and nothing survives a restart.
+     */
+    IN_MEMORY;
+}
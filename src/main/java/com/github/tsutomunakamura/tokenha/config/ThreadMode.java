@@ -0,0 +1,18 @@
+package com.github.tsutomunakamura.tokenha.config;
+
+/**
+ * Kind of threads the library uses for background work such as eviction sweeps and write-behind saves.
+ */
+public enum ThreadMode {
+
+    /**
+     * Daemon platform threads (default).
+     */
+    PLATFORM,
+
+    /**
+     * Virtual threads. Requires Java 21 or later and the multi-release jar;
+     * on older runtimes platform threads are used instead.
+     */
+    VIRTUAL;
+}
@@ -1,8 +1,11 @@
 package com.github.tsutomunakamura.tokenha.config;
 
+import java.util.Locale;
 import java.util.Properties;
 import org.slf4j.Logger;
 import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+import com.github.tsutomunakamura.tokenha.persistence.MappedRingPersistence;
+import com.github.tsutomunakamura.tokenha.persistence.TokenStoreFactory;
 
 /**
  * Configuration class for TokenHa with builder pattern support.
@@ -19,6 +22,20 @@ public class TokenHaConfig {
     private static final long DEFAULT_COOL_TIME_MILLIS = 1000L;
     private static final String DEFAULT_PERSISTENCE_FILE_PATH = "tokenha-data.json";
     private static final boolean DEFAULT_ENABLE_AUTO_EVICT_IF_QUEUE_IS_FULL = true;
+    private static final long DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS = 0L;
+    private static final PersistenceMode DEFAULT_PERSISTENCE_MODE = PersistenceMode.JSON_FILE;
+    private static final int DEFAULT_WAL_COMPACTION_THRESHOLD = 1000;
+    private static final int DEFAULT_MAPPED_SLOT_SIZE = 256;
+    private static final ForcePolicy DEFAULT_MAPPED_FORCE_POLICY = ForcePolicy.EVERY_WRITE;
+    private static final ThreadMode DEFAULT_THREAD_MODE = ThreadMode.PLATFORM;
+    private static final int DEFAULT_REGISTRY_LOCK_STRIPES = 64;
+    private static final TokenStorage DEFAULT_TOKEN_STORAGE = TokenStorage.OBJECTS;
+    private static final boolean DEFAULT_ATOMIC_SAVE = false;
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW_MILLIS = 0L;
+    private static final DurabilityLevel DEFAULT_DURABILITY_LEVEL = DurabilityLevel.FSYNC;
+    private static final boolean DEFAULT_LAZY_EXPIRATION = false;
+    private static final boolean DEFAULT_METRICS_ENABLED = false;
+    private static final boolean DEFAULT_JMX_ENABLED = false;
     
     private final long expirationTimeMillis;
     private final int numberOfLastTokens;
@@ -27,6 +44,21 @@ public class TokenHaConfig {
     private final String persistenceFilePath;
     private final EvictionThreadConfig evictionThreadConfig;
     private final boolean enableAutoEvictIfQueueIsFull;
+    private final long writeBehindIntervalMillis;
+    private final PersistenceMode persistenceMode;
+    private final int walCompactionThreshold;
+    private final int mappedSlotSize;
+    private final ForcePolicy mappedForcePolicy;
+    private final ThreadMode threadMode;
+    private final int registryLockStripes;
+    private final TokenStorage tokenStorage;
+    private final boolean atomicSave;
+    private final long groupCommitWindowMillis;
+    private final DurabilityLevel durabilityLevel;
+    private final boolean lazyExpiration;
+    private final boolean metricsEnabled;
+    private final boolean jmxEnabled;
+    private final TokenStoreFactory tokenStoreFactory;
     
     private TokenHaConfig(Builder builder) {
         this.expirationTimeMillis = builder.expirationTimeMillis;
@@ -36,6 +68,21 @@ public class TokenHaConfig {
         this.persistenceFilePath = builder.persistenceFilePath;
         this.evictionThreadConfig = builder.evictionThreadConfig;
         this.enableAutoEvictIfQueueIsFull = builder.enableAutoEvictIfQueueIsFull;
+        this.writeBehindIntervalMillis = builder.writeBehindIntervalMillis;
+        this.persistenceMode = builder.persistenceMode;
+        this.walCompactionThreshold = builder.walCompactionThreshold;
+        this.mappedSlotSize = builder.mappedSlotSize;
+        this.mappedForcePolicy = builder.mappedForcePolicy;
+        this.threadMode = builder.threadMode;
+        this.registryLockStripes = builder.registryLockStripes;
+        this.tokenStorage = builder.tokenStorage;
+        this.atomicSave = builder.atomicSave;
+        this.groupCommitWindowMillis = builder.groupCommitWindowMillis;
+        this.durabilityLevel = builder.durabilityLevel;
+        this.lazyExpiration = builder.lazyExpiration;
+        this.metricsEnabled = builder.metricsEnabled;
+        this.jmxEnabled = builder.jmxEnabled;
+        this.tokenStoreFactory = builder.tokenStoreFactory;
     }
     
     // Getters
@@ -46,6 +93,23 @@ public class TokenHaConfig {
     public String getPersistenceFilePath() { return persistenceFilePath; }
     public EvictionThreadConfig getEvictionThreadConfig() { return evictionThreadConfig; }
     public boolean isEnableAutoEvictIfQueueIsFull() { return enableAutoEvictIfQueueIsFull; }
+    public long getWriteBehindIntervalMillis() { return writeBehindIntervalMillis; }
+    public boolean isWriteBehindEnabled() { return writeBehindIntervalMillis > 0; }
+    public PersistenceMode getPersistenceMode() { return persistenceMode; }
+    public int getWalCompactionThreshold() { return walCompactionThreshold; }
+    public int getMappedSlotSize() { return mappedSlotSize; }
+    public ForcePolicy getMappedForcePolicy() { return mappedForcePolicy; }
+    public ThreadMode getThreadMode() { return threadMode; }
+    public int getRegistryLockStripes() { return registryLockStripes; }
+    public TokenStorage getTokenStorage() { return tokenStorage; }
+    public boolean isAtomicSave() { return atomicSave; }
+    public long getGroupCommitWindowMillis() { return groupCommitWindowMillis; }
+    public boolean isGroupCommitEnabled() { return groupCommitWindowMillis > 0; }
+    public DurabilityLevel getDurabilityLevel() { return durabilityLevel; }
+    public boolean isLazyExpiration() { return lazyExpiration; }
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public boolean isJmxEnabled() { return jmxEnabled; }
+    public TokenStoreFactory getTokenStoreFactory() { return tokenStoreFactory; }
     
     /**
      * Create a default configuration.
@@ -64,7 +128,22 @@ public class TokenHaConfig {
             .maxTokens(this.maxTokens)
             .coolTimeToAddMillis(this.coolTimeToAddMillis)
             .persistenceFilePath(this.persistenceFilePath)
-            .evictionThreadConfig(this.evictionThreadConfig);
+            .evictionThreadConfig(this.evictionThreadConfig)
+            .writeBehindIntervalMillis(this.writeBehindIntervalMillis)
+            .persistenceMode(this.persistenceMode)
+            .walCompactionThreshold(this.walCompactionThreshold)
+            .mappedSlotSize(this.mappedSlotSize)
+            .mappedForcePolicy(this.mappedForcePolicy)
+            .threadMode(this.threadMode)
+            .registryLockStripes(this.registryLockStripes)
+            .tokenStorage(this.tokenStorage)
+            .atomicSave(this.atomicSave)
+            .groupCommitWindowMillis(this.groupCommitWindowMillis)
+            .durabilityLevel(this.durabilityLevel)
+            .lazyExpiration(this.lazyExpiration)
+            .metricsEnabled(this.metricsEnabled)
+            .jmxEnabled(this.jmxEnabled)
+            .tokenStoreFactory(this.tokenStoreFactory);
     }
     
     /**
@@ -80,6 +159,20 @@ public class TokenHaConfig {
         long coolTime = getLongProperty(properties, "tokenha.cool.time.millis", DEFAULT_COOL_TIME_MILLIS);
         String filePath = properties.getProperty("tokenha.persistence.file.path", DEFAULT_PERSISTENCE_FILE_PATH);
         boolean enableAutoEvict = getBooleanProperty(properties, "tokenha.enable.auto.evict.if.queue.is.full", DEFAULT_ENABLE_AUTO_EVICT_IF_QUEUE_IS_FULL);
+        long writeBehindInterval = getLongProperty(properties, "tokenha.write.behind.interval.millis", DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS);
+        PersistenceMode persistenceMode = getEnumProperty(properties, "tokenha.persistence.mode", PersistenceMode.class, DEFAULT_PERSISTENCE_MODE);
+        int walCompactionThreshold = getIntProperty(properties, "tokenha.wal.compaction.threshold", DEFAULT_WAL_COMPACTION_THRESHOLD);
+        int mappedSlotSize = getIntProperty(properties, "tokenha.mapped.slot.size", DEFAULT_MAPPED_SLOT_SIZE);
+        ForcePolicy mappedForcePolicy = getEnumProperty(properties, "tokenha.mapped.force.policy", ForcePolicy.class, DEFAULT_MAPPED_FORCE_POLICY);
+        ThreadMode threadMode = getEnumProperty(properties, "tokenha.thread.mode", ThreadMode.class, DEFAULT_THREAD_MODE);
+        int registryLockStripes = getIntProperty(properties, "tokenha.registry.lock.stripes", DEFAULT_REGISTRY_LOCK_STRIPES);
+        TokenStorage tokenStorage = getEnumProperty(properties, "tokenha.token.storage", TokenStorage.class, DEFAULT_TOKEN_STORAGE);
+        boolean atomicSave = getBooleanProperty(properties, "tokenha.atomic.save", DEFAULT_ATOMIC_SAVE);
+        long groupCommitWindowMillis = getLongProperty(properties, "tokenha.group.commit.window.millis", DEFAULT_GROUP_COMMIT_WINDOW_MILLIS);
+        DurabilityLevel durabilityLevel = getEnumProperty(properties, "tokenha.durability.level", DurabilityLevel.class, DEFAULT_DURABILITY_LEVEL);
+        boolean lazyExpiration = getBooleanProperty(properties, "tokenha.lazy.expiration", DEFAULT_LAZY_EXPIRATION);
+        boolean metricsEnabled = getBooleanProperty(properties, "tokenha.metrics.enabled", DEFAULT_METRICS_ENABLED);
+        boolean jmxEnabled = getBooleanProperty(properties, "tokenha.jmx.enabled", DEFAULT_JMX_ENABLED);
         
         // Load eviction thread configuration from properties
         EvictionThreadConfig evictionConfig = EvictionThreadConfig.fromProperties(properties);
@@ -91,7 +184,21 @@ public class TokenHaConfig {
             .coolTimeToAddMillis(coolTime)
             .persistenceFilePath(filePath)
             .evictionThreadConfig(evictionConfig)
-            .enableAutoEvictIfQueueIsFull(enableAutoEvict);
+            .enableAutoEvictIfQueueIsFull(enableAutoEvict)
+            .writeBehindIntervalMillis(writeBehindInterval)
+            .persistenceMode(persistenceMode)
+            .walCompactionThreshold(walCompactionThreshold)
+            .mappedSlotSize(mappedSlotSize)
+            .mappedForcePolicy(mappedForcePolicy)
+            .threadMode(threadMode)
+            .registryLockStripes(registryLockStripes)
+            .tokenStorage(tokenStorage)
+            .atomicSave(atomicSave)
+            .groupCommitWindowMillis(groupCommitWindowMillis)
+            .durabilityLevel(durabilityLevel)
+            .lazyExpiration(lazyExpiration)
+            .metricsEnabled(metricsEnabled)
+            .jmxEnabled(jmxEnabled);
                                 
         return builder.build();
     }
@@ -109,6 +216,20 @@ public class TokenHaConfig {
         long coolTime = getLongEnv("TOKENHA_COOL_TIME_MILLIS", DEFAULT_COOL_TIME_MILLIS);
         String filePath = getEnv("TOKENHA_PERSISTENCE_FILE_PATH", DEFAULT_PERSISTENCE_FILE_PATH);
         boolean enableAutoEvict = getBooleanEnv("TOKENHA_ENABLE_AUTO_EVICT_IF_QUEUE_IS_FULL", DEFAULT_ENABLE_AUTO_EVICT_IF_QUEUE_IS_FULL);
+        long writeBehindInterval = getLongEnv("TOKENHA_WRITE_BEHIND_INTERVAL_MILLIS", DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS);
+        PersistenceMode persistenceMode = getEnumEnv("TOKENHA_PERSISTENCE_MODE", PersistenceMode.class, DEFAULT_PERSISTENCE_MODE);
+        int walCompactionThreshold = getIntEnv("TOKENHA_WAL_COMPACTION_THRESHOLD", DEFAULT_WAL_COMPACTION_THRESHOLD);
+        int mappedSlotSize = getIntEnv("TOKENHA_MAPPED_SLOT_SIZE", DEFAULT_MAPPED_SLOT_SIZE);
+        ForcePolicy mappedForcePolicy = getEnumEnv("TOKENHA_MAPPED_FORCE_POLICY", ForcePolicy.class, DEFAULT_MAPPED_FORCE_POLICY);
+        ThreadMode threadMode = getEnumEnv("TOKENHA_THREAD_MODE", ThreadMode.class, DEFAULT_THREAD_MODE);
+        int registryLockStripes = getIntEnv("TOKENHA_REGISTRY_LOCK_STRIPES", DEFAULT_REGISTRY_LOCK_STRIPES);
+        TokenStorage tokenStorage = getEnumEnv("TOKENHA_TOKEN_STORAGE", TokenStorage.class, DEFAULT_TOKEN_STORAGE);
+        boolean atomicSave = getBooleanEnv("TOKENHA_ATOMIC_SAVE", DEFAULT_ATOMIC_SAVE);
+        long groupCommitWindowMillis = getLongEnv("TOKENHA_GROUP_COMMIT_WINDOW_MILLIS", DEFAULT_GROUP_COMMIT_WINDOW_MILLIS);
+        DurabilityLevel durabilityLevel = getEnumEnv("TOKENHA_DURABILITY_LEVEL", DurabilityLevel.class, DEFAULT_DURABILITY_LEVEL);
+        boolean lazyExpiration = getBooleanEnv("TOKENHA_LAZY_EXPIRATION", DEFAULT_LAZY_EXPIRATION);
+        boolean metricsEnabled = getBooleanEnv("TOKENHA_METRICS_ENABLED", DEFAULT_METRICS_ENABLED);
+        boolean jmxEnabled = getBooleanEnv("TOKENHA_JMX_ENABLED", DEFAULT_JMX_ENABLED);
         
         // Load eviction thread configuration from environment
         EvictionThreadConfig evictionConfig = EvictionThreadConfig.fromEnvironment();
@@ -120,7 +241,21 @@ public class TokenHaConfig {
             .coolTimeToAddMillis(coolTime)
             .persistenceFilePath(filePath)
             .evictionThreadConfig(evictionConfig)
-            .enableAutoEvictIfQueueIsFull(enableAutoEvict);
+            .enableAutoEvictIfQueueIsFull(enableAutoEvict)
+            .writeBehindIntervalMillis(writeBehindInterval)
+            .persistenceMode(persistenceMode)
+            .walCompactionThreshold(walCompactionThreshold)
+            .mappedSlotSize(mappedSlotSize)
+            .mappedForcePolicy(mappedForcePolicy)
+            .threadMode(threadMode)
+            .registryLockStripes(registryLockStripes)
+            .tokenStorage(tokenStorage)
+            .atomicSave(atomicSave)
+            .groupCommitWindowMillis(groupCommitWindowMillis)
+            .durabilityLevel(durabilityLevel)
+            .lazyExpiration(lazyExpiration)
+            .metricsEnabled(metricsEnabled)
+            .jmxEnabled(jmxEnabled);
         
         return builder.build();
     }
@@ -136,6 +271,21 @@ public class TokenHaConfig {
         private String persistenceFilePath = DEFAULT_PERSISTENCE_FILE_PATH;
         private EvictionThreadConfig evictionThreadConfig = EvictionThreadConfig.defaultConfig();
         private boolean enableAutoEvictIfQueueIsFull = DEFAULT_ENABLE_AUTO_EVICT_IF_QUEUE_IS_FULL;
+        private long writeBehindIntervalMillis = DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS;
+        private PersistenceMode persistenceMode = DEFAULT_PERSISTENCE_MODE;
+        private int walCompactionThreshold = DEFAULT_WAL_COMPACTION_THRESHOLD;
+        private int mappedSlotSize = DEFAULT_MAPPED_SLOT_SIZE;
+        private ForcePolicy mappedForcePolicy = DEFAULT_MAPPED_FORCE_POLICY;
+        private ThreadMode threadMode = DEFAULT_THREAD_MODE;
+        private int registryLockStripes = DEFAULT_REGISTRY_LOCK_STRIPES;
+        private TokenStorage tokenStorage = DEFAULT_TOKEN_STORAGE;
+        private boolean atomicSave = DEFAULT_ATOMIC_SAVE;
+        private long groupCommitWindowMillis = DEFAULT_GROUP_COMMIT_WINDOW_MILLIS;
+        private DurabilityLevel durabilityLevel = DEFAULT_DURABILITY_LEVEL;
+        private boolean lazyExpiration = DEFAULT_LAZY_EXPIRATION;
+        private boolean metricsEnabled = DEFAULT_METRICS_ENABLED;
+        private boolean jmxEnabled = DEFAULT_JMX_ENABLED;
+        private TokenStoreFactory tokenStoreFactory = TokenStoreFactory.DEFAULT;
         
         public Builder expirationTimeMillis(long expirationTimeMillis) {
             if (expirationTimeMillis <= 0) {
@@ -190,6 +340,177 @@ public class TokenHaConfig {
             return this;
         }
         
+        /**
+         * Enable write-behind persistence. Mutations only mark the state dirty and a background
+         * flusher saves it at most once per interval, so the interval is also the maximum time
+         * a change can stay unsaved. Zero (the default) saves synchronously on every mutation.
+         */
+        public Builder writeBehindIntervalMillis(long writeBehindIntervalMillis) {
+            if (writeBehindIntervalMillis < 0) {
+                throw new IllegalArgumentException("Write-behind interval cannot be negative");
+            }
+            this.writeBehindIntervalMillis = writeBehindIntervalMillis;
+            return this;
+        }
+        
+        public Builder persistenceMode(PersistenceMode persistenceMode) {
+            if (persistenceMode == null) {
+                throw new IllegalArgumentException("Persistence mode cannot be null");
+            }
+            this.persistenceMode = persistenceMode;
+            return this;
+        }
+        
+        /**
+         * Number of records appended to the write-ahead log before it is compacted into a snapshot.
+         * Only used with {@link PersistenceMode#WRITE_AHEAD_LOG}.
+         */
+        public Builder walCompactionThreshold(int walCompactionThreshold) {
+            if (walCompactionThreshold <= 0) {
+                throw new IllegalArgumentException("WAL compaction threshold must be positive and non-zero");
+            }
+            this.walCompactionThreshold = walCompactionThreshold;
+            return this;
+        }
+        
+        /**
+         * Bytes per slot of the memory-mapped ring, including a 16 byte slot header.
+         * Tokens whose UTF-8 encoding exceeds the remaining bytes are rejected.
+         * Only used with {@link PersistenceMode#MAPPED_RING}.
+         */
+        public Builder mappedSlotSize(int mappedSlotSize) {
+            if (mappedSlotSize <= MappedRingPersistence.SLOT_HEADER_BYTES) {
+                throw new IllegalArgumentException("Mapped slot size must be greater than "
+                    + MappedRingPersistence.SLOT_HEADER_BYTES + " bytes");
+            }
+            this.mappedSlotSize = mappedSlotSize;
+            return this;
+        }
+        
+        /**
+         * When the memory-mapped ring forces dirty pages to the device.
+         * Only used with {@link PersistenceMode#MAPPED_RING}.
+         */
+        public Builder mappedForcePolicy(ForcePolicy mappedForcePolicy) {
+            if (mappedForcePolicy == null) {
+                throw new IllegalArgumentException("Mapped force policy cannot be null");
+            }
+            this.mappedForcePolicy = mappedForcePolicy;
+            return this;
+        }
+        
+        /**
+         * Kind of threads running background saves of write-behind persistence.
+         * {@link ThreadMode#VIRTUAL} falls back to platform threads before Java 21.
+         */
+        public Builder threadMode(ThreadMode threadMode) {
+            if (threadMode == null) {
+                throw new IllegalArgumentException("Thread mode cannot be null");
+            }
+            this.threadMode = threadMode;
+            return this;
+        }
+        
+        /**
+         * Number of locks a {@code TokenHaRegistry} spreads its keys over.
+         * Mutations of keys on different stripes run in parallel.
+         */
+        public Builder registryLockStripes(int registryLockStripes) {
+            if (registryLockStripes <= 0) {
+                throw new IllegalArgumentException("Registry lock stripes must be positive and non-zero");
+            }
+            this.registryLockStripes = registryLockStripes;
+            return this;
+        }
+        
+        /**
+         * How tokens are held in memory. {@link TokenStorage#PACKED} stores timestamps and
+         * UTF-8 bytes in primitive arrays instead of one {@code TokenElement} per token;
+         * {@link TokenStorage#OFF_HEAP} stores them in direct buffers outside the heap.
+         */
+        public Builder tokenStorage(TokenStorage tokenStorage) {
+            if (tokenStorage == null) {
+                throw new IllegalArgumentException("Token storage cannot be null");
+            }
+            this.tokenStorage = tokenStorage;
+            return this;
+        }
+        
+        /**
+         * Save JSON and binary files by writing a temporary file, syncing it and renaming it
+         * over the target, so a crash during a save leaves the previous file intact.
+         * The exclusive lock is then held on a sidecar {@code <file>.lock} file.
+         */
+        public Builder atomicSave(boolean atomicSave) {
+            this.atomicSave = atomicSave;
+            return this;
+        }
+        
+        /**
+         * Window for sharing file syncs between instances. When positive, JSON and binary file saves
+         * hand their sync to a JVM-wide group commit that waits up to this long for other saves
+         * and syncs them together; each save still returns only once it is durable.
+         * 0 (default) syncs every save on its own.
+         */
+        public Builder groupCommitWindowMillis(long groupCommitWindowMillis) {
+            if (groupCommitWindowMillis < 0) {
+                throw new IllegalArgumentException("Group commit window cannot be negative");
+            }
+            this.groupCommitWindowMillis = groupCommitWindowMillis;
+            return this;
+        }
+        
+        /**
+         * How far JSON and binary file saves are synced before they return.
+         * Lower levels trade the last saves on an OS crash for much lower add latency.
+         */
+        public Builder durabilityLevel(DurabilityLevel durabilityLevel) {
+            if (durabilityLevel == null) {
+                throw new IllegalArgumentException("Durability level cannot be null");
+            }
+            this.durabilityLevel = durabilityLevel;
+            return this;
+        }
+        
+        /**
+         * Hide expired tokens from reads as soon as they expire instead of when the eviction
+         * thread removes them, keeping the last {@code numberOfLastTokens}. Adds also drop them.
+         */
+        public Builder lazyExpiration(boolean lazyExpiration) {
+            this.lazyExpiration = lazyExpiration;
+            return this;
+        }
+        
+        /**
+         * Record latency histograms of adds, saves and loads, available from
+         * {@code TokenHa.getMetrics()}. Off by default.
+         */
+        public Builder metricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+            return this;
+        }
+        
+        /**
+         * Register a {@code TokenHaMXBean} for each instance with the platform MBean server
+         * until it is closed. Implies the latency histograms of {@link #metricsEnabled(boolean)}.
+         */
+        public Builder jmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+            return this;
+        }
+        
+        /**
+         * Factory for the token store of each instance. The default factory picks the
+         * built-in store for the persistence mode; a custom factory overrides the mode.
+         */
+        public Builder tokenStoreFactory(TokenStoreFactory tokenStoreFactory) {
+            if (tokenStoreFactory == null) {
+                throw new IllegalArgumentException("Token store factory cannot be null");
+            }
+            this.tokenStoreFactory = tokenStoreFactory;
+            return this;
+        }
+        
         public TokenHaConfig build() {
             // Validation
             if (numberOfLastTokens >= maxTokens) {
@@ -224,6 +545,18 @@ public class TokenHaConfig {
         return defaultValue;
     }
     
+    /**
+     * Parse an enum property case-insensitively, accepting '-' in place of '_'.
+     * @throws IllegalArgumentException if the value names no constant of the type
+     */
+    static <E extends Enum<E>> E getEnumProperty(Properties props, String key, Class<E> type, E defaultValue) {
+        String value = props.getProperty(key);
+        if (value != null) {
+            return parseEnum(type, value);
+        }
+        return defaultValue;
+    }
+    
     public static int getIntEnv(String key, int defaultValue) {
         String value = System.getenv(key);
         if (value != null) {
@@ -252,6 +585,25 @@ public class TokenHaConfig {
         return defaultValue;
     }
     
+    /**
+     * Parse an enum environment variable case-insensitively, accepting '-' in place of '_'.
+     * @throws IllegalArgumentException if the value names no constant of the type
+     */
+    static <E extends Enum<E>> E getEnumEnv(String key, Class<E> type, E defaultValue) {
+        String value = System.getenv(key);
+        if (value != null) {
+            return parseEnum(type, value);
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Match an enum name case-insensitively, accepting '-' in place of '_'. Every enum option is parsed here.
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        return Enum.valueOf(type, value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+    
     @Override
     public String toString() {
         return "TokenHaConfig{" +
@@ -261,6 +613,20 @@ public class TokenHaConfig {
                 ", coolTimeToAddMillis=" + coolTimeToAddMillis +
                 ", persistenceFilePath='" + persistenceFilePath + '\'' +
                 ", evictionThreadConfig=" + evictionThreadConfig +
+                ", writeBehindIntervalMillis=" + writeBehindIntervalMillis +
+                ", persistenceMode=" + persistenceMode +
+                ", walCompactionThreshold=" + walCompactionThreshold +
+                ", mappedSlotSize=" + mappedSlotSize +
+                ", mappedForcePolicy=" + mappedForcePolicy +
+                ", threadMode=" + threadMode +
+                ", registryLockStripes=" + registryLockStripes +
+                ", tokenStorage=" + tokenStorage +
+                ", atomicSave=" + atomicSave +
+                ", groupCommitWindowMillis=" + groupCommitWindowMillis +
+                ", durabilityLevel=" + durabilityLevel +
+                ", lazyExpiration=" + lazyExpiration +
+                ", metricsEnabled=" + metricsEnabled +
+                ", jmxEnabled=" + jmxEnabled +
                 '}';
     }
 }
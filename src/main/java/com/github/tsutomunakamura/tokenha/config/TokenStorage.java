@@ -0,0 +1,29 @@
+package com.github.tsutomunakamura.tokenha.config;
+
+/**
+ * How a TokenHa holds its tokens in memory.
+ */
+public enum TokenStorage {
+
+    /**
+     * One {@code TokenElement} per token (default). Reads return the stored objects.
+     */
+    OBJECTS,
+
+    /**
+     * Timestamps in a {@code long[]} and UTF-8 token bytes in a shared byte arena.
+     * Avoids two objects per token; {@code TokenElement}s are created on each read.
+     * Unpaired surrogates in tokens are not preserved by the UTF-8 encoding.
+     */
+    PACKED,
+
+    /**
+     * The {@link #PACKED} layout in a fixed-size ring of direct buffers outside the Java heap.
+     * The ring of a queue is sized from {@code maxTokens} and wrapped in place, so heap size,
+     * GC work and native allocations stay flat as tokens pass through. Bounded by
+     * {@code -XX:MaxDirectMemorySize} instead of the heap. A token list read from the queue
+     * stays valid for about {@code maxTokens} later additions; reading it after that throws
+     * {@link java.util.ConcurrentModificationException}.
+     */
+    OFF_HEAP;
+}
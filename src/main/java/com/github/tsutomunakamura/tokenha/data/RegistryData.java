@@ -0,0 +1,29 @@
+package com.github.tsutomunakamura.tokenha.data;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Data class for JSON serialization/deserialization of a TokenHaRegistry.
+ * Maps each key to its tokens, oldest first.
+ */
+public class RegistryData {
+    private Map<String, List<TokenElement>> queues;
+    
+    // Default constructor
+    public RegistryData() {}
+    
+    public RegistryData(Map<String, List<TokenElement>> queues) {
+        this.queues = queues;
+    }
+    
+    public Map<String, List<TokenElement>> getQueues() {
+        return queues;
+    }
+    
+    public void setQueues(Map<String, List<TokenElement>> queues) {
+        this.queues = queues;
+    }
+}
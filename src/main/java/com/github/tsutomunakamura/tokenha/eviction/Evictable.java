@@ -0,0 +1,40 @@
+package com.github.tsutomunakamura.tokenha.eviction;
+
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Token container that {@link EvictionThread} can schedule and evict.
+ * Implemented by {@link com.github.tsutomunakamura.tokenha.TokenHa} and
+ * {@link com.github.tsutomunakamura.tokenha.registry.TokenHaRegistry}.
+ */
+public interface Evictable {
+
+    /**
+     * Get the time at which {@link #evictExpiredTokens()} will next remove a token.
+     * @return the deadline in epoch milliseconds, or {@code Long.MAX_VALUE} if no token can expire
+     */
+    long nextEvictionDeadlineMillis();
+
+    /**
+     * Check if this container calls {@link EvictionThread#deadlineChanged(Evictable, long)} whenever
+     * its deadline moves earlier. Such containers are not polled every {@code intervalMillis}.
+     * @return true if deadline changes are published, false to be polled (default)
+     */
+    default boolean publishesEvictionDeadlines() {
+        return false;
+    }
+
+    /**
+     * Remove the expired tokens.
+     * @return the evicted tokens, or null if none expired
+     */
+    List<TokenElement> evictExpiredTokens();
+
+    /**
+     * Get the number of tokens held.
+     * @return the number of tokens
+     */
+    int getQueueSize();
+}
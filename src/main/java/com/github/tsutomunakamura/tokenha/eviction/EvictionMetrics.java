@@ -0,0 +1,72 @@
+package com.github.tsutomunakamura.tokenha.eviction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.tsutomunakamura.tokenha.metrics.Histogram;
+
+/**
+ * Cumulative statistics of the sweeps of {@link EvictionThread}, for tuning {@code intervalMillis}
+ * and {@code parallelism}. Scheduled sweeps and {@link EvictionThread#evictTokensFromEachTokenHa()}
+ * are both counted. All values are live and safe to read from any thread.
+ */
+public final class EvictionMetrics {
+
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder instancesScanned = new LongAdder();
+    private final LongAdder instancesEvicted = new LongAdder();
+    private final LongAdder instancesSkipped = new LongAdder();
+    private final LongAdder tokensEvicted = new LongAdder();
+    private final Histogram sweepDurationNanos = new Histogram();
+    private final Histogram tokensEvictedPerSweep = new Histogram();
+    private final Histogram evictionLagMillis = new Histogram();
+
+    EvictionMetrics() {
+    }
+
+    void recordSweep(EvictionSweep sweep) {
+        sweeps.increment();
+        instancesScanned.add(sweep.getInstancesDue());
+        instancesEvicted.add(sweep.getInstancesEvicted());
+        instancesSkipped.add(sweep.getInstancesSkipped());
+        tokensEvicted.add(sweep.getTokensEvicted());
+        sweepDurationNanos.record(sweep.getDurationNanos());
+        tokensEvictedPerSweep.record(sweep.getTokensEvicted());
+    }
+
+    void recordLag(long lagMillis) {
+        evictionLagMillis.record(lagMillis);
+    }
+
+    /** Number of sweeps run. */
+    public long getSweepCount() { return sweeps.sum(); }
+    /** Number of instances checked for expired tokens, summed over all sweeps. */
+    public long getInstancesScanned() { return instancesScanned.sum(); }
+    /** Number of checked instances that had expired tokens, summed over all sweeps. */
+    public long getInstancesEvicted() { return instancesEvicted.sum(); }
+    /** Number of registered instances a sweep did not touch because they were not due, summed over all sweeps. */
+    public long getInstancesSkipped() { return instancesSkipped.sum(); }
+    /** Number of tokens evicted by all sweeps. */
+    public long getTokensEvicted() { return tokensEvicted.sum(); }
+    /** Time spent per sweep checking and evicting instances, in nanoseconds. */
+    public Histogram getSweepDurationNanos() { return sweepDurationNanos; }
+    /** Number of tokens evicted per sweep. */
+    public Histogram getTokensEvictedPerSweep() { return tokensEvictedPerSweep; }
+    /**
+     * Time between the expiry of the oldest expired token of an instance and its eviction,
+     * in milliseconds, recorded once per evicted instance and sweep.
+     */
+    public Histogram getEvictionLagMillis() { return evictionLagMillis; }
+
+    @Override
+    public String toString() {
+        return "EvictionMetrics{" +
+                "sweeps=" + getSweepCount() +
+                ", instancesScanned=" + getInstancesScanned() +
+                ", instancesEvicted=" + getInstancesEvicted() +
+                ", instancesSkipped=" + getInstancesSkipped() +
+                ", tokensEvicted=" + getTokensEvicted() +
+                ", sweepDurationNanos=" + sweepDurationNanos +
+                ", evictionLagMillis=" + evictionLagMillis +
+                '}';
+    }
+}
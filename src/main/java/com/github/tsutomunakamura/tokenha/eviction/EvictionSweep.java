@@ -0,0 +1,54 @@
+package com.github.tsutomunakamura.tokenha.eviction;
+
+/**
+ * Timing and counts of one eviction sweep of {@link EvictionThread}.
+ */
+public final class EvictionSweep {
+
+    private final long startedAtMillis;
+    private final long durationNanos;
+    private final int instancesDue;
+    private final int instancesEvicted;
+    private final int instancesSkipped;
+    private final int tokensEvicted;
+    private final int parallelism;
+
+    EvictionSweep(long startedAtMillis, long durationNanos, int instancesDue, int instancesEvicted,
+            int instancesSkipped, int tokensEvicted, int parallelism) {
+        this.startedAtMillis = startedAtMillis;
+        this.durationNanos = durationNanos;
+        this.instancesDue = instancesDue;
+        this.instancesEvicted = instancesEvicted;
+        this.instancesSkipped = instancesSkipped;
+        this.tokensEvicted = tokensEvicted;
+        this.parallelism = parallelism;
+    }
+
+    /** Wall clock time the sweep started at. */
+    public long getStartedAtMillis() { return startedAtMillis; }
+    /** Time spent checking and evicting the due instances. */
+    public long getDurationNanos() { return durationNanos; }
+    /** Number of instances whose scheduled deadline had passed. */
+    public int getInstancesDue() { return instancesDue; }
+    /** Number of due instances that had expired tokens and were evicted. */
+    public int getInstancesEvicted() { return instancesEvicted; }
+    /** Number of registered instances that were not due and were not touched. */
+    public int getInstancesSkipped() { return instancesSkipped; }
+    /** Total number of tokens evicted by the sweep. */
+    public int getTokensEvicted() { return tokensEvicted; }
+    /** Configured number of eviction workers. */
+    public int getParallelism() { return parallelism; }
+
+    @Override
+    public String toString() {
+        return "EvictionSweep{" +
+                "startedAtMillis=" + startedAtMillis +
+                ", durationNanos=" + durationNanos +
+                ", instancesDue=" + instancesDue +
+                ", instancesEvicted=" + instancesEvicted +
+                ", instancesSkipped=" + instancesSkipped +
+                ", tokensEvicted=" + tokensEvicted +
+                ", parallelism=" + parallelism +
+                '}';
+    }
+}
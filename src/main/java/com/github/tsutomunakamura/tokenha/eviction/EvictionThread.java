@@ -1,24 +1,49 @@
 package com.github.tsutomunakamura.tokenha.eviction;
 
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.lang.ref.WeakReference;
+import javax.management.ObjectName;
 import org.slf4j.Logger;
 
-import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.concurrent.ThreadFactories;
 import com.github.tsutomunakamura.tokenha.config.EvictionThreadConfig;
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
 import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.jmx.TokenHaJmx;
 import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
 
 /**
- * A singleton thread class for handling token eviction tasks across all TokenHa instances.
- * Currently outputs simple messages for testing purposes.
+ * A singleton thread class for handling token eviction tasks across all TokenHa instances
+ * and registries ({@link Evictable}).
+ *
+ * Instances are kept in a priority queue ordered by the time their oldest evictable token
+ * expires ({@link Evictable#nextEvictionDeadlineMillis()}). The thread sleeps until the earliest
+ * deadline and only evicts instances that are due, so tokens are removed close to their exact
+ * expiry and the cost of a wakeup is proportional to the instances with expired tokens.
+ *
+ * Instances that publish their deadlines ({@link Evictable#publishesEvictionDeadlines()}) report
+ * through {@link #deadlineChanged(Evictable, long)} when their deadline moves earlier, so they are
+ * scheduled exactly at their deadline and not at all while none of their tokens can expire.
+ * For other instances a deadline is never further away than {@code intervalMillis}, which bounds
+ * how long it takes to notice tokens added to an idle instance or loaded from a file.
  */
 public class EvictionThread {
     
@@ -32,7 +57,22 @@ public class EvictionThread {
     private final EvictionThreadConfig config;
     
     // Registry of all TokenHa instances using WeakReferences for automatic cleanup
-    private final Set<WeakReference<TokenHa>> registeredInstances = ConcurrentHashMap.newKeySet();
+    private final Set<WeakReference<Evictable>> registeredInstances = ConcurrentHashMap.newKeySet();
+    // Latest registration of each instance for deadline notifications, guarded by this
+    private final Map<Evictable, Registration> registrations = new WeakHashMap<>();
+
+    // Deadline-ordered eviction schedule, guarded by this. Entries of unregistered or
+    // rescheduled registrations are dropped lazily when they reach the head.
+    private final PriorityQueue<ScheduledEviction> schedule = new PriorityQueue<>();
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAtMillis;
+    private long firstSweepAtMillis;
+    // Evicts due instances concurrently when parallelism > 1, null otherwise
+    private ExecutorService workers;
+    private volatile EvictionSweep lastSweep;
+    private final EvictionMetrics metrics = new EvictionMetrics();
+    // Registered while the thread runs if JMX is enabled, guarded by this
+    private ObjectName mbeanName;
     
     // Private constructor for singleton with custom configuration
     private EvictionThread(EvictionThreadConfig config) {
@@ -76,9 +116,13 @@ public class EvictionThread {
         return config;
     }
     
-    public void register(TokenHa tokenHa) {
+    public void register(Evictable tokenHa) {
         synchronized(this) {
-            registeredInstances.add(new WeakReference<>(tokenHa));
+            Registration registration = new Registration(tokenHa);
+            registeredInstances.add(registration);
+            if (tokenHa != null) {
+                registrations.put(tokenHa, registration);
+            }
             cleanupDeadReferences();
             logger.debug("TokenHa instance registered. Total instances: {}", getActiveInstanceCount());
             
@@ -86,12 +130,19 @@ public class EvictionThread {
             if (getActiveInstanceCount() >= 1 && (executorService == null || executorService.isShutdown())) {
                 start();
             }
+
+            // New instances are checked by the next sweep
+            scheduleAt(registration, 0);
+            scheduleWakeup();
         }
     }
     
-    public void unregister(TokenHa tokenHa) {
+    public void unregister(Evictable tokenHa) {
         synchronized(this) {
             registeredInstances.removeIf(ref -> ref.get() == tokenHa || ref.get() == null);
+            if (tokenHa != null) {
+                registrations.remove(tokenHa);
+            }
             logger.debug("TokenHa instance unregistered. Total instances: {}", getActiveInstanceCount());
             
             // Stop the thread if no more instances
@@ -108,6 +159,14 @@ public class EvictionThread {
         registeredInstances.removeIf(ref -> ref.get() == null);
     }
     
+    /**
+     * Get the number of registered instances and registries that are still alive.
+     * @return the number of registrations
+     */
+    public int getInstanceCount() {
+        return getActiveInstanceCount();
+    }
+    
     private int getActiveInstanceCount() {
         // This method may be called from synchronized and unsynchronized contexts
         // Use stream operations on the concurrent collection for thread safety
@@ -118,13 +177,21 @@ public class EvictionThread {
     
     private synchronized void start() {
         if (executorService == null || executorService.isShutdown()) {
-            executorService = Executors.newSingleThreadScheduledExecutor();
-            executorService.scheduleAtFixedRate(
-                this::evictTokens,
-                config.getInitialDelayMillis(),
-                config.getIntervalMillis(),
-                TimeUnit.MILLISECONDS
-            );
+            ScheduledThreadPoolExecutor executor = config.getThreadMode() == ThreadMode.VIRTUAL
+                ? new ScheduledThreadPoolExecutor(1, ThreadFactories.newThreadFactory("tokenha-eviction-", ThreadMode.VIRTUAL))
+                : new ScheduledThreadPoolExecutor(1);
+            // Pending wakeups must not run once the thread is stopped
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            executor.setRemoveOnCancelPolicy(true);
+            executorService = executor;
+            wakeup = null;
+            firstSweepAtMillis = System.currentTimeMillis() + config.getInitialDelayMillis();
+            if (config.getParallelism() > 1 && (workers == null || workers.isShutdown())) {
+                workers = ThreadFactories.newWorkerPool("tokenha-eviction-worker-", config.getParallelism(), config.getThreadMode());
+            }
+            if (config.isJmxEnabled() && mbeanName == null) {
+                mbeanName = TokenHaJmx.register(this);
+            }
             logger.info("Singleton eviction thread started at {}", getCurrentTimeString());
         }
     }
@@ -141,13 +208,102 @@ public class EvictionThread {
             executorService.shutdown();
             logger.info("Singleton eviction thread stopped at {}", getCurrentTimeString());
         }
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+        schedule.clear();
+        wakeup = null;
+        TokenHaJmx.unregister(mbeanName);
+        mbeanName = null;
+    }
+
+    /**
+     * Report that the eviction deadline of a registered instance has moved.
+     * Called by instances that publish their deadlines whenever their deadline moves earlier;
+     * later deadlines need no notification because the scheduled check reads the deadline again.
+     * @param tokenHa the registered instance
+     * @param deadlineMillis its new deadline in epoch milliseconds, or {@code Long.MAX_VALUE} if none
+     */
+    public void deadlineChanged(Evictable tokenHa, long deadlineMillis) {
+        synchronized(this) {
+            Registration registration = registrations.get(tokenHa);
+            if (registration == null || !registeredInstances.contains(registration)) {
+                return;
+            }
+            if (registration.scheduledAtMillis == Long.MIN_VALUE) {
+                // Taken by a running sweep, which applies the deadline when it reschedules
+                registration.pushedDeadlineMillis = Math.min(registration.pushedDeadlineMillis, deadlineMillis);
+                return;
+            }
+            if (deadlineMillis < registration.scheduledAtMillis) {
+                scheduleAt(registration, deadlineMillis);
+                scheduleWakeup();
+            }
+        }
+    }
+
+    /**
+     * Queue the next eviction check of a registration. Must be called while holding this.
+     * A registration scheduled at {@code Long.MAX_VALUE} stays idle until its deadline is pushed.
+     */
+    private void scheduleAt(Registration registration, long atMillis) {
+        registration.scheduledAtMillis = atMillis;
+        if (atMillis != Long.MAX_VALUE) {
+            schedule.add(new ScheduledEviction(registration, atMillis));
+        }
+    }
+
+    /**
+     * Make sure the thread wakes up for the earliest scheduled check, but not before
+     * the initial delay has passed. Must be called while holding this.
+     */
+    private void scheduleWakeup() {
+        if (executorService == null || executorService.isShutdown()) {
+            return;
+        }
+        ScheduledEviction next = schedule.peek();
+        if (next == null) {
+            return;
+        }
+        long atMillis = Math.max(next.atMillis, firstSweepAtMillis);
+        if (wakeup != null && !wakeup.isDone() && wakeupAtMillis <= atMillis) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        wakeupAtMillis = atMillis;
+        wakeup = executorService.schedule(this::runScheduledSweep,
+            Math.max(0, atMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduledSweep() {
+        synchronized(this) {
+            wakeup = null;
+        }
+        try {
+            evictTokens();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the failing instance is retried after intervalMillis
+            logger.error("Eviction sweep failed: {}", e.getMessage());
+        }
     }
     
     private String getCurrentTimeString() {
         return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
     }
 
+    /**
+     * Evict the instances whose scheduled deadline has passed and reschedule them.
+     * Exceptions thrown by an instance are rethrown after all due instances were processed.
+     */
     private void evictTokens() {
+        long now = System.currentTimeMillis();
+        List<Registration> due = new ArrayList<>();
+        ExecutorService pool;
+        int registered;
+
         // Clean up dead references first (needs synchronization)
         synchronized(this) {
             cleanupDeadReferences();
@@ -157,29 +313,187 @@ public class EvictionThread {
                 stop();
                 return;
             }
+
+            while (!schedule.isEmpty() && schedule.peek().atMillis <= now) {
+                ScheduledEviction entry = schedule.poll();
+                Registration registration = entry.registration;
+                if (registration.scheduledAtMillis == entry.atMillis && registeredInstances.contains(registration)) {
+                    // Mark as taken so that a duplicate entry is not processed twice
+                    registration.scheduledAtMillis = Long.MIN_VALUE;
+                    due.add(registration);
+                }
+            }
+            pool = workers;
+            registered = registeredInstances.size();
+        }
+
+        long startNanos = System.nanoTime();
+        List<DueEviction> results = new ArrayList<>(due.size());
+        try {
+            if (pool == null || due.size() < 2) {
+                for (Registration registration : due) {
+                    results.add(evictDue(registration, now));
+                }
+            } else {
+                results.addAll(evictDueInParallel(pool, due, now));
+            }
+        } finally {
+            synchronized(this) {
+                for (DueEviction result : results) {
+                    if (registeredInstances.contains(result.registration)) {
+                        scheduleAt(result.registration,
+                            Math.min(result.nextDeadlineMillis, result.registration.pushedDeadlineMillis));
+                    }
+                }
+                // Instances that were not reached (e.g. after an interrupt) are polled again
+                for (Registration registration : due) {
+                    if (registration.scheduledAtMillis == Long.MIN_VALUE && registeredInstances.contains(registration)) {
+                        scheduleAt(registration, now + config.getIntervalMillis());
+                    }
+                    registration.pushedDeadlineMillis = Long.MAX_VALUE;
+                }
+                scheduleWakeup();
+            }
         }
 
-        evictTokensFromEachTokenHa();
+        RuntimeException failure = null;
+        int visited = 0;
+        int totalEvicted = 0;
+        for (DueEviction result : results) {
+            if (result.visited) {
+                visited++;
+            }
+            totalEvicted += result.evicted;
+            if (failure == null && result.failure != null) {
+                failure = result.failure;
+            }
+        }
+        lastSweep = new EvictionSweep(now, System.nanoTime() - startNanos, due.size(), visited,
+            Math.max(0, registered - due.size()), totalEvicted, config.getParallelism());
+        metrics.recordSweep(lastSweep);
+
+        logger.debug("Eviction task running at {} - {} due of {} TokenHa instances, evicted {} tokens from {} in {} us",
+            getCurrentTimeString(), due.size(), registeredInstances.size(), totalEvicted, visited,
+            lastSweep.getDurationNanos() / 1000);
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Check one due instance, evict its expired tokens and compute its next deadline.
+     * Exceptions are captured in the result so that other instances are still processed.
+     */
+    private DueEviction evictDue(Registration registration, long now) {
+        DueEviction result = new DueEviction(registration, now + config.getIntervalMillis());
+        Evictable tokenHa = registration.get();
+        if (tokenHa == null) {
+            return result;
+        }
+        try {
+            // Deadlines of publishing instances are not capped; they report earlier ones themselves
+            boolean capped = !tokenHa.publishesEvictionDeadlines();
+            long expiry = tokenHa.nextEvictionDeadlineMillis();
+            // Non-positive deadlines are unknown; such instances are polled
+            if (expiry <= now) {
+                result.visited = true;
+                EvictedCounter counter = evictTokensFromTokenHa(tokenHa);
+                result.evicted = counter.getSizeEvicted();
+                if (result.evicted > 0 && expiry > 0) {
+                    metrics.recordLag(System.currentTimeMillis() - expiry);
+                }
+                logger.debug("  TokenHa instance: {} -> {} (evicted {} expired tokens)",
+                    counter.getSizeBefore(), counter.getSizeAfter(), counter.getSizeEvicted());
+                expiry = tokenHa.nextEvictionDeadlineMillis();
+            }
+            if (expiry > now) {
+                result.nextDeadlineMillis = capped ? Math.min(result.nextDeadlineMillis, expiry) : expiry;
+            }
+        } catch (RuntimeException e) {
+            result.failure = e;
+        }
+        return result;
+    }
+
+    private List<DueEviction> evictDueInParallel(ExecutorService pool, List<Registration> due, long now) {
+        // At most parallelism tasks take instances from a shared cursor, which bounds the
+        // concurrency also when the pool starts a virtual thread per task
+        AtomicInteger cursor = new AtomicInteger();
+        int taskCount = Math.min(config.getParallelism(), due.size());
+        List<Callable<List<DueEviction>>> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(() -> {
+                List<DueEviction> taken = new ArrayList<>();
+                for (int next = cursor.getAndIncrement(); next < due.size(); next = cursor.getAndIncrement()) {
+                    taken.add(evictDue(due.get(next), now));
+                }
+                return taken;
+            });
+        }
+        List<DueEviction> results = new ArrayList<>(due.size());
+        try {
+            for (Future<List<DueEviction>> future : pool.invokeAll(tasks)) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Eviction sweep interrupted after {} of {} instances", results.size(), due.size());
+        } catch (ExecutionException e) {
+            // evictDue captures runtime exceptions, so only errors end up here
+            throw new IllegalStateException("Eviction worker failed", e.getCause());
+        } catch (RejectedExecutionException e) {
+            // Workers were shut down by stop(); remaining instances are rescheduled
+            logger.debug("Eviction workers stopped during sweep");
+        }
+        return results;
+    }
+
+    /**
+     * Get timing and counts of the most recent scheduled sweep.
+     * @return the last sweep, or null if no sweep has run yet
+     */
+    public EvictionSweep getLastSweep() {
+        return lastSweep;
     }
 
+    /**
+     * Get the cumulative statistics of all sweeps.
+     * @return the live metrics of this thread
+     */
+    public EvictionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Evict expired tokens from every registered instance right away, regardless of the schedule.
+     */
     public void evictTokensFromEachTokenHa() {
         // Create a snapshot of current instances to avoid concurrent modification
-        Set<WeakReference<TokenHa>> currentInstances;
+        Set<WeakReference<Evictable>> currentInstances;
         synchronized(this) {
             currentInstances = Set.copyOf(registeredInstances);
         }
         
         logger.debug("Eviction task running at {} - Managing {} TokenHa instances", getCurrentTimeString(), getActiveInstanceCount());
         
+        long startedAtMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         int totalTokensBefore = 0;
         int totalTokensAfter = 0;
         int totalEvicted = 0;
+        int scanned = 0;
+        int evictedInstances = 0;
 
-        for (WeakReference<TokenHa> ref : currentInstances) {
-            TokenHa tokenHa = ref.get();
+        for (WeakReference<Evictable> ref : currentInstances) {
+            Evictable tokenHa = ref.get();
             if (tokenHa != null) {
                 EvictedCounter counter = evictTokensFromTokenHa(tokenHa);
 
+                scanned++;
+                if (counter.getSizeEvicted() > 0) {
+                    evictedInstances++;
+                }
                 totalTokensBefore += counter.getSizeBefore();
                 totalTokensAfter += counter.getSizeAfter();
                 totalEvicted += counter.getSizeEvicted();
@@ -189,10 +503,13 @@ public class EvictionThread {
             }
         }
 
+        metrics.recordSweep(new EvictionSweep(startedAtMillis, System.nanoTime() - startNanos, scanned, evictedInstances,
+            0, totalEvicted, config.getParallelism()));
+
         logger.debug("  Total: {} -> {} tokens (evicted {} expired)", totalTokensBefore, totalTokensAfter, totalEvicted);
     }
 
-    public EvictedCounter evictTokensFromTokenHa(TokenHa tokenHa) {
+    public EvictedCounter evictTokensFromTokenHa(Evictable tokenHa) {
         EvictedCounter counter = new EvictedCounter();
 
         if (tokenHa != null) {
@@ -208,7 +525,55 @@ public class EvictionThread {
         return counter;
     }
 
-    private static class EvictedCounter {
+    /**
+     * Registry entry that also remembers the deadline it is currently scheduled at.
+     */
+    private static final class Registration extends WeakReference<Evictable> {
+        // Guarded by the EvictionThread monitor
+        private long scheduledAtMillis = Long.MIN_VALUE;
+        // Earliest deadline pushed while a sweep had taken the registration
+        private long pushedDeadlineMillis = Long.MAX_VALUE;
+
+        Registration(Evictable tokenHa) {
+            super(tokenHa);
+        }
+    }
+
+    private static final class ScheduledEviction implements Comparable<ScheduledEviction> {
+        private final Registration registration;
+        private final long atMillis;
+
+        ScheduledEviction(Registration registration, long atMillis) {
+            this.registration = registration;
+            this.atMillis = atMillis;
+        }
+
+        @Override
+        public int compareTo(ScheduledEviction other) {
+            return Long.compare(atMillis, other.atMillis);
+        }
+    }
+
+    /**
+     * Outcome of checking one due instance.
+     */
+    private static final class DueEviction {
+        private final Registration registration;
+        private long nextDeadlineMillis;
+        private boolean visited;
+        private int evicted;
+        private RuntimeException failure;
+
+        DueEviction(Registration registration, long nextDeadlineMillis) {
+            this.registration = registration;
+            this.nextDeadlineMillis = nextDeadlineMillis;
+        }
+    }
+
+    /**
+     * Queue sizes before and after evicting one instance.
+     */
+    public static class EvictedCounter {
         private int sizeBefore;
         private int sizeAfter;
         private int sizeEvicted;
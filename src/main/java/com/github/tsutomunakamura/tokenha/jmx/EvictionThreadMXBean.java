@@ -0,0 +1,45 @@
+package com.github.tsutomunakamura.tokenha.jmx;
+
+/**
+ * Live state of the {@link com.github.tsutomunakamura.tokenha.eviction.EvictionThread} singleton,
+ * registered as {@code com.github.tsutomunakamura.tokenha:type=EvictionThread} while the thread
+ * runs with {@code jmxEnabled} set in its configuration.
+ */
+public interface EvictionThreadMXBean {
+
+    /** Number of registered instances and registries. */
+    int getRegisteredInstances();
+
+    /** Number of sweeps run. */
+    long getSweepCount();
+
+    /** Number of instances checked for expired tokens, summed over all sweeps. */
+    long getInstancesScanned();
+
+    /** Number of registered instances sweeps did not touch because they were not due. */
+    long getInstancesSkipped();
+
+    /** Number of tokens evicted by all sweeps. */
+    long getTokensEvicted();
+
+    /** 99th percentile of the sweep duration, in nanoseconds. */
+    long getSweepDurationP99Nanos();
+
+    /** Longest sweep duration, in nanoseconds. */
+    long getSweepDurationMaxNanos();
+
+    /** 99th percentile of the time from a token's expiry to its eviction, in milliseconds. */
+    long getEvictionLagP99Millis();
+
+    /** Longest time from a token's expiry to its eviction, in milliseconds. */
+    long getEvictionLagMaxMillis();
+
+    /** Epoch milliseconds at which the latest scheduled sweep started, or -1 if none ran. */
+    long getLastSweepStartedAtMillis();
+
+    /** Configured upper bound between two checks of a polled instance. */
+    long getIntervalMillis();
+
+    /** Configured number of eviction workers. */
+    int getParallelism();
+}
@@ -0,0 +1,253 @@
+package com.github.tsutomunakamura.tokenha.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionMetrics;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionSweep;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionThread;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
+
+/**
+ * Registers the MBeans of TokenHa instances and the eviction thread with the platform MBean server.
+ *
+ * The MBeans only hold weak references, so an instance that is never closed can still be
+ * garbage collected; its MBean then reports an empty queue. Registration failures are logged
+ * and never prevent an instance from being used.
+ */
+public final class TokenHaJmx {
+
+    private static final Logger logger = TokenHaLogger.getLogger(TokenHaJmx.class);
+
+    /** JMX domain of all MBeans of this library. */
+    public static final String DOMAIN = "com.github.tsutomunakamura.tokenha";
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private TokenHaJmx() {
+    }
+
+    /**
+     * Register a {@link TokenHaMXBean} for an instance under a new {@code id}.
+     * @param tokenHa the instance, which should record metrics
+     * @return the name it was registered under, or null if registration failed
+     */
+    public static ObjectName register(TokenHa tokenHa) {
+        ObjectName name = objectName(DOMAIN + ":type=TokenHa,id=" + NEXT_ID.incrementAndGet());
+        return register(new TokenHaView(tokenHa), name);
+    }
+
+    /**
+     * Register the {@link EvictionThreadMXBean} of the eviction thread, replacing a previous registration.
+     * @param evictionThread the eviction thread
+     * @return the name it was registered under, or null if registration failed
+     */
+    public static ObjectName register(EvictionThread evictionThread) {
+        return register(new EvictionThreadView(evictionThread), objectName(DOMAIN + ":type=EvictionThread"));
+    }
+
+    /**
+     * Unregister an MBean registered by this class. Names that are not registered are ignored.
+     * @param name the name returned at registration, may be null
+     */
+    public static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to unregister MBean {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static ObjectName register(Object mbean, ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+            logger.debug("Registered MBean {}", name);
+            return name;
+        } catch (JMException e) {
+            logger.warn("Failed to register MBean {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException("Invalid MBean name: " + name, e);
+        }
+    }
+
+    private static final class TokenHaView implements TokenHaMXBean {
+        private final WeakReference<TokenHa> tokenHa;
+
+        TokenHaView(TokenHa tokenHa) {
+            this.tokenHa = new WeakReference<>(tokenHa);
+        }
+
+        private TokenHaMetrics metrics() {
+            TokenHa current = tokenHa.get();
+            return current != null ? current.getMetrics() : null;
+        }
+
+        @Override
+        public int getQueueSize() {
+            TokenHa current = tokenHa.get();
+            return current != null ? current.getQueueSize() : 0;
+        }
+
+        @Override
+        public long getNewestTokenAgeMillis() {
+            TokenHa current = tokenHa.get();
+            TokenElement newest = current != null ? current.newestToken() : null;
+            return newest != null ? System.currentTimeMillis() - newest.getTimeMillis() : -1;
+        }
+
+        @Override
+        public long getNextEvictionDeadlineMillis() {
+            TokenHa current = tokenHa.get();
+            return current != null ? current.nextEvictionDeadlineMillis() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long getAcceptedCount() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getAcceptedCount() : 0;
+        }
+
+        @Override
+        public long getRejectedCount() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getRejectedCount() : 0;
+        }
+
+        @Override
+        public long getSaveCount() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getSaveNanos().getCount() : 0;
+        }
+
+        @Override
+        public double getSaveLatencyMeanNanos() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getSaveNanos().getMean() : 0;
+        }
+
+        @Override
+        public long getSaveLatencyP99Nanos() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getSaveNanos().getValueAtPercentile(99) : 0;
+        }
+
+        @Override
+        public long getSaveLatencyMaxNanos() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getSaveNanos().getMax() : 0;
+        }
+
+        @Override
+        public long getSyncLatencyP99Nanos() {
+            TokenHaMetrics metrics = metrics();
+            return metrics != null ? metrics.getSyncNanos().getValueAtPercentile(99) : 0;
+        }
+
+        @Override
+        public String getPersistenceFilePath() {
+            TokenHa current = tokenHa.get();
+            return current != null ? current.getPersistenceFilePath() : null;
+        }
+    }
+
+    private static final class EvictionThreadView implements EvictionThreadMXBean {
+        private final EvictionThread evictionThread;
+
+        EvictionThreadView(EvictionThread evictionThread) {
+            this.evictionThread = evictionThread;
+        }
+
+        private EvictionMetrics metrics() {
+            return evictionThread.getMetrics();
+        }
+
+        @Override
+        public int getRegisteredInstances() {
+            return evictionThread.getInstanceCount();
+        }
+
+        @Override
+        public long getSweepCount() {
+            return metrics().getSweepCount();
+        }
+
+        @Override
+        public long getInstancesScanned() {
+            return metrics().getInstancesScanned();
+        }
+
+        @Override
+        public long getInstancesSkipped() {
+            return metrics().getInstancesSkipped();
+        }
+
+        @Override
+        public long getTokensEvicted() {
+            return metrics().getTokensEvicted();
+        }
+
+        @Override
+        public long getSweepDurationP99Nanos() {
+            return metrics().getSweepDurationNanos().getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getSweepDurationMaxNanos() {
+            return metrics().getSweepDurationNanos().getMax();
+        }
+
+        @Override
+        public long getEvictionLagP99Millis() {
+            return metrics().getEvictionLagMillis().getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getEvictionLagMaxMillis() {
+            return metrics().getEvictionLagMillis().getMax();
+        }
+
+        @Override
+        public long getLastSweepStartedAtMillis() {
+            EvictionSweep sweep = evictionThread.getLastSweep();
+            return sweep != null ? sweep.getStartedAtMillis() : -1;
+        }
+
+        @Override
+        public long getIntervalMillis() {
+            return evictionThread.getConfig().getIntervalMillis();
+        }
+
+        @Override
+        public int getParallelism() {
+            return evictionThread.getConfig().getParallelism();
+        }
+    }
+}
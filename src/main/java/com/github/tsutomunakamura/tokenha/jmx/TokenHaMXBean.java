@@ -0,0 +1,42 @@
+package com.github.tsutomunakamura.tokenha.jmx;
+
+/**
+ * Live state of one {@link com.github.tsutomunakamura.tokenha.TokenHa} instance, registered as
+ * {@code com.github.tsutomunakamura.tokenha:type=TokenHa,id=<n>} when {@code jmxEnabled} is set.
+ * Attributes are read from wait-free snapshots and counters, so polling them never blocks adds.
+ */
+public interface TokenHaMXBean {
+
+    /** Number of tokens visible to readers. */
+    int getQueueSize();
+
+    /** Milliseconds since the newest token was added, or -1 if the queue is empty. */
+    long getNewestTokenAgeMillis();
+
+    /** Epoch milliseconds at which the next token expires, or {@code Long.MAX_VALUE} if none can. */
+    long getNextEvictionDeadlineMillis();
+
+    /** Number of {@code addIfAvailable} calls that stored their token. */
+    long getAcceptedCount();
+
+    /** Number of {@code addIfAvailable} calls rejected by the cooldown or a full queue. */
+    long getRejectedCount();
+
+    /** Number of mutations persisted through the token store. */
+    long getSaveCount();
+
+    /** Mean time to persist a mutation, in nanoseconds. */
+    double getSaveLatencyMeanNanos();
+
+    /** 99th percentile of the time to persist a mutation, in nanoseconds. */
+    long getSaveLatencyP99Nanos();
+
+    /** Longest time to persist a mutation, in nanoseconds. */
+    long getSaveLatencyMaxNanos();
+
+    /** 99th percentile of the file sync time of a save, in nanoseconds. */
+    long getSyncLatencyP99Nanos();
+
+    /** Path of the persistence file. */
+    String getPersistenceFilePath();
+}
@@ -0,0 +1,131 @@
+package com.github.tsutomunakamura.tokenha.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values with a fixed memory footprint.
+ *
+ * Values are counted in log-linear buckets in the style of HdrHistogram: values below 32
+ * are counted exactly, larger values in 16 buckets per power of two, so a reported
+ * percentile is at most about 6% above the recorded value. Recording is lock-free and
+ * allocation-free, and reads may run concurrently with recording.
+ */
+public final class Histogram {
+
+    private static final int EXACT_VALUES = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Shifts 1..58 cover all non-negative longs above the exact values
+    private static final int BUCKET_COUNT = EXACT_VALUES + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if none was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values, or 0 if none was recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Get the value below or at which the given percentage of the recorded values fall.
+     * The result is the upper bound of the bucket holding that value, capped at {@link #getMax()}.
+     * @param percentile the percentile between 0 and 100
+     * @return the value at the percentile, or 0 if none was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            recorded += counts.get(i);
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < EXACT_VALUES) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT_VALUES) / SUB_BUCKETS + 1;
+        long subBucket = (bucket - EXACT_VALUES) % SUB_BUCKETS + SUB_BUCKETS;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" +
+                "count=" + getCount() +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
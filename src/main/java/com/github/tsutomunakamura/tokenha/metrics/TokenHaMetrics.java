@@ -0,0 +1,66 @@
+package com.github.tsutomunakamura.tokenha.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the hot paths of one TokenHa instance, all in nanoseconds, and
+ * counters of accepted and rejected adds.
+ * Only recorded when metrics or JMX are enabled in the configuration; see
+ * {@link com.github.tsutomunakamura.tokenha.TokenHa#getMetrics()}.
+ *
+ * The serialization, write and sync times are recorded by the JSON and binary file stores.
+ * Saves stream the content through a fixed-size buffer; the time spent writing full
+ * buffers to the file counts as write time, the rest of streaming the content as
+ * serialization time.
+ */
+public final class TokenHaMetrics {
+
+    private final Histogram lockWaitNanos = new Histogram();
+    private final Histogram snapshotRebuildNanos = new Histogram();
+    private final Histogram saveNanos = new Histogram();
+    private final Histogram serializationNanos = new Histogram();
+    private final Histogram writeNanos = new Histogram();
+    private final Histogram syncNanos = new Histogram();
+    private final Histogram loadNanos = new Histogram();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /** Count an add that stored its token. */
+    public void recordAccepted() { accepted.increment(); }
+    /** Count an add rejected by the cooldown or a full queue. */
+    public void recordRejected() { rejected.increment(); }
+    /** Number of adds that stored their token. */
+    public long getAcceptedCount() { return accepted.sum(); }
+    /** Number of adds rejected by the cooldown or a full queue. */
+    public long getRejectedCount() { return rejected.sum(); }
+
+    /** Time an add that passed the cooldown waited for the monitor. */
+    public Histogram getLockWaitNanos() { return lockWaitNanos; }
+    /** Time to publish the new snapshot of an add or eviction. */
+    public Histogram getSnapshotRebuildNanos() { return snapshotRebuildNanos; }
+    /** Time to persist one mutation through the token store, including serialization and sync. */
+    public Histogram getSaveNanos() { return saveNanos; }
+    /** Time to serialize the tokens of a file save, excluding the writes to the file. */
+    public Histogram getSerializationNanos() { return serializationNanos; }
+    /** Time to write the serialized content of a file save to the file. */
+    public Histogram getWriteNanos() { return writeNanos; }
+    /** Time to sync a file save to the device, as set by the durability level. */
+    public Histogram getSyncNanos() { return syncNanos; }
+    /** Time to load the tokens from the token store. */
+    public Histogram getLoadNanos() { return loadNanos; }
+
+    @Override
+    public String toString() {
+        return "TokenHaMetrics{" +
+                "accepted=" + getAcceptedCount() +
+                ", rejected=" + getRejectedCount() +
+                ", lockWaitNanos=" + lockWaitNanos +
+                ", snapshotRebuildNanos=" + snapshotRebuildNanos +
+                ", saveNanos=" + saveNanos +
+                ", serializationNanos=" + serializationNanos +
+                ", writeNanos=" + writeNanos +
+                ", syncNanos=" + syncNanos +
+                ", loadNanos=" + loadNanos +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Token store that keeps all tokens in one binary document written by {@link FilePersistence}.
+ * The format is described in {@link TokenBinary}; like the JSON store, every mutation rewrites it.
+ */
+public class BinaryFileTokenStore extends FileTokenStore {
+
+    /**
+     * Constructor.
+     * @param filePath the binary file path
+     */
+    public BinaryFileTokenStore(String filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructor.
+     * @param filePath the binary file path
+     * @param atomicSave true to save through a temporary file and an atomic rename
+     */
+    public BinaryFileTokenStore(String filePath, boolean atomicSave) throws IOException {
+        super(new FilePersistence(filePath, atomicSave));
+    }
+
+    /**
+     * Constructor taking the file path and save options from a configuration.
+     * @param config the configuration of the owning instance
+     */
+    public BinaryFileTokenStore(TokenHaConfig config) throws IOException {
+        super(new FilePersistence(config));
+    }
+
+    /**
+     * Stream the document, decoding only the newest {@code limit} tokens.
+     */
+    @Override
+    protected List<TokenElement> read(int limit) throws IOException {
+        try (InputStream in = filePersistence.openInputStream()) {
+            return TokenBinary.readTokens(in, limit);
+        }
+    }
+
+    @Override
+    protected void write(List<TokenElement> tokens) {
+        filePersistence.saveBytes(out -> TokenBinary.writeTokens(tokens, out));
+    }
+}
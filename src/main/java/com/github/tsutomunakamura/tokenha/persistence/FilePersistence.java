@@ -1,24 +1,80 @@
 package com.github.tsutomunakamura.tokenha.persistence;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.io.RandomAccessFile;
 import org.slf4j.Logger;
+import com.github.tsutomunakamura.tokenha.config.DurabilityLevel;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
 import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
 
 /**
  * Handles file persistence operations for TokenHa instances.
  * Responsible for saving and loading token data to/from files.
  * Maintains an exclusive file lock during the instance lifetime.
+ *
+ * By default a save truncates and rewrites the file in place. With atomic saves the content
+ * is written to a temporary file, synced, renamed over the file and the directory is synced,
+ * so a crash leaves either the previous or the new content. The lock is then held on a
+ * sidecar ".lock" file because the renames replace the file itself.
+ *
+ * How far each save is synced is set by its {@link DurabilityLevel}. An in-place save syncs
+ * the directory only at {@link DurabilityLevel#FSYNC_DIRECTORY}; an atomic save also does at
+ * {@link DurabilityLevel#FSYNC}, since its rename is not durable otherwise.
  */
 public class FilePersistence implements AutoCloseable {
     
     private static final Logger logger = TokenHaLogger.getLogger(FilePersistence.class);
     
+    // Bytes buffered before they are written to the channel
+    private static final int WRITE_BUFFER_BYTES = 8192;
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    /**
+     * Writes the content of the file to a writer.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        /**
+         * @param out the destination; it must not be closed
+         */
+        void writeTo(Writer out) throws IOException;
+    }
+    
+    /**
+     * Writes the content of the file to an output stream.
+     */
+    @FunctionalInterface
+    public interface ByteContentWriter {
+        /**
+         * @param out the destination; it must not be closed
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
     private String filePath;
+    private final boolean atomicSave;
+    private final long groupCommitWindowMillis;
+    private final DurabilityLevel durabilityLevel;
+    private volatile TokenHaMetrics metrics; // Null unless save timings are recorded
     
     // File handling for persistence with locking
     private RandomAccessFile persistenceFile;
@@ -29,8 +85,7 @@ public class FilePersistence implements AutoCloseable {
      * Constructor with default file path.
      */
     public FilePersistence() throws IOException {
-        this.filePath = "tokenha-data.json";
-        initializeFile();
+        this("tokenha-data.json");
     }
     
     /**
@@ -38,10 +93,59 @@ public class FilePersistence implements AutoCloseable {
      * @param filePath the file path to use for persistence
      */
     public FilePersistence(String filePath) throws IOException {
+        this(filePath, false);
+    }
+    
+    /**
+     * Constructor with custom file path and save mode.
+     * @param filePath the file path to use for persistence
+     * @param atomicSave true to save through a temporary file and an atomic rename
+     */
+    public FilePersistence(String filePath, boolean atomicSave) throws IOException {
+        this(filePath, atomicSave, 0);
+    }
+    
+    /**
+     * Constructor with custom file path, save mode and group commit window.
+     * @param filePath the file path to use for persistence
+     * @param atomicSave true to save through a temporary file and an atomic rename
+     * @param groupCommitWindowMillis window of the shared group commit, 0 to sync each save on its own
+     */
+    public FilePersistence(String filePath, boolean atomicSave, long groupCommitWindowMillis) throws IOException {
+        this(filePath, atomicSave, groupCommitWindowMillis, DurabilityLevel.FSYNC);
+    }
+    
+    /**
+     * Constructor with custom file path, save mode, group commit window and durability level.
+     * @param filePath the file path to use for persistence
+     * @param atomicSave true to save through a temporary file and an atomic rename
+     * @param groupCommitWindowMillis window of the shared group commit, 0 to sync each save on its own
+     * @param durabilityLevel how far each save is synced before it returns
+     */
+    public FilePersistence(String filePath, boolean atomicSave, long groupCommitWindowMillis,
+            DurabilityLevel durabilityLevel) throws IOException {
+        if (groupCommitWindowMillis < 0) {
+            throw new IllegalArgumentException("Group commit window cannot be negative");
+        }
+        if (durabilityLevel == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
         this.filePath = filePath;
+        this.atomicSave = atomicSave;
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+        this.durabilityLevel = durabilityLevel;
         initializeFile();
     }
     
+    /**
+     * Constructor taking the file path and save options from a configuration.
+     * @param config the configuration of the owning instance
+     */
+    public FilePersistence(TokenHaConfig config) throws IOException {
+        this(config.getPersistenceFilePath(), config.isAtomicSave(), config.getGroupCommitWindowMillis(),
+            config.getDurabilityLevel());
+    }
+    
     /**
      * Initialize the persistence file with exclusive locking.
      * Creates the file only if we're going to save data, not just for loading.
@@ -49,7 +153,7 @@ public class FilePersistence implements AutoCloseable {
     private void initializeFile() throws IOException {
         try {
             // 1. This can throw IOException if file cannot be created/opened
-            persistenceFile = new RandomAccessFile(filePath, "rw");
+            persistenceFile = new RandomAccessFile(atomicSave ? filePath + LOCK_SUFFIX : filePath, "rw");
             
             // 2. This can throw IOException if channel cannot be obtained
             fileChannel = persistenceFile.getChannel();
@@ -67,6 +171,13 @@ public class FilePersistence implements AutoCloseable {
                 logger.trace("Working directory: {}", System.getProperty("user.dir"));
                 logger.trace("Absolute file path: {}", Paths.get(filePath).toAbsolutePath());
             }
+            if (atomicSave) {
+                // A leftover temporary file is an interrupted save; the file itself is still intact
+                Files.deleteIfExists(tempPath());
+                if (!Files.exists(Paths.get(filePath))) {
+                    Files.createFile(Paths.get(filePath));
+                }
+            }
         } catch (IOException e) {
             logger.error("Failed to initialize persistence file: {}. Error: {}", filePath, e.getMessage());
             close();
@@ -104,45 +215,221 @@ public class FilePersistence implements AutoCloseable {
      * File remains open and data is flushed immediately to prevent data loss.
      * @param jsonData the JSON string to save
      */
-    public synchronized void save(String jsonData) {
-        if (persistenceFile == null) {
-            throw new IllegalStateException("Persistence file not initialized. Cannot save data.");
-        }
-        
-        if (fileLock == null) {
-            logger.warn("Saving without file lock. Data may be corrupted by concurrent access.");
+    public void save(String jsonData) {
+        save(out -> out.write(jsonData));
+    }
+    
+    /**
+     * Save content streamed to the locked file. The content is encoded as UTF-8
+     * through a fixed-size buffer, so no copy of the whole document is made.
+     * File remains open and data is flushed immediately to prevent data loss.
+     * @param content writes the content to save
+     */
+    public void save(ContentWriter content) {
+        saveBytes(out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            content.writeTo(writer);
+            writer.flush();
+        });
+    }
+    
+    /**
+     * Save binary content streamed to the locked file through a fixed-size buffer.
+     * File remains open and data is flushed immediately to prevent data loss.
+     *
+     * With a group commit an in-place save releases this object's monitor while it waits for
+     * the sync, so saves of the same file by other threads write their content and join the
+     * same batch; the coordinator forces the file while holding the monitor, so a sync never
+     * overlaps a write and a save returns once its content, or newer content, is durable.
+     * Atomic saves keep the monitor until their rename is durable, so only saves of different
+     * files share a batch.
+     * @param content writes the content to save
+     */
+    public void saveBytes(ByteContentWriter content) {
+        FileChannel written;
+        String path;
+        long serializationNanos;
+        long writeNanos;
+        long writtenNanos;
+        synchronized (this) {
+            if (persistenceFile == null) {
+                throw new IllegalStateException("Persistence file not initialized. Cannot save data.");
+            }
+            
+            if (fileLock == null) {
+                logger.warn("Saving without file lock. Data may be corrupted by concurrent access.");
+            }
+
+            if (atomicSave) {
+                saveAtomically(content);
+                return;
+            }
+
+            path = filePath;
+            try {
+                // Reset file position to beginning and truncate
+                fileChannel.position(0);
+                fileChannel.truncate(0);
+                
+                // Write the content; the stream wraps the channel and must not be closed
+                TimedOutputStream channelOut = new TimedOutputStream(Channels.newOutputStream(fileChannel));
+                OutputStream out = new BufferedOutputStream(channelOut, WRITE_BUFFER_BYTES);
+                long startNanos = System.nanoTime();
+                content.writeTo(out);
+                out.flush();
+                writtenNanos = System.nanoTime();
+                writeNanos = channelOut.nanos;
+                serializationNanos = writtenNanos - startNanos - writeNanos;
+                
+                if (!isGroupCommitted()) {
+                    // Force data to be written to disk as far as the durability level asks
+                    sync(fileChannel, null);
+                    finishSave(path, serializationNanos, writeNanos, writtenNanos);
+                    return;
+                }
+                written = fileChannel;
+            } catch (IOException e) {
+                logger.error("Failed to save data to file: {}. Error: {}", path, e.getMessage());
+                e.printStackTrace();
+                return;
+            }
         }
 
+        // Wait for the group commit outside the monitor so that later saves of this file join the batch
         try {
-            // Reset file position to beginning and truncate
-            persistenceFile.seek(0);
-            persistenceFile.setLength(0);
-            
-            // Write JSON data
-            persistenceFile.write(jsonData.getBytes("UTF-8"));
-            
-            // Force data to be written to disk immediately (flush)
-            persistenceFile.getFD().sync();
-            
-            logger.debug("File saved successfully. Size: {} bytes", persistenceFile.length());
+            sync(written, this);
+            finishSave(path, serializationNanos, writeNanos, writtenNanos);
+        } catch (IOException e) {
+            logger.error("Failed to save data to file: {}. Error: {}", path, e.getMessage());
+        }
+    }
+    
+    private void finishSave(String path, long serializationNanos, long writeNanos, long writtenNanos) {
+        if (durabilityLevel == DurabilityLevel.FSYNC_DIRECTORY) {
+            syncDirectory(Paths.get(path));
+        }
+        recordTimings(serializationNanos, writeNanos, System.nanoTime() - writtenNanos);
+        logger.debug("File saved successfully: {}", path);
+    }
+    
+    private boolean isGroupCommitted() {
+        return groupCommitWindowMillis > 0 && durabilityLevel != DurabilityLevel.NONE;
+    }
+    
+    private void saveAtomically(ByteContentWriter content) {
+        Path target = Paths.get(filePath);
+        Path temp = tempPath();
+        try {
+            long size;
+            long serializationNanos;
+            long writeNanos;
+            long writtenNanos;
+            try (FileChannel tempChannel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                TimedOutputStream channelOut = new TimedOutputStream(Channels.newOutputStream(tempChannel));
+                OutputStream out = new BufferedOutputStream(channelOut, WRITE_BUFFER_BYTES);
+                long startNanos = System.nanoTime();
+                content.writeTo(out);
+                out.flush();
+                writtenNanos = System.nanoTime();
+                writeNanos = channelOut.nanos;
+                serializationNanos = writtenNanos - startNanos - writeNanos;
+                sync(tempChannel, null);
+                size = tempChannel.size();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (durabilityLevel == DurabilityLevel.FSYNC || durabilityLevel == DurabilityLevel.FSYNC_DIRECTORY) {
+                syncDirectory(target);
+            }
+            // The rename and directory sync count as part of the sync
+            recordTimings(serializationNanos, writeNanos, System.nanoTime() - writtenNanos);
             
+            logger.debug("File saved atomically. Size: {} bytes", size);
         } catch (IOException e) {
             logger.error("Failed to save data to file: {}. Error: {}", filePath, e.getMessage());
-            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // The next save truncates it anyway
+            }
+        }
+    }
+    
+    private void recordTimings(long serializationNanos, long writeNanos, long syncNanos) {
+        TokenHaMetrics current = metrics;
+        if (current != null) {
+            current.getSerializationNanos().record(serializationNanos);
+            current.getWriteNanos().record(writeNanos);
+            current.getSyncNanos().record(syncNanos);
+        }
+    }
+    
+    /**
+     * Sync a channel as far as the durability level asks.
+     * @param lock monitor the group commit holds while forcing the channel, or null if the
+     *             caller keeps the channel from being written until this returns
+     */
+    private void sync(FileChannel channel, Object lock) throws IOException {
+        if (durabilityLevel == DurabilityLevel.NONE) {
+            return;
+        }
+        boolean metaData = durabilityLevel != DurabilityLevel.FLUSH;
+        if (groupCommitWindowMillis > 0) {
+            GroupCommitCoordinator.getInstance().sync(channel, metaData, groupCommitWindowMillis, lock);
+        } else {
+            channel.force(metaData);
         }
     }
     
+    /**
+     * Sync the directory holding a file so that a rename or creation of the file is durable.
+     * Platforms that cannot open directories (such as Windows) are skipped.
+     * @param file the file whose directory entry should be synced
+     */
+    static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+    
+    private Path tempPath() {
+        return Paths.get(filePath + TEMP_SUFFIX);
+    }
+    
     /**
      * Load JSON data from the file if it exists.
      * @return the JSON content, or null if file doesn't exist or error occurs
      */
     public String load() throws IOException {
-        String content = new String(Files.readAllBytes(Paths.get(filePath)));
+        String content = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
         logger.debug("Loaded data from file: {}", filePath);
         logger.trace("Content: {}", content);
         return content;
     }
     
+    /**
+     * Open the file for streaming reads. Content is decoded as UTF-8, replacing malformed input
+     * the same way {@link #load()} does.
+     * @return a buffered reader the caller must close
+     */
+    public Reader openReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(openInputStream(), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Open the file for streaming binary reads.
+     * @return an unbuffered stream the caller must close
+     */
+    public InputStream openInputStream() throws IOException {
+        return Files.newInputStream(Paths.get(filePath));
+    }
+    
     /**
      * Set the file path for persistence.
      * Note: This will close the current file and reinitialize with the new path.
@@ -165,6 +452,29 @@ public class FilePersistence implements AutoCloseable {
         return filePath;
     }
     
+    /**
+     * Check if saves go through a temporary file and an atomic rename.
+     * @return true for atomic saves
+     */
+    public boolean isAtomicSave() {
+        return atomicSave;
+    }
+    
+    /**
+     * Record the serialization, write and sync times of every save.
+     * @param metrics the metrics to record into, or null to stop recording
+     */
+    public void setMetrics(TokenHaMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * @return how far each save is synced before it returns
+     */
+    public DurabilityLevel getDurabilityLevel() {
+        return durabilityLevel;
+    }
+    
     /**
      * Check if the persistence file exists.
      * @return true if the file exists, false otherwise
@@ -179,10 +489,43 @@ public class FilePersistence implements AutoCloseable {
      */
     public boolean deleteFile() {
         try {
+            Files.deleteIfExists(tempPath());
             return Files.deleteIfExists(Paths.get(filePath));
         } catch (IOException e) {
             logger.error("Failed to delete file: {}. Error: {}", filePath, e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Stream to a channel that adds up the time spent in channel writes, so that a save can
+     * tell the time writing to the file apart from the time serializing into the buffer.
+     */
+    private static final class TimedOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long nanos;
+
+        TimedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
 }
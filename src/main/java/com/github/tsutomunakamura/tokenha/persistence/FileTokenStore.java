@@ -0,0 +1,137 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
+
+/**
+ * Base of the token stores that keep all tokens in one document written by {@link FilePersistence}.
+ * Subclasses only define the document format through {@link #read(int)} and {@link #write(List)};
+ * the document has no incremental form, so every mutation rewrites it.
+ */
+public abstract class FileTokenStore implements TokenStore {
+
+    private static final Logger logger = TokenHaLogger.getLogger(FileTokenStore.class);
+
+    final FilePersistence filePersistence;
+
+    FileTokenStore(FilePersistence filePersistence) {
+        this.filePersistence = filePersistence;
+    }
+
+    /**
+     * Read the newest tokens of the document.
+     * @param limit maximum number of tokens to keep
+     * @return the newest {@code limit} tokens from oldest to newest, empty for an empty file
+     * @throws StreamCorruptedException if the document cannot be parsed
+     */
+    protected abstract List<TokenElement> read(int limit) throws IOException;
+
+    /**
+     * Replace the document with the given tokens.
+     * @param tokens the tokens from oldest to newest
+     */
+    protected abstract void write(List<TokenElement> tokens);
+
+    @Override
+    public List<TokenElement> load() throws IOException {
+        return load(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read the newest {@code limit} tokens. A document that cannot be parsed loads as empty.
+     */
+    @Override
+    public List<TokenElement> load(int limit) throws IOException {
+        try {
+            List<TokenElement> tokens = read(limit);
+            logger.debug("Loaded {} tokens from file: {}", tokens.size(), filePersistence.getFilePath());
+            return tokens;
+        } catch (StreamCorruptedException e) {
+            logger.warn("Error parsing token file: {}. Error: {}", filePersistence.getFilePath(), e.getMessage());
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void save(List<TokenElement> tokens) {
+        write(tokens);
+    }
+
+    /**
+     * Record an added token. This reads the whole document and writes it back, so it costs
+     * O(n) in the number of stored tokens; TokenHa always saves in full since
+     * {@link #needsFullSave()} is true, and this only keeps the store usable by other callers.
+     * @throws UncheckedIOException if the stored tokens cannot be read; the file is left unchanged
+     */
+    @Override
+    public void append(TokenElement token, int evictedOldest) {
+        rewrite(evictedOldest, token);
+    }
+
+    /**
+     * Record the removal of the oldest tokens. Like {@link #append}, this rewrites the whole document.
+     * @throws UncheckedIOException if the stored tokens cannot be read; the file is left unchanged
+     */
+    @Override
+    public void evict(int count) {
+        rewrite(count, null);
+    }
+
+    private void rewrite(int evictedOldest, TokenElement added) {
+        List<TokenElement> tokens;
+        try {
+            // Unlike load(), a document that cannot be parsed fails here: saving would replace it
+            tokens = new ArrayList<>(read(Integer.MAX_VALUE));
+        } catch (IOException e) {
+            logger.error("Failed to read file: {}. It is left unchanged. Error: {}", filePersistence.getFilePath(), e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        tokens.subList(0, Math.min(Math.max(evictedOldest, 0), tokens.size())).clear();
+        if (added != null) {
+            tokens.add(added);
+        }
+        save(tokens);
+    }
+
+    @Override
+    public boolean needsFullSave() {
+        return true;
+    }
+
+    /**
+     * Get the file path.
+     * @return the file path being used
+     */
+    public String getFilePath() {
+        return filePersistence.getFilePath();
+    }
+
+    @Override
+    public void setMetrics(TokenHaMetrics metrics) {
+        filePersistence.setMetrics(metrics);
+    }
+
+    @Override
+    public boolean exists() {
+        return filePersistence.fileExists();
+    }
+
+    @Override
+    public boolean delete() {
+        return filePersistence.deleteFile();
+    }
+
+    @Override
+    public void close() {
+        filePersistence.close();
+    }
+}
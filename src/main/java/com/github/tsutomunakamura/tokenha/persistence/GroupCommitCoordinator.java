@@ -0,0 +1,186 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.concurrent.ThreadFactories;
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+
+/**
+ * Shared group commit of file syncs for all instances in the JVM.
+ *
+ * A save that has written its data asks for a sync and blocks until it is durable.
+ * A single daemon thread takes the first waiting request, keeps collecting requests
+ * until that request's window has passed, then forces each distinct channel of the
+ * batch once and releases every caller of the batch together. Saves arriving while a
+ * batch is being synced form the next batch. Repeated saves of one file within a window
+ * cost one sync when their callers do not hold the file while waiting (in-place saves
+ * of {@link FilePersistence}), and the syncs of different files are issued back to back,
+ * so the file system can commit them in the same journal transaction.
+ */
+final class GroupCommitCoordinator {
+
+    private static final Logger logger = TokenHaLogger.getLogger(GroupCommitCoordinator.class);
+
+    private static final GroupCommitCoordinator INSTANCE = new GroupCommitCoordinator();
+
+    private final LinkedBlockingQueue<SyncRequest> requests = new LinkedBlockingQueue<>();
+    private final Object startLock = new Object();
+    private Thread committer;
+
+    // Observability counters: requests served, batches committed and channel syncs issued
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+
+    private GroupCommitCoordinator() {
+    }
+
+    static GroupCommitCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Force a channel as part of the next group commit and wait until it is durable.
+     * @param channel the channel whose written data must reach the device
+     * @param metaData true to sync the file metadata too, as {@link FileChannel#force(boolean)}
+     * @param windowMillis how long the batch opened by this request waits for more requests
+     * @param lock monitor held while forcing the channel so that it does not overlap a write,
+     *             or null if the caller does not write the channel until this returns
+     * @throws IOException if forcing the channel failed
+     */
+    void sync(FileChannel channel, boolean metaData, long windowMillis, Object lock) throws IOException {
+        SyncRequest request = new SyncRequest(channel, metaData, lock,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis));
+        ensureStarted();
+        requests.add(request);
+        try {
+            request.result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Group commit failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a group commit");
+        }
+    }
+
+    private void ensureStarted() {
+        synchronized (startLock) {
+            if (committer == null) {
+                committer = ThreadFactories.newThreadFactory("tokenha-group-commit-", ThreadMode.PLATFORM).newThread(this::run);
+                committer.start();
+            }
+        }
+    }
+
+    private void run() {
+        List<SyncRequest> batch = new ArrayList<>();
+        while (true) {
+            try {
+                SyncRequest first = requests.take();
+                batch.add(first);
+                long remaining;
+                while ((remaining = first.deadlineNanos - System.nanoTime()) > 0) {
+                    SyncRequest next = requests.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                requests.drainTo(batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                // Only happens if someone interrupts the daemon thread; keep serving callers
+                logger.warn("Group commit thread was interrupted");
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<SyncRequest> batch) {
+        Map<FileChannel, Exception> failures = new IdentityHashMap<>();
+        // A channel is forced once, with metadata if any request of the batch asked for it
+        Map<FileChannel, Boolean> synced = new IdentityHashMap<>();
+        Map<FileChannel, Object> locks = new IdentityHashMap<>();
+        for (SyncRequest request : batch) {
+            synced.merge(request.channel, request.metaData, Boolean::logicalOr);
+            if (request.lock != null) {
+                locks.put(request.channel, request.lock);
+            }
+        }
+        for (Map.Entry<FileChannel, Boolean> entry : synced.entrySet()) {
+            try {
+                force(entry.getKey(), entry.getValue(), locks.get(entry.getKey()));
+            } catch (IOException | RuntimeException e) {
+                failures.put(entry.getKey(), e);
+            }
+        }
+        // Counters are updated before any caller is released so that callers see their batch
+        requestCount.addAndGet(batch.size());
+        batchCount.incrementAndGet();
+        syncCount.addAndGet(synced.size());
+        for (SyncRequest request : batch) {
+            Exception failure = failures.get(request.channel);
+            if (failure == null) {
+                request.result.complete(null);
+            } else {
+                request.result.completeExceptionally(failure);
+            }
+        }
+        logger.trace("Group commit synced {} files for {} saves", synced.size(), batch.size());
+    }
+
+    private static void force(FileChannel channel, boolean metaData, Object lock) throws IOException {
+        if (lock == null) {
+            channel.force(metaData);
+            return;
+        }
+        synchronized (lock) {
+            channel.force(metaData);
+        }
+    }
+
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    long getSyncCount() {
+        return syncCount.get();
+    }
+
+    private static final class SyncRequest {
+        private final FileChannel channel;
+        private final boolean metaData;
+        private final Object lock;
+        private final long deadlineNanos;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private SyncRequest(FileChannel channel, boolean metaData, Object lock, long deadlineNanos) {
+            this.channel = channel;
+            this.metaData = metaData;
+            this.lock = lock;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
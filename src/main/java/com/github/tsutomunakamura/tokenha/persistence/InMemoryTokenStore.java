@@ -0,0 +1,53 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Token store that persists nothing.
+ * Opens no file and takes no lock, for instances whose tokens only live in memory.
+ */
+public class InMemoryTokenStore implements TokenStore {
+
+    @Override
+    public List<TokenElement> load() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void save(List<TokenElement> tokens) {
+        // Nothing to persist
+    }
+
+    @Override
+    public void append(TokenElement token, int evictedOldest) {
+        // Nothing to persist
+    }
+
+    @Override
+    public void evict(int count) {
+        // Nothing to persist
+    }
+
+    @Override
+    public boolean needsFullSave() {
+        return false;
+    }
+
+    @Override
+    public boolean exists() {
+        return false;
+    }
+
+    @Override
+    public boolean delete() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // No resources to release
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Token store that keeps all tokens in one JSON document written by {@link FilePersistence}.
+ * The document has no incremental form, so every mutation rewrites it.
+ */
+public class JsonFileTokenStore extends FileTokenStore {
+
+    /**
+     * Constructor.
+     * @param filePath the JSON file path
+     */
+    public JsonFileTokenStore(String filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructor.
+     * @param filePath the JSON file path
+     * @param atomicSave true to save through a temporary file and an atomic rename
+     */
+    public JsonFileTokenStore(String filePath, boolean atomicSave) throws IOException {
+        super(new FilePersistence(filePath, atomicSave));
+    }
+
+    /**
+     * Constructor taking the file path and save options from a configuration.
+     * @param config the configuration of the owning instance
+     */
+    public JsonFileTokenStore(TokenHaConfig config) throws IOException {
+        super(new FilePersistence(config));
+    }
+
+    /**
+     * Stream the document, keeping only the newest {@code limit} tokens while parsing.
+     */
+    @Override
+    protected List<TokenElement> read(int limit) throws IOException {
+        try (Reader in = filePersistence.openReader()) {
+            return TokenJson.readTokens(in, limit);
+        } catch (JsonSyntaxException e) {
+            StreamCorruptedException corrupted = new StreamCorruptedException("Error parsing JSON: " + e.getMessage());
+            corrupted.initCause(e);
+            throw corrupted;
+        }
+    }
+
+    @Override
+    protected void write(List<TokenElement> tokens) {
+        filePersistence.save(out -> TokenJson.writeTokens(tokens, out));
+    }
+
+    /**
+     * Serialize tokens to the JSON document format.
+     * @param tokens the tokens from oldest to newest
+     * @return JSON string representation of tokens
+     */
+    public static String toJson(List<TokenElement> tokens) {
+        return TokenJson.toJson(tokens);
+    }
+
+    /**
+     * Change the file path, moving the lock to the new file.
+     * @param filePath the new file path
+     */
+    public void setFilePath(String filePath) throws IOException {
+        filePersistence.setFilePath(filePath);
+    }
+}
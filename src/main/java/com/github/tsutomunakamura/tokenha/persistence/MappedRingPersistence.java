@@ -0,0 +1,470 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.config.ForcePolicy;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+
+/**
+ * Memory-mapped ring buffer persistence for TokenHa instances.
+ * The file is pre-sized to {@code capacity} fixed-size slots and mapped with {@link FileChannel#map}.
+ * Each added token is encoded straight into its slot and the head/count header is updated,
+ * so a mutation writes a few bytes into the mapping without building an intermediate document.
+ *
+ * File layout: a 32 byte header (magic, version, capacity, slot size, head and count packed
+ * into one long) followed by the slots. A slot holds the timestamp (8 bytes), the UTF-8 length
+ * (4 bytes, -1 for null), a CRC32 of both plus the token bytes (4 bytes) and the token bytes.
+ * A slot torn by a crash fails its checksum and is skipped on load.
+ */
+public class MappedRingPersistence implements TokenStore {
+
+    private static final Logger logger = TokenHaLogger.getLogger(MappedRingPersistence.class);
+
+    /** Bytes used by the slot header; the rest of a slot holds the UTF-8 token bytes. */
+    public static final int SLOT_HEADER_BYTES = 16;
+
+    static final int HEADER_BYTES = 32;
+    private static final int MAGIC = 0x544B5242; // "TKRB"
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOT_SIZE_OFFSET = 12;
+    private static final int STATE_OFFSET = 16;
+    private static final int NULL_TOKEN_LENGTH = -1;
+
+    private final String filePath;
+    private final int capacity;
+    private final int slotSize;
+    private final ForcePolicy forcePolicy;
+
+    private RandomAccessFile persistenceFile;
+    private FileChannel fileChannel;
+    private FileLock fileLock;
+    private MappedByteBuffer buffer;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CRC32 crc = new CRC32();
+    // Reused for every encoded token; a token that fits into a slot has at most as many chars as bytes
+    private final char[] chars;
+    private final CharBuffer charBuffer;
+
+    private int head;
+    private int count;
+    // Until the ring is known to match memory, the next mutation rewrites it
+    private boolean fullSaveRequired = true;
+
+    /**
+     * Constructor.
+     * @param filePath the ring file path
+     * @param capacity number of slots, normally {@code maxTokens}
+     * @param slotSize bytes per slot including the {@link #SLOT_HEADER_BYTES} slot header
+     * @param forcePolicy when dirty pages are forced to the device
+     */
+    public MappedRingPersistence(String filePath, int capacity, int slotSize, ForcePolicy forcePolicy) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive and non-zero");
+        }
+        if (slotSize <= SLOT_HEADER_BYTES) {
+            throw new IllegalArgumentException("Slot size must be greater than " + SLOT_HEADER_BYTES + " bytes");
+        }
+        if (forcePolicy == null) {
+            throw new IllegalArgumentException("Force policy cannot be null");
+        }
+        this.filePath = filePath;
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+        this.forcePolicy = forcePolicy;
+        this.chars = new char[slotSize - SLOT_HEADER_BYTES];
+        this.charBuffer = CharBuffer.wrap(chars);
+        initializeFile();
+    }
+
+    private void initializeFile() throws IOException {
+        try {
+            persistenceFile = new RandomAccessFile(filePath, "rw");
+            fileChannel = persistenceFile.getChannel();
+            try {
+                fileLock = fileChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Already locked by another instance in this JVM
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                logger.warn("Could not acquire file lock for {}. Another instance may be using this file.", filePath);
+                throw new IOException("Failed to acquire file lock");
+            }
+            logger.debug("Acquired exclusive lock for mapped ring file: {}", filePath);
+            mapRing();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to initialize mapped ring file: {}. Error: {}", filePath, e.getMessage());
+            // Release the lock so that the file can be opened again
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map the ring, reformatting the file if it is new, not a ring, or sized for a different geometry.
+     * @throws IOException if the tokens of a ring with a different geometry do not fit into the new slots
+     */
+    private void mapRing() throws IOException {
+        long fileSize = fileChannel.size();
+        long ringSize = HEADER_BYTES + (long) capacity * slotSize;
+        List<TokenElement> existing = Collections.emptyList();
+
+        if (fileSize >= HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            fileChannel.read(header, 0);
+            if (isValidHeader(header, fileSize)) {
+                int existingCapacity = header.getInt(CAPACITY_OFFSET);
+                int existingSlotSize = header.getInt(SLOT_SIZE_OFFSET);
+                if (existingCapacity == capacity && existingSlotSize == slotSize) {
+                    buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, ringSize);
+                    readState();
+                    return;
+                }
+                long existingSize = HEADER_BYTES + (long) existingCapacity * existingSlotSize;
+                ByteBuffer old = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, existingSize);
+                long state = header.getLong(STATE_OFFSET);
+                existing = readTokens(old, existingSlotSize, (int) (state >>> 32), (int) state, existingCapacity);
+                // Check before reformatting so that a ring that cannot be migrated is left intact
+                for (TokenElement element : existing.subList(Math.max(0, existing.size() - capacity), existing.size())) {
+                    if (!accepts(element.getToken())) {
+                        throw new IOException("Existing token does not fit into a " + slotSize + " byte slot");
+                    }
+                }
+                logger.info("Resizing mapped ring {} from {} slots of {} bytes to {} slots of {} bytes",
+                    filePath, existingCapacity, existingSlotSize, capacity, slotSize);
+            } else if (fileSize > 0) {
+                logger.warn("File {} is not a mapped token ring. It will be reformatted.", filePath);
+            }
+        }
+
+        persistenceFile.setLength(ringSize);
+        buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, ringSize);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+        writeAll(existing);
+        buffer.force();
+    }
+
+    private static boolean isValidHeader(ByteBuffer header, long fileSize) {
+        if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+            return false;
+        }
+        int headerCapacity = header.getInt(CAPACITY_OFFSET);
+        int headerSlotSize = header.getInt(SLOT_SIZE_OFFSET);
+        long state = header.getLong(STATE_OFFSET);
+        int headerHead = (int) (state >>> 32);
+        int headerCount = (int) state;
+        return headerCapacity > 0 && headerSlotSize > SLOT_HEADER_BYTES
+            && fileSize >= HEADER_BYTES + (long) headerCapacity * headerSlotSize
+            && headerHead >= 0 && headerHead < headerCapacity
+            && headerCount >= 0 && headerCount <= headerCapacity;
+    }
+
+    private void readState() {
+        long state = buffer.getLong(STATE_OFFSET);
+        head = (int) (state >>> 32);
+        count = (int) state;
+    }
+
+    private void writeState() {
+        // Head and count share one aligned long so they are updated together
+        buffer.putLong(STATE_OFFSET, ((long) head << 32) | (count & 0xffffffffL));
+    }
+
+    /**
+     * Read the tokens held in the ring from oldest to newest.
+     * If every slot is intact the ring matches the returned tokens and later mutations are
+     * written incrementally; otherwise the next mutation rewrites the ring.
+     * @return the persisted tokens, empty if the ring is empty
+     */
+    @Override
+    public synchronized List<TokenElement> load() throws IOException {
+        ensureOpen();
+        List<TokenElement> tokens = readTokens(buffer, slotSize, head, count, capacity);
+        // An empty ring leaves the queue as it is, which may not be empty
+        fullSaveRequired = tokens.isEmpty() || tokens.size() != count;
+        logger.debug("Loaded {} tokens from mapped ring: {}", tokens.size(), filePath);
+        return tokens;
+    }
+
+    /**
+     * Read the newest tokens held in the ring from oldest to newest.
+     * @param limit maximum number of tokens to return
+     * @return the persisted tokens, empty if the ring is empty
+     */
+    @Override
+    public synchronized List<TokenElement> load(int limit) throws IOException {
+        List<TokenElement> tokens = load();
+        if (tokens.size() > limit) {
+            // The ring still holds the dropped tokens
+            fullSaveRequired = true;
+            return tokens.subList(tokens.size() - limit, tokens.size());
+        }
+        return tokens;
+    }
+
+    private List<TokenElement> readTokens(ByteBuffer ring, int ringSlotSize, int ringHead, int ringCount, int ringCapacity) {
+        List<TokenElement> tokens = new ArrayList<>(ringCount);
+        for (int i = 0; i < ringCount; i++) {
+            int base = HEADER_BYTES + ((ringHead + i) % ringCapacity) * ringSlotSize;
+            long timeMillis = ring.getLong(base);
+            int length = ring.getInt(base + 8);
+            int maxLength = ringSlotSize - SLOT_HEADER_BYTES;
+            if (length < NULL_TOKEN_LENGTH || length > maxLength
+                    || ring.getInt(base + 12) != slotChecksum(ring, base, Math.max(length, 0))) {
+                logger.warn("Skipping corrupt slot {} in mapped ring {}", (ringHead + i) % ringCapacity, filePath);
+                continue;
+            }
+            String token = null;
+            if (length != NULL_TOKEN_LENGTH) {
+                byte[] bytes = new byte[length];
+                ring.get(base + SLOT_HEADER_BYTES, bytes);
+                token = new String(bytes, StandardCharsets.UTF_8);
+            }
+            tokens.add(new TokenElement(token, timeMillis));
+        }
+        return tokens;
+    }
+
+    /**
+     * Check if the next mutation should be persisted with {@link #save(List)}.
+     * This is the case after opening the ring, and after loading it unless the loaded
+     * tokens are exactly the tokens held in the ring.
+     * @return true if the whole ring should be rewritten
+     */
+    @Override
+    public synchronized boolean needsFullSave() {
+        return fullSaveRequired;
+    }
+
+    /**
+     * Check if a token fits into a slot.
+     * @param token the token, may be null
+     * @return true if the UTF-8 encoded token fits into one slot
+     */
+    @Override
+    public boolean accepts(String token) {
+        return token == null || utf8Length(token) <= slotSize - SLOT_HEADER_BYTES;
+    }
+
+    /**
+     * Write an added token into the next slot.
+     * @param token the added token
+     * @param evictedOldest number of oldest tokens removed to make room for it
+     * @throws IllegalArgumentException if the token does not fit into a slot
+     */
+    @Override
+    public synchronized void append(TokenElement token, int evictedOldest) {
+        ensureOpen();
+        dropOldest(evictedOldest);
+        if (count == capacity) {
+            dropOldest(1);
+            writeState();
+        }
+        writeSlot((head + count) % capacity, token);
+        count++;
+        writeState();
+        forceIfRequired();
+    }
+
+    /**
+     * Drop the oldest tokens from the ring.
+     * @param evicted number of oldest tokens removed
+     */
+    @Override
+    public synchronized void evict(int evicted) {
+        ensureOpen();
+        dropOldest(evicted);
+        writeState();
+        forceIfRequired();
+    }
+
+    /**
+     * Rewrite the ring to hold exactly the given tokens.
+     * If there are more tokens than slots only the newest ones are kept.
+     * @param tokens the current tokens from oldest to newest
+     * @throws IllegalArgumentException if a token does not fit into a slot
+     */
+    @Override
+    public synchronized void save(List<TokenElement> tokens) {
+        ensureOpen();
+        writeAll(tokens);
+        forceIfRequired();
+        fullSaveRequired = false;
+    }
+
+    /**
+     * Write the tokens into the slots following the current window and publish the new
+     * head and count only afterwards, so a crash during the rewrite keeps the old window.
+     * Only when the new tokens need more than the free slots do they overwrite the oldest
+     * tokens of the old window.
+     */
+    private void writeAll(List<TokenElement> tokens) {
+        int skip = Math.max(0, tokens.size() - capacity);
+        int start = (head + count) % capacity;
+        for (int i = skip; i < tokens.size(); i++) {
+            writeSlot((start + i - skip) % capacity, tokens.get(i));
+        }
+        head = start;
+        count = tokens.size() - skip;
+        writeState();
+    }
+
+    private void dropOldest(int evicted) {
+        int removed = Math.min(Math.max(evicted, 0), count);
+        head = (head + removed) % capacity;
+        count -= removed;
+    }
+
+    private void writeSlot(int slot, TokenElement element) {
+        int base = HEADER_BYTES + slot * slotSize;
+        String token = element.getToken();
+        int length = NULL_TOKEN_LENGTH;
+        if (token != null) {
+            if (token.length() > chars.length) {
+                throw new IllegalArgumentException("Token does not fit into a " + slotSize + " byte slot");
+            }
+            token.getChars(0, token.length(), chars, 0);
+            charBuffer.limit(token.length()).position(0);
+            buffer.limit(base + slotSize).position(base + SLOT_HEADER_BYTES);
+            encoder.reset();
+            CoderResult result = encoder.encode(charBuffer, buffer, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(buffer);
+            }
+            length = buffer.position() - (base + SLOT_HEADER_BYTES);
+            buffer.clear();
+            if (!result.isUnderflow()) {
+                throw new IllegalArgumentException("Token does not fit into a " + slotSize + " byte slot");
+            }
+        }
+        buffer.putLong(base, element.getTimeMillis());
+        buffer.putInt(base + 8, length);
+        buffer.putInt(base + 12, slotChecksum(buffer, base, Math.max(length, 0)));
+    }
+
+    private int slotChecksum(ByteBuffer ring, int base, int length) {
+        // Positions the ring itself rather than a duplicate so that no view is allocated
+        crc.reset();
+        ring.limit(base + 12).position(base);
+        crc.update(ring);
+        ring.limit(base + SLOT_HEADER_BYTES + length).position(base + SLOT_HEADER_BYTES);
+        crc.update(ring);
+        ring.clear();
+        return (int) crc.getValue();
+    }
+
+    private void forceIfRequired() {
+        if (forcePolicy == ForcePolicy.EVERY_WRITE) {
+            buffer.force();
+        }
+    }
+
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void ensureOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("Mapped ring not initialized. Cannot access data.");
+        }
+    }
+
+    /**
+     * Get the ring file path.
+     * @return the file path being used
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Check if the ring file exists.
+     * @return true if the file exists, false otherwise
+     */
+    @Override
+    public boolean exists() {
+        return Files.exists(Paths.get(filePath));
+    }
+
+    /**
+     * Delete the ring file if it exists.
+     * @return true if file was deleted or didn't exist, false if deletion failed
+     */
+    @Override
+    public boolean delete() {
+        try {
+            return Files.deleteIfExists(Paths.get(filePath));
+        } catch (IOException e) {
+            logger.error("Failed to delete file: {}. Error: {}", filePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Force pending writes, close the file and release the lock.
+     * The mapping itself is released when the buffer is garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            if (fileLock != null) {
+                fileLock.release();
+                fileLock = null;
+                logger.debug("File lock released for: {}", filePath);
+            }
+            if (fileChannel != null) {
+                fileChannel.close();
+                fileChannel = null;
+            }
+            if (persistenceFile != null) {
+                persistenceFile.close();
+                persistenceFile = null;
+            }
+        } catch (IOException e) {
+            logger.error("Error closing mapped ring file: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Streaming reader and writer of the binary token file format, and converters between
+ * it and the JSON document format.
+ *
+ * Layout (version 1):
+ * <pre>
+ * magic "TKHA" (4 bytes), version (1 byte), token count (unsigned varint)
+ * per token, oldest first:
+ *   timestamp delta from the previous token (zigzag varint, the first one from 0)
+ *   UTF-8 length + 1, 0 for a null token (unsigned varint), UTF-8 bytes
+ * CRC32 of everything before it (4 bytes, big-endian)
+ * </pre>
+ * Tokens added in time order have small timestamp deltas, so a typical token costs
+ * 1-3 bytes of overhead instead of the ~30 bytes of its JSON object.
+ */
+public final class TokenBinary {
+
+    static final byte[] MAGIC = {'T', 'K', 'H', 'A'};
+    static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 8192;
+
+    private TokenBinary() {
+    }
+
+    /**
+     * Write tokens in the binary format.
+     * @param tokens the tokens from oldest to newest
+     * @param out the destination; flushed but not closed
+     */
+    public static void writeTokens(List<TokenElement> tokens, OutputStream out) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(out, BUFFER_BYTES), new CRC32());
+        checked.write(MAGIC);
+        checked.write(VERSION);
+        writeUnsignedVarint(checked, tokens.size());
+        long previous = 0;
+        for (TokenElement token : tokens) {
+            writeUnsignedVarint(checked, zigzag(token.getTimeMillis() - previous));
+            previous = token.getTimeMillis();
+            if (token.getToken() == null) {
+                writeUnsignedVarint(checked, 0);
+            } else {
+                byte[] bytes = token.getToken().getBytes(StandardCharsets.UTF_8);
+                writeUnsignedVarint(checked, bytes.length + 1L);
+                checked.write(bytes);
+            }
+        }
+        int crc = (int) checked.getChecksum().getValue();
+        checked.write(crc >>> 24);
+        checked.write(crc >>> 16);
+        checked.write(crc >>> 8);
+        checked.write(crc);
+        checked.flush();
+    }
+
+    /**
+     * Read the newest tokens of a binary document.
+     * @param in the source; not closed
+     * @param limit maximum number of tokens to keep
+     * @return the newest {@code limit} tokens from oldest to newest, empty for an empty source
+     * @throws StreamCorruptedException if the header, the checksum or the length of the content is wrong
+     */
+    public static List<TokenElement> readTokens(InputStream in, int limit) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(in, BUFFER_BYTES), new CRC32());
+        int first = checked.read();
+        if (first < 0) {
+            return Collections.emptyList();
+        }
+        try {
+            if (first != MAGIC[0] || checked.read() != MAGIC[1] || checked.read() != MAGIC[2] || checked.read() != MAGIC[3]) {
+                throw new StreamCorruptedException("Not a binary token file");
+            }
+            int version = readByte(checked);
+            if (version != VERSION) {
+                throw new StreamCorruptedException("Unsupported binary token file version: " + version);
+            }
+            long count = readUnsignedVarint(checked);
+            // The count is known up front, so older tokens are skipped without being decoded
+            List<TokenElement> newest = new ArrayList<>();
+            long timeMillis = 0;
+            for (long i = 0; i < count; i++) {
+                timeMillis += unzigzag(readUnsignedVarint(checked));
+                long length = readUnsignedVarint(checked) - 1;
+                if (length > Integer.MAX_VALUE - 8) {
+                    throw new StreamCorruptedException("Token length out of range: " + length);
+                }
+                boolean keep = count - i <= limit;
+                String token = null;
+                if (keep && length >= 0) {
+                    token = new String(readFully(checked, (int) length), StandardCharsets.UTF_8);
+                } else if (length > 0) {
+                    skipFully(checked, length);
+                }
+                if (keep) {
+                    newest.add(new TokenElement(token, timeMillis));
+                }
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            int stored = (readByte(checked) << 24) | (readByte(checked) << 16) | (readByte(checked) << 8) | readByte(checked);
+            if (stored != expected) {
+                throw new StreamCorruptedException("Checksum mismatch in binary token file");
+            }
+            if (checked.read() >= 0) {
+                throw new StreamCorruptedException("Unexpected data after the checksum of the binary token file");
+            }
+            return newest;
+        } catch (EOFException e) {
+            throw new StreamCorruptedException("Truncated binary token file");
+        }
+    }
+
+    /**
+     * Convert a JSON token file into a binary one.
+     * @param json the JSON file to read
+     * @param binary the binary file to create or replace
+     * @return number of converted tokens
+     */
+    public static int convertJsonToBinary(Path json, Path binary) throws IOException {
+        List<TokenElement> tokens;
+        try (Reader in = new BufferedReader(new InputStreamReader(Files.newInputStream(json), StandardCharsets.UTF_8))) {
+            tokens = TokenJson.readTokens(in, Integer.MAX_VALUE);
+        }
+        try (OutputStream out = Files.newOutputStream(binary)) {
+            writeTokens(tokens, out);
+        }
+        return tokens.size();
+    }
+
+    /**
+     * Convert a binary token file into a JSON one.
+     * @param binary the binary file to read
+     * @param json the JSON file to create or replace
+     * @return number of converted tokens
+     */
+    public static int convertBinaryToJson(Path binary, Path json) throws IOException {
+        List<TokenElement> tokens;
+        try (InputStream in = Files.newInputStream(binary)) {
+            tokens = readTokens(in, Integer.MAX_VALUE);
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(json), StandardCharsets.UTF_8))) {
+            TokenJson.writeTokens(tokens, out);
+        }
+        return tokens.size();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeUnsignedVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readUnsignedVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Varint too long");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        // Skipped bytes still have to pass through the checksum
+        byte[] buffer = new byte[(int) Math.min(length, BUFFER_BYTES)];
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(length, buffer.length));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            length -= read;
+        }
+    }
+}
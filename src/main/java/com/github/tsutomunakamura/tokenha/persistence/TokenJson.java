@@ -0,0 +1,235 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Streaming reader and writer of the JSON documents of {@code TokenData} and {@code RegistryData}.
+ * Tokens are written one by one from the caller's list, so no intermediate copy,
+ * wrapper object or document string is built. The output is the same as Gson's:
+ * null tokens omit the {@code token} field and HTML characters are escaped.
+ * Reading keeps only the newest tokens of each list while parsing, so memory is
+ * bounded by the limit instead of the size of the document.
+ */
+public final class TokenJson {
+
+    private TokenJson() {
+    }
+
+    /**
+     * Write a {@code {"tokens":[...]}} document.
+     * @param tokens the tokens from oldest to newest
+     * @param out the destination; flushed but not closed
+     */
+    public static void writeTokens(List<TokenElement> tokens, Writer out) throws IOException {
+        JsonWriter json = newJsonWriter(out);
+        json.beginObject();
+        json.name("tokens");
+        writeArray(json, tokens);
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Write a {@code {"queues":{"key":[...]}}} document.
+     * @param queues the tokens of each key from oldest to newest
+     * @param out the destination; flushed but not closed
+     */
+    public static void writeQueues(Map<String, ? extends List<TokenElement>> queues, Writer out) throws IOException {
+        JsonWriter json = newJsonWriter(out);
+        json.beginObject();
+        json.name("queues");
+        json.beginObject();
+        for (Map.Entry<String, ? extends List<TokenElement>> entry : queues.entrySet()) {
+            json.name(entry.getKey());
+            writeArray(json, entry.getValue());
+        }
+        json.endObject();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Serialize tokens to a {@code {"tokens":[...]}} string.
+     * @param tokens the tokens from oldest to newest
+     * @return the JSON document
+     */
+    public static String toJson(List<TokenElement> tokens) {
+        StringWriter out = new StringWriter();
+        try {
+            writeTokens(tokens, out);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Read the newest tokens of a {@code {"tokens":[...]}} document.
+     * @param in the source; not closed
+     * @param limit maximum number of tokens to keep
+     * @return the newest {@code limit} tokens from oldest to newest, empty for an empty or null document
+     * @throws JsonSyntaxException if the document is malformed
+     */
+    public static List<TokenElement> readTokens(Reader in, int limit) throws IOException {
+        JsonReader json = newJsonReader(in);
+        boolean empty = true;
+        try {
+            JsonToken first = json.peek();
+            empty = false;
+            if (first == JsonToken.NULL) {
+                return Collections.emptyList();
+            }
+            List<TokenElement> tokens = Collections.emptyList();
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("tokens".equals(json.nextName()) && json.peek() != JsonToken.NULL) {
+                    tokens = readArray(json, limit);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            return tokens;
+        } catch (EOFException e) {
+            if (empty) {
+                return Collections.emptyList();
+            }
+            throw new JsonSyntaxException(e);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Read the newest tokens of each key of a {@code {"queues":{"key":[...]}}} document.
+     * @param in the source; not closed
+     * @param limit maximum number of tokens to keep per key
+     * @return the newest {@code limit} tokens of each key from oldest to newest, in document order
+     * @throws JsonSyntaxException if the document is malformed
+     */
+    public static Map<String, List<TokenElement>> readQueues(Reader in, int limit) throws IOException {
+        JsonReader json = newJsonReader(in);
+        boolean empty = true;
+        try {
+            JsonToken first = json.peek();
+            empty = false;
+            Map<String, List<TokenElement>> queues = new LinkedHashMap<>();
+            if (first == JsonToken.NULL) {
+                return queues;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!"queues".equals(json.nextName()) || json.peek() == JsonToken.NULL) {
+                    json.skipValue();
+                    continue;
+                }
+                queues.clear();
+                json.beginObject();
+                while (json.hasNext()) {
+                    String key = json.nextName();
+                    if (json.peek() == JsonToken.NULL) {
+                        json.skipValue();
+                    } else {
+                        queues.put(key, readArray(json, limit));
+                    }
+                }
+                json.endObject();
+            }
+            json.endObject();
+            return queues;
+        } catch (EOFException e) {
+            if (empty) {
+                return new LinkedHashMap<>();
+            }
+            throw new JsonSyntaxException(e);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static List<TokenElement> readArray(JsonReader json, int limit) throws IOException {
+        // Only the newest tokens are kept; older ones are dropped as soon as they are pushed out
+        ArrayDeque<TokenElement> newest = new ArrayDeque<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            TokenElement token = readToken(json);
+            if (limit <= 0) {
+                continue;
+            }
+            if (newest.size() == limit) {
+                newest.removeFirst();
+            }
+            newest.addLast(token);
+        }
+        json.endArray();
+        return new ArrayList<>(newest);
+    }
+
+    private static TokenElement readToken(JsonReader json) throws IOException {
+        String token = null;
+        long timeMillis = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+            } else if ("token".equals(name)) {
+                token = json.peek() == JsonToken.BOOLEAN ? Boolean.toString(json.nextBoolean()) : json.nextString();
+            } else if ("timeMillis".equals(name)) {
+                timeMillis = json.nextLong();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return new TokenElement(token, timeMillis);
+    }
+
+    private static JsonReader newJsonReader(Reader in) {
+        JsonReader json = new JsonReader(in);
+        // Gson parses documents leniently
+        json.setLenient(true);
+        return json;
+    }
+
+    private static JsonWriter newJsonWriter(Writer out) {
+        JsonWriter json = new JsonWriter(out);
+        json.setHtmlSafe(true);
+        json.setSerializeNulls(false);
+        return json;
+    }
+
+    private static void writeArray(JsonWriter json, List<TokenElement> tokens) throws IOException {
+        json.beginArray();
+        for (TokenElement token : tokens) {
+            json.beginObject();
+            json.name("token").value(token.getToken());
+            json.name("timeMillis").value(token.getTimeMillis());
+            json.endObject();
+        }
+        json.endArray();
+    }
+}
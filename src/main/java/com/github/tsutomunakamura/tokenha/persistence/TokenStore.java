@@ -0,0 +1,97 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
+
+/**
+ * Storage backend for the tokens of a TokenHa instance.
+ *
+ * TokenHa reports every mutation either incrementally with {@link #append(TokenElement, int)}
+ * and {@link #evict(int)}, or as a full rewrite with {@link #save(List)} when
+ * {@link #needsFullSave()} returns true or write-behind persistence is enabled.
+ * Calls for one instance are made in mutation order. Implementations report I/O
+ * failures of mutations by logging them, the same way {@link FilePersistence} does.
+ */
+public interface TokenStore extends AutoCloseable {
+
+    /**
+     * Read the stored tokens.
+     * @return the tokens from oldest to newest, empty if nothing is stored
+     */
+    List<TokenElement> load() throws IOException;
+
+    /**
+     * Read the newest stored tokens. Stores that can read their tokens incrementally
+     * override this so that older tokens are never held in memory.
+     * @param limit maximum number of tokens to return
+     * @return the newest {@code limit} tokens from oldest to newest, empty if nothing is stored
+     */
+    default List<TokenElement> load(int limit) throws IOException {
+        List<TokenElement> tokens = load();
+        return tokens.size() > limit ? tokens.subList(tokens.size() - limit, tokens.size()) : tokens;
+    }
+
+    /**
+     * Replace the stored tokens.
+     * @param tokens the current tokens from oldest to newest
+     */
+    void save(List<TokenElement> tokens);
+
+    /**
+     * Record an added token.
+     * @param token the added token
+     * @param evictedOldest number of oldest tokens removed to make room for it
+     */
+    void append(TokenElement token, int evictedOldest);
+
+    /**
+     * Record the removal of the oldest tokens.
+     * @param count number of oldest tokens removed
+     */
+    void evict(int count);
+
+    /**
+     * Check if the next mutation has to be persisted with {@link #save(List)}.
+     * Stores without incremental writes always return true.
+     * @return true if the whole state should be saved
+     */
+    boolean needsFullSave();
+
+    /**
+     * Check if a token can be stored. Called before the token is added to the queue.
+     * @param token the token, may be null
+     * @return true if the token can be stored
+     */
+    default boolean accepts(String token) {
+        return true;
+    }
+
+    /**
+     * Record the serialization, write and sync times of saves. Stores that do not
+     * save files ignore the metrics.
+     * @param metrics the metrics of the owning instance
+     */
+    default void setMetrics(TokenHaMetrics metrics) {
+    }
+
+    /**
+     * Check if the backing storage exists.
+     * @return true if it exists, false otherwise
+     */
+    boolean exists();
+
+    /**
+     * Delete the backing storage.
+     * @return true if it was deleted or didn't exist, false if deletion failed
+     */
+    boolean delete();
+
+    /**
+     * Release resources held by the store, such as file locks.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,48 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.IOException;
+
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+
+/**
+ * Creates the token store of a TokenHa instance.
+ * Set a custom factory with {@link TokenHaConfig.Builder#tokenStoreFactory(TokenStoreFactory)}
+ * to plug in a backend that is not covered by {@link com.github.tsutomunakamura.tokenha.config.PersistenceMode}.
+ */
+@FunctionalInterface
+public interface TokenStoreFactory {
+
+    /**
+     * Factory that picks the built-in store for the configured persistence mode.
+     */
+    TokenStoreFactory DEFAULT = TokenStoreFactory::forPersistenceMode;
+
+    /**
+     * Create a store for one TokenHa instance.
+     * @param config the configuration of the instance
+     * @return a new store owned by the instance, closed when the instance is closed
+     */
+    TokenStore create(TokenHaConfig config) throws IOException;
+
+    /**
+     * Create the built-in store for {@link TokenHaConfig#getPersistenceMode()}.
+     * @param config the configuration of the instance
+     * @return a new store
+     */
+    static TokenStore forPersistenceMode(TokenHaConfig config) throws IOException {
+        switch (config.getPersistenceMode()) {
+            case IN_MEMORY:
+                return new InMemoryTokenStore();
+            case BINARY_FILE:
+                return new BinaryFileTokenStore(config);
+            case WRITE_AHEAD_LOG:
+                return new WriteAheadLogPersistence(config.getPersistenceFilePath(), config.getWalCompactionThreshold());
+            case MAPPED_RING:
+                return new MappedRingPersistence(config.getPersistenceFilePath(), config.getMaxTokens(),
+                    config.getMappedSlotSize(), config.getMappedForcePolicy());
+            case JSON_FILE:
+            default:
+                return new JsonFileTokenStore(config);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+
+/**
+ * Append-only write-ahead log persistence for TokenHa instances.
+ * Each mutation appends a small add or evict record instead of rewriting the whole
+ * token list, so the I/O per mutation does not depend on the queue size.
+ * The log is compacted into a single snapshot record by writing a new log to a
+ * temporary file and atomically renaming it over the old one.
+ *
+ * Record layout: type (1 byte), payload length (4 bytes), payload, CRC32 of type and payload (4 bytes).
+ * A torn or corrupt record at the tail of the log is discarded on replay.
+ * The exclusive lock is held on a sidecar ".lock" file because compaction replaces the log file.
+ */
+public class WriteAheadLogPersistence implements TokenStore {
+
+    private static final Logger logger = TokenHaLogger.getLogger(WriteAheadLogPersistence.class);
+
+    static final byte RECORD_SNAPSHOT = 1;
+    static final byte RECORD_ADD = 2;
+    static final byte RECORD_EVICT = 3;
+
+    private static final int RECORD_HEADER_BYTES = 5;
+    private static final int RECORD_CRC_BYTES = 4;
+    private static final int NULL_TOKEN_LENGTH = -1;
+
+    private final String filePath;
+    private final Path logPath;
+    private final Path tempPath;
+    private final int compactionThreshold;
+
+    private RandomAccessFile lockFile;
+    private FileLock fileLock;
+    private FileChannel logChannel;
+
+    // Reused between appends to keep the hot path allocation-free for typical token sizes
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(256);
+    private final CRC32 crc = new CRC32();
+
+    private int recordsSinceSnapshot;
+    // The first mutation after opening or replaying writes a snapshot so the log matches memory
+    private boolean snapshotRequired = true;
+
+    /**
+     * Constructor.
+     * @param filePath the log file path
+     * @param compactionThreshold number of appended records after which the log should be compacted
+     */
+    public WriteAheadLogPersistence(String filePath, int compactionThreshold) throws IOException {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.filePath = filePath;
+        this.logPath = Paths.get(filePath);
+        this.tempPath = Paths.get(filePath + ".tmp");
+        this.compactionThreshold = compactionThreshold;
+        initializeFile();
+    }
+
+    private void initializeFile() throws IOException {
+        try {
+            lockFile = new RandomAccessFile(filePath + ".lock", "rw");
+            try {
+                fileLock = lockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Already locked by another instance in this JVM
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                logger.warn("Could not acquire file lock for {}. Another instance may be using this file.", filePath);
+                throw new IOException("Failed to acquire file lock");
+            }
+            logChannel = openLog(logPath);
+            logger.debug("Acquired exclusive lock for write-ahead log: {}", filePath);
+        } catch (IOException e) {
+            logger.error("Failed to initialize write-ahead log: {}. Error: {}", filePath, e.getMessage());
+            close();
+            throw e;
+        }
+    }
+
+    private static FileChannel openLog(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /**
+     * Replay the log and return the resulting tokens from oldest to newest.
+     * A torn or corrupt tail is truncated so that later appends follow the last valid record.
+     * @return the replayed tokens, empty if the log is empty
+     */
+    @Override
+    public synchronized List<TokenElement> load() throws IOException {
+        ensureOpen();
+        Deque<TokenElement> tokens = new ArrayDeque<>();
+        long validLength = 0;
+        long logLength = logChannel.size();
+        int records = 0;
+
+        InputStream channelStream = Channels.newInputStream(logChannel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(channelStream));
+        try {
+            while (validLength < logLength) {
+                byte type = in.readByte();
+                int payloadLength = in.readInt();
+                if (payloadLength < 0 || validLength + RECORD_HEADER_BYTES + payloadLength + RECORD_CRC_BYTES > logLength) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+                int storedCrc = in.readInt();
+                if (storedCrc != checksum(type, payload, payloadLength)) {
+                    break;
+                }
+                if (!applyRecord(type, ByteBuffer.wrap(payload), tokens)) {
+                    break;
+                }
+                validLength += RECORD_HEADER_BYTES + payloadLength + RECORD_CRC_BYTES;
+                records++;
+            }
+        } catch (EOFException e) {
+            // Torn record at the tail; everything before it is valid
+        }
+
+        if (validLength < logLength) {
+            logger.warn("Discarding {} bytes of incomplete or corrupt records at the tail of {}", logLength - validLength, filePath);
+            logChannel.truncate(validLength);
+        }
+        logChannel.position(validLength);
+
+        recordsSinceSnapshot = records;
+        snapshotRequired = true;
+        logger.debug("Replayed {} records ({} tokens) from write-ahead log: {}", records, tokens.size(), filePath);
+        return new ArrayList<>(tokens);
+    }
+
+    private static boolean applyRecord(byte type, ByteBuffer payload, Deque<TokenElement> tokens) {
+        switch (type) {
+            case RECORD_SNAPSHOT:
+                tokens.clear();
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    tokens.add(readToken(payload));
+                }
+                return true;
+            case RECORD_ADD:
+                removeOldest(tokens, payload.getInt());
+                tokens.add(readToken(payload));
+                return true;
+            case RECORD_EVICT:
+                removeOldest(tokens, payload.getInt());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void removeOldest(Deque<TokenElement> tokens, int count) {
+        for (int i = 0; i < count && !tokens.isEmpty(); i++) {
+            tokens.poll();
+        }
+    }
+
+    private static TokenElement readToken(ByteBuffer payload) {
+        long timeMillis = payload.getLong();
+        int length = payload.getInt();
+        String token = null;
+        if (length != NULL_TOKEN_LENGTH) {
+            token = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+            payload.position(payload.position() + length);
+        }
+        return new TokenElement(token, timeMillis);
+    }
+
+    /**
+     * Check if the next mutation should be persisted with {@link #save(List)} instead of a record.
+     * This is the case right after opening or replaying the log and once the
+     * compaction threshold has been reached.
+     * @return true if a snapshot should be written
+     */
+    @Override
+    public synchronized boolean needsFullSave() {
+        return snapshotRequired || recordsSinceSnapshot >= compactionThreshold;
+    }
+
+    /**
+     * Append an add record.
+     * @param token the added token
+     * @param evictedOldest number of oldest tokens removed to make room for it
+     */
+    @Override
+    public synchronized void append(TokenElement token, int evictedOldest) {
+        byte[] tokenBytes = encodeToken(token);
+        ByteBuffer payload = beginRecord(RECORD_ADD, 4 + tokenSize(tokenBytes));
+        payload.putInt(evictedOldest);
+        putToken(payload, token.getTimeMillis(), tokenBytes);
+        writeRecord(RECORD_ADD);
+    }
+
+    /**
+     * Append an evict record.
+     * @param count number of oldest tokens removed
+     */
+    @Override
+    public synchronized void evict(int count) {
+        ByteBuffer payload = beginRecord(RECORD_EVICT, 4);
+        payload.putInt(count);
+        writeRecord(RECORD_EVICT);
+    }
+
+    /**
+     * Replace the log with a single snapshot record holding the given tokens.
+     * The new log is written to a temporary file, synced and atomically renamed over the old log,
+     * and the directory is synced so that the rename survives a crash.
+     * @param tokens the current tokens from oldest to newest
+     */
+    @Override
+    public synchronized void save(List<TokenElement> tokens) {
+        ensureOpen();
+        try {
+            byte[][] encoded = new byte[tokens.size()][];
+            int payloadLength = 4;
+            for (int i = 0; i < tokens.size(); i++) {
+                encoded[i] = encodeToken(tokens.get(i));
+                payloadLength += tokenSize(encoded[i]);
+            }
+            ByteBuffer payload = beginRecord(RECORD_SNAPSHOT, payloadLength);
+            payload.putInt(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                putToken(payload, tokens.get(i).getTimeMillis(), encoded[i]);
+            }
+            finishRecord(RECORD_SNAPSHOT);
+
+            try (FileChannel tempChannel = FileChannel.open(tempPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(tempChannel, recordBuffer);
+                tempChannel.force(true);
+            }
+            Files.move(tempPath, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Every record is synced, so the rename must be durable as well
+            FilePersistence.syncDirectory(logPath);
+
+            logChannel.close();
+            logChannel = openLog(logPath);
+            recordsSinceSnapshot = 0;
+            snapshotRequired = false;
+            logger.debug("Compacted write-ahead log {} into a snapshot of {} tokens", filePath, tokens.size());
+        } catch (IOException e) {
+            logger.error("Failed to compact write-ahead log: {}. Error: {}", filePath, e.getMessage());
+            reopenAfterFailure();
+        }
+    }
+
+    private ByteBuffer beginRecord(byte type, int payloadLength) {
+        int recordLength = RECORD_HEADER_BYTES + payloadLength + RECORD_CRC_BYTES;
+        if (recordBuffer.capacity() < recordLength) {
+            recordBuffer = ByteBuffer.allocate(Math.max(recordLength, recordBuffer.capacity() * 2));
+        }
+        recordBuffer.clear();
+        recordBuffer.put(type);
+        recordBuffer.putInt(payloadLength);
+        return recordBuffer;
+    }
+
+    private void finishRecord(byte type) {
+        int payloadLength = recordBuffer.position() - RECORD_HEADER_BYTES;
+        recordBuffer.putInt(checksum(type, recordBuffer.array(), RECORD_HEADER_BYTES, payloadLength));
+        recordBuffer.flip();
+    }
+
+    private void writeRecord(byte type) {
+        ensureOpen();
+        finishRecord(type);
+        try {
+            writeFully(logChannel, recordBuffer);
+            logChannel.force(false);
+            recordsSinceSnapshot++;
+        } catch (IOException e) {
+            logger.error("Failed to append to write-ahead log: {}. Error: {}", filePath, e.getMessage());
+            reopenAfterFailure();
+        }
+    }
+
+    private void reopenAfterFailure() {
+        // Whatever reached the log is unknown now; rewrite the full state on the next mutation
+        snapshotRequired = true;
+        try {
+            if (logChannel == null || !logChannel.isOpen()) {
+                logChannel = openLog(logPath);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to reopen write-ahead log: {}. Error: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] encodeToken(TokenElement token) {
+        return token.getToken() == null ? null : token.getToken().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tokenSize(byte[] tokenBytes) {
+        return 8 + 4 + (tokenBytes == null ? 0 : tokenBytes.length);
+    }
+
+    private static void putToken(ByteBuffer buffer, long timeMillis, byte[] tokenBytes) {
+        buffer.putLong(timeMillis);
+        if (tokenBytes == null) {
+            buffer.putInt(NULL_TOKEN_LENGTH);
+        } else {
+            buffer.putInt(tokenBytes.length);
+            buffer.put(tokenBytes);
+        }
+    }
+
+    private int checksum(byte type, byte[] payload, int payloadLength) {
+        return checksum(type, payload, 0, payloadLength);
+    }
+
+    private int checksum(byte type, byte[] bytes, int offset, int length) {
+        crc.reset();
+        crc.update(type);
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private void ensureOpen() {
+        if (logChannel == null) {
+            throw new IllegalStateException("Write-ahead log not initialized. Cannot access data.");
+        }
+    }
+
+    /**
+     * Get the log file path.
+     * @return the file path being used
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Check if the log file exists.
+     * @return true if the file exists, false otherwise
+     */
+    @Override
+    public boolean exists() {
+        return Files.exists(logPath);
+    }
+
+    /**
+     * Delete the log file if it exists.
+     * @return true if file was deleted or didn't exist, false if deletion failed
+     */
+    @Override
+    public boolean delete() {
+        try {
+            Files.deleteIfExists(tempPath);
+            return Files.deleteIfExists(logPath);
+        } catch (IOException e) {
+            logger.error("Failed to delete file: {}. Error: {}", filePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Close the log and release the lock.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (logChannel != null) {
+                logChannel.close();
+                logChannel = null;
+            }
+            if (fileLock != null) {
+                fileLock.release();
+                fileLock = null;
+                logger.debug("File lock released for: {}", filePath);
+            }
+            if (lockFile != null) {
+                lockFile.close();
+                lockFile = null;
+            }
+        } catch (IOException e) {
+            logger.error("Error closing write-ahead log: {}", e.getMessage());
+        }
+    }
+}
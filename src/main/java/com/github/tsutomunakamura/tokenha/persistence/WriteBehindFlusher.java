@@ -0,0 +1,169 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.concurrent.ThreadFactories;
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+
+/**
+ * Coalesces saves for write-behind persistence.
+ * Mutations only mark the state dirty; a background task runs the save action
+ * at most once per interval, so a change is persisted within one interval.
+ * All open flushers share a single daemon scheduler thread, which is shut down when the
+ * last one is closed and started again by the next one. With {@link ThreadMode#VIRTUAL}
+ * the scheduler only dispatches each flush to its own virtual thread, so saves of many
+ * instances blocking on disk neither queue up behind each other nor hold OS threads.
+ */
+public class WriteBehindFlusher implements AutoCloseable {
+
+    private static final Logger logger = TokenHaLogger.getLogger(WriteBehindFlusher.class);
+
+    private static final Object SCHEDULER_LOCK = new Object();
+    private static ScheduledExecutorService scheduler;
+    private static int schedulerUsers; // Open flushers; guarded by SCHEDULER_LOCK
+
+    private final Runnable saveAction;
+    private final long intervalMillis;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final ThreadFactory flushThreadFactory;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * Constructor.
+     * @param saveAction action that reads the current state and saves it
+     * @param intervalMillis flush interval, which is also the maximum staleness of the saved state
+     */
+    public WriteBehindFlusher(Runnable saveAction, long intervalMillis) {
+        this(saveAction, intervalMillis, ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Constructor.
+     * @param saveAction action that reads the current state and saves it
+     * @param intervalMillis flush interval, which is also the maximum staleness of the saved state
+     * @param threadMode {@link ThreadMode#VIRTUAL} to run periodic flushes on virtual threads
+     */
+    public WriteBehindFlusher(Runnable saveAction, long intervalMillis, ThreadMode threadMode) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Write-behind interval must be positive");
+        }
+        this.saveAction = saveAction;
+        this.intervalMillis = intervalMillis;
+        this.flushThreadFactory = threadMode == ThreadMode.VIRTUAL
+            ? ThreadFactories.newThreadFactory("tokenha-write-behind-", ThreadMode.VIRTUAL)
+            : null;
+        Runnable task = flushThreadFactory != null ? this::dispatchFlush : this::flushQuietly;
+        synchronized (SCHEDULER_LOCK) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "tokenha-write-behind");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            schedulerUsers++;
+            this.flushTask = scheduler.scheduleWithFixedDelay(
+                task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void releaseScheduler() {
+        synchronized (SCHEDULER_LOCK) {
+            if (--schedulerUsers == 0) {
+                // A flush that is running completes; the thread then exits
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+    }
+
+    static int getSchedulerUsers() {
+        synchronized (SCHEDULER_LOCK) {
+            return schedulerUsers;
+        }
+    }
+
+    static boolean isSchedulerRunning() {
+        synchronized (SCHEDULER_LOCK) {
+            return scheduler != null;
+        }
+    }
+
+    /**
+     * Record that the state changed and needs to be saved by the next flush.
+     * Never blocks.
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Check if there are changes that have not been saved yet.
+     * @return true if a flush is pending
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Save the state now if it changed since the last flush.
+     * The dirty flag is cleared before the state is read, so a mutation racing
+     * with the flush is picked up by the next one.
+     */
+    public synchronized void flush() {
+        if (dirty.getAndSet(false)) {
+            saveAction.run();
+        }
+    }
+
+    private void dispatchFlush() {
+        // Skip while the previous flush is still saving; it is retried on the next interval
+        if (dirty.get() && flushing.compareAndSet(false, true)) {
+            flushThreadFactory.newThread(() -> {
+                try {
+                    flushQuietly();
+                } finally {
+                    flushing.set(false);
+                }
+            }).start();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Keep the periodic task alive; the state is retried on the next interval
+            dirty.set(true);
+            logger.error("Write-behind flush failed. Retrying in {} ms. Error: {}", intervalMillis, e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the periodic flush and save any pending changes.
+     * Closing the last open flusher shuts the shared scheduler thread down.
+     */
+    @Override
+    public void close() {
+        boolean release = false;
+        synchronized (this) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+                release = true;
+            }
+        }
+        if (release) {
+            releaseScheduler();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Fixed-size ring of token slots and arena bytes in direct {@link ByteBuffer}s outside the Java heap,
+ * shared by all {@link OffHeapTokenSnapshot}s of a queue. Tokens are numbered by a sequence that only
+ * grows; a token lives in slot {@code sequence % slotCount} and its UTF-8 bytes at an absolute arena
+ * position taken modulo the arena size, so both buffers are wrapped in place and never replaced
+ * while the tokens fit.
+ *
+ * Each slot carries the sequence of its token and is written like a seqlock: the sequence is cleared,
+ * the token is written and the sequence is set again. Readers check the sequence before and after
+ * reading, so a snapshot whose slots were reused by later tokens fails with
+ * {@link ConcurrentModificationException} instead of returning another token. Buffers are accessed
+ * with absolute get/put only, so concurrent readers do not share a position.
+ */
+final class DirectTokenRing {
+
+    // Slot layout: sequence (8 bytes), timestamp (8 bytes), absolute arena position (8 bytes), length (4 bytes)
+    private static final int SLOT_BYTES = 32;
+    private static final int TIME_AT = 8;
+    private static final int POSITION_AT = 16;
+    private static final int LENGTH_AT = 24;
+    // Sequence of a slot that was never written or is being written
+    private static final long NO_SEQUENCE = -1;
+    // Slot length of a null token
+    private static final int NULL_LENGTH = -1;
+
+    /** Largest slot count a ring can allocate. */
+    static final int MAX_SLOTS = (Integer.MAX_VALUE - 8) / SLOT_BYTES;
+
+    private final ByteBuffer slots;
+    private final ByteBuffer arena;
+    private final int slotCount;
+    private final int arenaBytes;
+
+    DirectTokenRing(int slotCount, int arenaBytes) {
+        this.slotCount = slotCount;
+        this.arenaBytes = arenaBytes;
+        this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        this.arena = ByteBuffer.allocateDirect(arenaBytes);
+        for (int i = 0; i < slotCount; i++) {
+            slots.putLong(i * SLOT_BYTES, NO_SEQUENCE);
+        }
+    }
+
+    int slotCount() {
+        return slotCount;
+    }
+
+    int arenaBytes() {
+        return arenaBytes;
+    }
+
+    private int base(long sequence) {
+        return (int) (sequence % slotCount) * SLOT_BYTES;
+    }
+
+    /**
+     * Read the token with the given sequence.
+     * @throws ConcurrentModificationException if its slot was reused by a later token
+     */
+    TokenElement element(long sequence) {
+        int base = base(sequence);
+        checkSequence(base, sequence);
+        VarHandle.acquireFence();
+        long timeMillis = slots.getLong(base + TIME_AT);
+        int length = slots.getInt(base + LENGTH_AT);
+        String token = null;
+        if (length != NULL_LENGTH) {
+            int offset = (int) (slots.getLong(base + POSITION_AT) % arenaBytes);
+            if (length < 0 || length > arenaBytes - offset) {
+                // Only a slot that is being rewritten can hold this
+                throw overwritten(sequence);
+            }
+            byte[] bytes = new byte[length];
+            arena.get(offset, bytes);
+            token = new String(bytes, StandardCharsets.UTF_8);
+        }
+        VarHandle.acquireFence();
+        checkSequence(base, sequence);
+        return new TokenElement(token, timeMillis);
+    }
+
+    /**
+     * Read the timestamp of the token with the given sequence.
+     * @throws ConcurrentModificationException if its slot was reused by a later token
+     */
+    long timeMillis(long sequence) {
+        int base = base(sequence);
+        checkSequence(base, sequence);
+        VarHandle.acquireFence();
+        long timeMillis = slots.getLong(base + TIME_AT);
+        VarHandle.acquireFence();
+        checkSequence(base, sequence);
+        return timeMillis;
+    }
+
+    private void checkSequence(int base, long sequence) {
+        if (slots.getLong(base) != sequence) {
+            throw overwritten(sequence);
+        }
+    }
+
+    private static ConcurrentModificationException overwritten(long sequence) {
+        return new ConcurrentModificationException("Token " + sequence + " of this snapshot was overwritten by later tokens");
+    }
+
+    /**
+     * Get the arena position where the bytes of the next token would go, or -1 if writing them
+     * would overwrite the bytes of a token whose slot is kept. Only called by the writer.
+     * @param sequence the sequence of the next token
+     * @param arenaEnd absolute arena position just past the bytes of the newest token
+     * @param length number of bytes of the next token
+     */
+    long positionFor(long sequence, long arenaEnd, int length) {
+        long position = arenaEnd;
+        int offset = (int) (arenaEnd % arenaBytes);
+        if (length > arenaBytes - offset) {
+            // Token bytes are never split, so they start over at the beginning of the arena
+            position += arenaBytes - offset;
+        }
+        // Writing the token reuses the slot of sequence - slotCount; every newer slot keeps its bytes
+        long oldestKept = Math.max(0, sequence - slotCount + 1);
+        long keptFrom = oldestKept < sequence ? slots.getLong(base(oldestKept) + POSITION_AT) : position;
+        return position + length - keptFrom <= arenaBytes ? position : -1;
+    }
+
+    /**
+     * Write a token to its slot and its bytes to the arena. Only called by the writer.
+     * @param position absolute arena position returned by {@link #positionFor(long, long, int)}
+     * @param bytes the UTF-8 bytes of the token, or null for a null token
+     */
+    void write(long sequence, long position, long timeMillis, byte[] bytes) {
+        int base = base(sequence);
+        // Readers of the token that used this slot must see it cleared before its bytes change
+        slots.putLong(base, NO_SEQUENCE);
+        VarHandle.storeStoreFence();
+        if (bytes != null) {
+            arena.put((int) (position % arenaBytes), bytes);
+        }
+        slots.putLong(base + TIME_AT, timeMillis);
+        slots.putLong(base + POSITION_AT, position);
+        slots.putInt(base + LENGTH_AT, bytes == null ? NULL_LENGTH : bytes.length);
+        VarHandle.releaseFence();
+        slots.putLong(base, sequence);
+    }
+
+    /**
+     * Get the number of arena bytes of a token. Only called by the writer.
+     * @return the length, 0 for a null token
+     */
+    int length(long sequence) {
+        return Math.max(slots.getInt(base(sequence) + LENGTH_AT), 0);
+    }
+
+    /**
+     * Copy a token into another ring. Only called by the writer.
+     * @param sequence the sequence of the token in this ring
+     * @param target the ring to copy to
+     * @param targetSequence the sequence of the token in the target ring
+     * @param targetPosition absolute arena position of its bytes in the target ring
+     */
+    void copyTo(long sequence, DirectTokenRing target, long targetSequence, long targetPosition) {
+        int base = base(sequence);
+        int length = slots.getInt(base + LENGTH_AT);
+        byte[] bytes = null;
+        if (length != NULL_LENGTH) {
+            bytes = new byte[length];
+            arena.get((int) (slots.getLong(base + POSITION_AT) % arenaBytes), bytes);
+        }
+        target.write(targetSequence, targetPosition, slots.getLong(base + TIME_AT), bytes);
+    }
+}
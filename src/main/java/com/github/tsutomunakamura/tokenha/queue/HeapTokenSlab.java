@@ -0,0 +1,87 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Slab keeping slots in primitive arrays and the arena in a byte array on the heap.
+ */
+final class HeapTokenSlab extends TokenSlab {
+
+    static final HeapTokenSlab EMPTY = new HeapTokenSlab(0, 0);
+
+    private final long[] times;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final byte[] arena;
+
+    private HeapTokenSlab(int slots, int arenaBytes) {
+        this.times = new long[slots];
+        this.offsets = new int[slots];
+        this.lengths = new int[slots];
+        this.arena = new byte[arenaBytes];
+    }
+
+    @Override
+    int slotCapacity() {
+        return times.length;
+    }
+
+    @Override
+    int arenaCapacity() {
+        return arena.length;
+    }
+
+    @Override
+    int maxSlots() {
+        return Integer.MAX_VALUE - 8;
+    }
+
+    @Override
+    long timeMillis(int slot) {
+        return times[slot];
+    }
+
+    @Override
+    int offset(int slot) {
+        return offsets[slot];
+    }
+
+    @Override
+    int length(int slot) {
+        return lengths[slot];
+    }
+
+    @Override
+    String token(int slot) {
+        int length = lengths[slot];
+        return length == NULL_LENGTH ? null : new String(arena, offsets[slot], length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    void write(int slot, int position, long timeMillis, byte[] bytes) {
+        times[slot] = timeMillis;
+        offsets[slot] = position;
+        if (bytes == null) {
+            lengths[slot] = NULL_LENGTH;
+        } else {
+            lengths[slot] = bytes.length;
+            System.arraycopy(bytes, 0, arena, position, bytes.length);
+        }
+    }
+
+    @Override
+    TokenSlab allocate(int slots, int arenaBytes) {
+        return new HeapTokenSlab(slots, arenaBytes);
+    }
+
+    @Override
+    void copyTo(TokenSlab target, int from, int count, int arenaStart, int arenaBytes) {
+        HeapTokenSlab heap = (HeapTokenSlab) target;
+        System.arraycopy(times, from, heap.times, 0, count);
+        System.arraycopy(lengths, from, heap.lengths, 0, count);
+        System.arraycopy(arena, arenaStart, heap.arena, 0, arenaBytes);
+        for (int i = 0; i < count; i++) {
+            heap.offsets[i] = offsets[from + i] - arenaStart;
+        }
+    }
+}
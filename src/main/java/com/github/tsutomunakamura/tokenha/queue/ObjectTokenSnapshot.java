@@ -0,0 +1,77 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Snapshot keeping the {@link TokenElement}s themselves in an append-only array.
+ */
+final class ObjectTokenSnapshot extends TokenSnapshot {
+
+    static final ObjectTokenSnapshot EMPTY = new ObjectTokenSnapshot(new TokenElement[0], 0, 0);
+
+    private final TokenElement[] elements;
+    private final int start;
+    private final int end;
+
+    private ObjectTokenSnapshot(TokenElement[] elements, int start, int end) {
+        this.elements = elements;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int size() {
+        return end - start;
+    }
+
+    @Override
+    public TokenElement get(int index) {
+        checkIndex(index, end - start);
+        return elements[end - 1 - index];
+    }
+
+    @Override
+    public TokenElement newest() {
+        return end > start ? elements[end - 1] : null;
+    }
+
+    @Override
+    public TokenElement getFromOldest(int index) {
+        checkIndex(index, end - start);
+        return elements[start + index];
+    }
+
+    @Override
+    public TokenSnapshot withNewest(TokenElement token, int capacityHint) {
+        if (end < elements.length) {
+            // The slot is outside the window of this and every earlier snapshot
+            elements[end] = token;
+            return new ObjectTokenSnapshot(elements, start, end + 1);
+        }
+        int size = end - start;
+        TokenElement[] grown = new TokenElement[slotCount(size, capacityHint)];
+        System.arraycopy(elements, start, grown, 0, size);
+        grown[size] = token;
+        return new ObjectTokenSnapshot(grown, 0, size + 1);
+    }
+
+    @Override
+    public TokenSnapshot withoutOldest(int count) {
+        if (count <= 0) {
+            return this;
+        }
+        if (count >= end - start) {
+            return EMPTY;
+        }
+        return new ObjectTokenSnapshot(elements, start + count, end);
+    }
+
+    @Override
+    public List<TokenElement> toAscendingList() {
+        return new ArrayList<>(Arrays.asList(elements).subList(start, end));
+    }
+}
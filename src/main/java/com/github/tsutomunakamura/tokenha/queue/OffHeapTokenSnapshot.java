@@ -0,0 +1,112 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.nio.charset.StandardCharsets;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Snapshot keeping tokens in the {@link DirectTokenRing} of its queue, outside the Java heap.
+ * The window is a range of token sequences, so adding and removing tokens moves its ends and
+ * wraps the ring in place. A ring is only replaced when the tokens no longer fit, which happens
+ * when the queue or its token lengths grow, not as more tokens pass through it.
+ *
+ * The ring holds twice the capacity hint in slots, so a snapshot stays readable until about that many
+ * tokens have been added after it; reading it later throws {@link java.util.ConcurrentModificationException}.
+ */
+final class OffHeapTokenSnapshot extends TokenSnapshot {
+
+    static final OffHeapTokenSnapshot EMPTY = new OffHeapTokenSnapshot(null, 0, 0, 0);
+
+    private static final int MIN_ARENA_BYTES = 64;
+    private static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 8;
+
+    // Null only for the empty snapshot no token was ever added to
+    private final DirectTokenRing ring;
+    private final long start;
+    private final long end;
+    // Absolute arena position just past the bytes of the newest token
+    private final long arenaEnd;
+
+    private OffHeapTokenSnapshot(DirectTokenRing ring, long start, long end, long arenaEnd) {
+        this.ring = ring;
+        this.start = start;
+        this.end = end;
+        this.arenaEnd = arenaEnd;
+    }
+
+    DirectTokenRing ring() {
+        return ring;
+    }
+
+    @Override
+    public int size() {
+        return (int) (end - start);
+    }
+
+    @Override
+    public TokenElement getFromOldest(int index) {
+        checkIndex(index, size());
+        return ring.element(start + index);
+    }
+
+    @Override
+    public long timeMillisFromOldest(int index) {
+        checkIndex(index, size());
+        return ring.timeMillis(start + index);
+    }
+
+    @Override
+    public TokenSnapshot withNewest(TokenElement token, int capacityHint) {
+        byte[] bytes = token.getToken() == null ? null : token.getToken().getBytes(StandardCharsets.UTF_8);
+        int length = bytes == null ? 0 : bytes.length;
+        if (ring != null && end - start < ring.slotCount()) {
+            long position = ring.positionFor(end, arenaEnd, length);
+            if (position >= 0) {
+                ring.write(end, position, token.getTimeMillis(), bytes);
+                return new OffHeapTokenSnapshot(ring, start, end + 1, position + length);
+            }
+        }
+
+        int size = size();
+        if (size >= DirectTokenRing.MAX_SLOTS) {
+            throw new IllegalStateException("Token storage cannot hold more than " + DirectTokenRing.MAX_SLOTS + " tokens");
+        }
+        long liveBytes = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            liveBytes += ring.length(sequence);
+        }
+        int slots = Math.min(slotCount(size, capacityHint), DirectTokenRing.MAX_SLOTS);
+        // Size the arena for the bytes of every slot at the current average token length, at least twice the live bytes
+        long average = (liveBytes + length) / (size + 1) + 1;
+        long arenaBytes = Math.max(MIN_ARENA_BYTES, Math.max(2 * (liveBytes + length), average * slots));
+        if (ring != null && slots <= ring.slotCount()) {
+            // The arena was too small for the tokens kept in the ring
+            arenaBytes = Math.max(arenaBytes, 2L * ring.arenaBytes());
+            slots = ring.slotCount();
+        }
+        if (arenaBytes > MAX_ARENA_BYTES) {
+            arenaBytes = Math.max(2 * (liveBytes + length), MAX_ARENA_BYTES);
+        }
+        if (arenaBytes > MAX_ARENA_BYTES) {
+            throw new IllegalStateException("Token storage cannot hold more than " + MAX_ARENA_BYTES / 2 + " bytes of tokens");
+        }
+
+        DirectTokenRing grown = new DirectTokenRing(slots, (int) arenaBytes);
+        long position = 0;
+        for (int i = 0; i < size; i++) {
+            ring.copyTo(start + i, grown, i, position);
+            position += ring.length(start + i);
+        }
+        grown.write(size, position, token.getTimeMillis(), bytes);
+        return new OffHeapTokenSnapshot(grown, 0, size + 1, position + length);
+    }
+
+    @Override
+    public TokenSnapshot withoutOldest(int count) {
+        if (count <= 0 || start == end) {
+            return this;
+        }
+        // An emptied queue keeps its ring, so it is not allocated again by the next token
+        return new OffHeapTokenSnapshot(ring, Math.min(start + count, end), end, arenaEnd);
+    }
+}
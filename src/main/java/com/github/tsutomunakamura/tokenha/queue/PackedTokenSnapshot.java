@@ -0,0 +1,93 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.nio.charset.StandardCharsets;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Snapshot keeping timestamps in fixed-size slots and the UTF-8 bytes of all tokens
+ * in one append-only arena of a {@link TokenSlab}, so a token costs 16 bytes of slot data
+ * plus its encoded length instead of a {@link TokenElement}, a String and its byte array.
+ * Elements are created on each read; timestamps can be read without creating them.
+ */
+final class PackedTokenSnapshot extends TokenSnapshot {
+
+    static final PackedTokenSnapshot EMPTY = new PackedTokenSnapshot(HeapTokenSlab.EMPTY, 0, 0, 0);
+
+    private static final int MIN_ARENA_BYTES = 64;
+
+    private final TokenSlab slab;
+    private final int start;
+    private final int end;
+    // Arena position just past the bytes of the newest token
+    private final int arenaEnd;
+
+    private PackedTokenSnapshot(TokenSlab slab, int start, int end, int arenaEnd) {
+        this.slab = slab;
+        this.start = start;
+        this.end = end;
+        this.arenaEnd = arenaEnd;
+    }
+
+    @Override
+    public int size() {
+        return end - start;
+    }
+
+    @Override
+    public TokenElement getFromOldest(int index) {
+        checkIndex(index, end - start);
+        int slot = start + index;
+        return new TokenElement(slab.token(slot), slab.timeMillis(slot));
+    }
+
+    @Override
+    public long timeMillisFromOldest(int index) {
+        checkIndex(index, end - start);
+        return slab.timeMillis(start + index);
+    }
+
+    @Override
+    public TokenSnapshot withNewest(TokenElement token, int capacityHint) {
+        byte[] bytes = token.getToken() == null ? null : token.getToken().getBytes(StandardCharsets.UTF_8);
+        int length = bytes == null ? 0 : bytes.length;
+        if (end < slab.slotCapacity() && length <= slab.arenaCapacity() - arenaEnd) {
+            // The slot and the bytes are outside the window of this and every earlier snapshot
+            slab.write(end, arenaEnd, token.getTimeMillis(), bytes);
+            return new PackedTokenSnapshot(slab, start, end + 1, arenaEnd + length);
+        }
+
+        int size = end - start;
+        if (size >= slab.maxSlots()) {
+            throw new IllegalStateException("Token storage cannot hold more than " + slab.maxSlots() + " tokens");
+        }
+        int liveStart = size > 0 ? slab.offset(start) : arenaEnd;
+        int liveBytes = arenaEnd - liveStart;
+        int slots = Math.min(slotCount(size, capacityHint), slab.maxSlots());
+        // Size the arena for the slots at the current average token length, at least twice the live bytes
+        long average = (liveBytes + length) / (size + 1) + 1;
+        long arenaBytes = Math.max(MIN_ARENA_BYTES, Math.max(2L * (liveBytes + length), average * slots));
+        if (arenaBytes > Integer.MAX_VALUE - 8) {
+            arenaBytes = Math.max(liveBytes + (long) length, Integer.MAX_VALUE - 8);
+        }
+        if (arenaBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Token storage cannot hold more than " + (Integer.MAX_VALUE - 8) + " bytes of tokens");
+        }
+
+        TokenSlab grown = slab.allocate(slots, (int) arenaBytes);
+        slab.copyTo(grown, start, size, liveStart, liveBytes);
+        grown.write(size, liveBytes, token.getTimeMillis(), bytes);
+        return new PackedTokenSnapshot(grown, 0, size + 1, liveBytes + length);
+    }
+
+    @Override
+    public TokenSnapshot withoutOldest(int count) {
+        if (count <= 0) {
+            return this;
+        }
+        if (count >= end - start) {
+            return EMPTY;
+        }
+        return new PackedTokenSnapshot(slab, start + count, end, arenaEnd);
+    }
+}
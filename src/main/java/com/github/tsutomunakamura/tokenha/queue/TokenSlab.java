@@ -0,0 +1,55 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+/**
+ * Append-only backing storage of a {@link PackedTokenSnapshot}: fixed-size slots holding the
+ * timestamp, arena offset and length of each token, plus an arena holding the UTF-8 bytes.
+ * Slots and arena bytes are written once, past the window of every snapshot sharing the slab.
+ */
+abstract class TokenSlab {
+
+    // Slot length of a null token
+    static final int NULL_LENGTH = -1;
+
+    abstract int slotCapacity();
+
+    abstract int arenaCapacity();
+
+    /**
+     * @return the largest slot capacity this kind of slab can allocate
+     */
+    abstract int maxSlots();
+
+    abstract long timeMillis(int slot);
+
+    abstract int offset(int slot);
+
+    abstract int length(int slot);
+
+    /**
+     * Decode the token of a slot.
+     * @return the token, or null if a null token was written to the slot
+     */
+    abstract String token(int slot);
+
+    /**
+     * Write a token to a slot and its bytes to the arena.
+     * @param bytes the UTF-8 bytes of the token, or null for a null token
+     */
+    abstract void write(int slot, int position, long timeMillis, byte[] bytes);
+
+    /**
+     * Allocate an empty slab of the same kind.
+     */
+    abstract TokenSlab allocate(int slots, int arenaBytes);
+
+    /**
+     * Copy slots and their arena bytes to the start of a slab of the same kind,
+     * rebasing the offsets to the start of the target arena.
+     * @param target a slab created by {@link #allocate(int, int)}
+     * @param from first slot to copy
+     * @param count number of slots to copy
+     * @param arenaStart arena offset of the first copied slot
+     * @param arenaBytes number of arena bytes to copy
+     */
+    abstract void copyTo(TokenSlab target, int from, int count, int arenaStart, int arenaBytes);
+}
@@ -0,0 +1,217 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.github.tsutomunakamura.tokenha.config.TokenStorage;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Immutable FIFO of tokens, exposed as a read-only list in descending order (newest to oldest).
+ *
+ * Snapshots are versions of append-only storage: a snapshot only reads its own window
+ * {@code [start, end)}, adding a token writes the slot just past the window and removing
+ * the oldest tokens moves the start. Both return a new snapshot in O(1), and every earlier
+ * snapshot keeps seeing exactly the tokens it was created with. When the storage is full the
+ * live window is copied into new storage sized from the capacity hint, so the copying cost
+ * is amortized to O(1) per added token.
+ *
+ * Mutations must always be applied to the latest snapshot, which callers guarantee by
+ * serializing them; reads are safe from any thread once a snapshot is safely published.
+ * The storage layout is chosen by {@link TokenStorage}. {@link TokenStorage#OFF_HEAP} snapshots
+ * are the exception to the above: they share one fixed-size ring per queue that is wrapped in place,
+ * so a snapshot outlived by more additions than the ring holds throws
+ * {@link java.util.ConcurrentModificationException} on reads.
+ */
+public abstract class TokenSnapshot extends AbstractList<TokenElement> implements RandomAccess {
+
+    // Created on first use; racing readers may each create one, which is harmless
+    private List<TokenElement> descending;
+
+    TokenSnapshot() {
+    }
+
+    /**
+     * Get the empty snapshot.
+     * @return a snapshot without tokens
+     */
+    public static TokenSnapshot empty() {
+        return ObjectTokenSnapshot.EMPTY;
+    }
+
+    /**
+     * Get the empty snapshot of a storage layout.
+     * @param storage the storage layout of the snapshots derived from it
+     * @return a snapshot without tokens
+     */
+    public static TokenSnapshot empty(TokenStorage storage) {
+        switch (storage) {
+            case PACKED:
+                return PackedTokenSnapshot.EMPTY;
+            case OFF_HEAP:
+                return OffHeapTokenSnapshot.EMPTY;
+            default:
+                return ObjectTokenSnapshot.EMPTY;
+        }
+    }
+
+    /**
+     * Create a snapshot holding the given tokens.
+     * @param ascending the tokens from oldest to newest
+     * @param capacityHint the maximum number of tokens the queue will hold
+     * @return a new snapshot
+     */
+    public static TokenSnapshot of(List<TokenElement> ascending, int capacityHint) {
+        return of(ascending, capacityHint, TokenStorage.OBJECTS);
+    }
+
+    /**
+     * Create a snapshot holding the given tokens.
+     * @param ascending the tokens from oldest to newest
+     * @param capacityHint the maximum number of tokens the queue will hold
+     * @param storage the storage layout
+     * @return a new snapshot
+     */
+    public static TokenSnapshot of(List<TokenElement> ascending, int capacityHint, TokenStorage storage) {
+        TokenSnapshot snapshot = empty(storage);
+        for (TokenElement token : ascending) {
+            snapshot = snapshot.withNewest(token, Math.max(capacityHint, ascending.size()));
+        }
+        return snapshot;
+    }
+
+    static int slotCount(int size, int capacityHint) {
+        return Math.max(size + 1, 2 * Math.max(capacityHint, 1));
+    }
+
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Get a token by its position from the newest one.
+     * @param index 0 for the newest token, {@code size() - 1} for the oldest one
+     */
+    @Override
+    public TokenElement get(int index) {
+        checkIndex(index, size());
+        return getFromOldest(size() - 1 - index);
+    }
+
+    /**
+     * Get the newest token.
+     * @return the newest token, or null if the snapshot is empty
+     */
+    public TokenElement newest() {
+        return isEmpty() ? null : getFromOldest(size() - 1);
+    }
+
+    /**
+     * Get a token by its position from the oldest one.
+     * @param index 0 for the oldest token
+     * @return the token
+     */
+    public abstract TokenElement getFromOldest(int index);
+
+    /**
+     * Get the timestamp of a token by its position from the oldest one,
+     * without creating a {@link TokenElement}.
+     * @param index 0 for the oldest token
+     * @return the timestamp in epoch milliseconds
+     */
+    public long timeMillisFromOldest(int index) {
+        return getFromOldest(index).getTimeMillis();
+    }
+
+    /**
+     * Append a token as the newest one.
+     * @param token the token to add
+     * @param capacityHint the maximum number of tokens the queue will hold
+     * @return a snapshot with the token added
+     */
+    public abstract TokenSnapshot withNewest(TokenElement token, int capacityHint);
+
+    /**
+     * Remove the oldest tokens.
+     * @param count number of oldest tokens to remove
+     * @return a snapshot without them
+     */
+    public abstract TokenSnapshot withoutOldest(int count);
+
+    /**
+     * Get a read-only view of the tokens in descending order (newest to oldest).
+     * Unlike the snapshot itself, the view cannot be used to derive new snapshots, so it is
+     * safe to hand out to callers that must not mutate the queue. The view is created once
+     * per snapshot and then reused, so repeated reads of an unchanged queue allocate nothing.
+     * @return the descending view
+     */
+    public List<TokenElement> descending() {
+        List<TokenElement> view = descending;
+        if (view == null) {
+            view = new DescendingView(this);
+            descending = view;
+        }
+        return view;
+    }
+
+    /**
+     * Get a read-only view of the tokens in ascending order (oldest to newest).
+     * The view is backed by this immutable snapshot, so it never changes and costs no copy.
+     * @return the ascending view
+     */
+    public List<TokenElement> ascending() {
+        return new AscendingView(this);
+    }
+
+    /**
+     * Copy the tokens in ascending order (oldest to newest).
+     * @return a new mutable list
+     */
+    public List<TokenElement> toAscendingList() {
+        List<TokenElement> ascending = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            ascending.add(getFromOldest(i));
+        }
+        return ascending;
+    }
+
+    private static final class DescendingView extends AbstractList<TokenElement> implements RandomAccess {
+        private final TokenSnapshot snapshot;
+
+        private DescendingView(TokenSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public TokenElement get(int index) {
+            return snapshot.get(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+
+    private static final class AscendingView extends AbstractList<TokenElement> implements RandomAccess {
+        private final TokenSnapshot snapshot;
+
+        private AscendingView(TokenSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public TokenElement get(int index) {
+            return snapshot.getFromOldest(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.github.tsutomunakamura.tokenha.registry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.config.TokenStorage;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.eviction.Evictable;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionThread;
+import com.github.tsutomunakamura.tokenha.logging.TokenHaLogger;
+import com.github.tsutomunakamura.tokenha.persistence.FilePersistence;
+import com.github.tsutomunakamura.tokenha.persistence.TokenJson;
+import com.github.tsutomunakamura.tokenha.persistence.WriteBehindFlusher;
+import com.github.tsutomunakamura.tokenha.queue.TokenSnapshot;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Token queues of many tenants in one object, keyed by id.
+ *
+ * Every key behaves like its own {@link com.github.tsutomunakamura.tokenha.TokenHa} with the
+ * queue settings of the configuration, but all keys share:
+ * <ul>
+ *   <li>a fixed set of lock stripes ({@code registryLockStripes}); keys of different stripes
+ *       are mutated in parallel and reads never lock,</li>
+ *   <li>one persistence file with one OS lock, holding all queues in one JSON document,</li>
+ *   <li>one registration with {@link EvictionThread}, backed by a deadline-ordered index of the
+ *       keys so a sweep only touches keys with expired tokens.</li>
+ * </ul>
+ * A queue is dropped as soon as it becomes empty, so memory follows the number of keys
+ * holding tokens. Saving rewrites the whole document, so a file-backed registry requires
+ * write-behind persistence ({@code writeBehindIntervalMillis}): adds and evictions only mark
+ * the registry dirty and never serialize the tokens of all keys themselves.
+ */
+public class TokenHaRegistry implements AutoCloseable, Evictable {
+
+    private static final Logger logger = TokenHaLogger.getLogger(TokenHaRegistry.class);
+
+    private final long expirationTimeMillis;
+    private final int numberOfLastTokens;
+    private final int maxTokens;
+    private final long coolTimeToAddMillis;
+    private final boolean enableAutoEvictIfQueueIsFull;
+    private final TokenStorage tokenStorage;
+
+    private final ConcurrentHashMap<String, Queue> queues = new ConcurrentHashMap<>();
+    // Guards the queues of keys hashing to the stripe, including their presence in the map
+    private final Object[] stripes;
+    private final AtomicLong totalTokens = new AtomicLong();
+
+    // Deadline-ordered index of keys, guarded by itself. Taken after a stripe, never before one.
+    // Entries whose time no longer matches the queue are dropped lazily.
+    private final PriorityQueue<ScheduledKey> evictionIndex = new PriorityQueue<>();
+
+    private final FilePersistence filePersistence; // Null in IN_MEMORY mode
+    private final WriteBehindFlusher writeBehindFlusher; // Null in IN_MEMORY mode
+
+    /**
+     * Constructor with custom configuration.
+     * The queue settings, persistence file, write-behind interval and eviction thread
+     * configuration apply to the registry as a whole.
+     * @throws IllegalArgumentException if the persistence mode is neither {@code JSON_FILE} nor
+     *         {@code IN_MEMORY}, or if a {@code JSON_FILE} registry is not configured for write-behind
+     */
+    public TokenHaRegistry(TokenHaConfig config) throws IOException {
+        if (config == null) {
+            throw new IllegalArgumentException("Configuration cannot be null");
+        }
+        this.expirationTimeMillis = config.getExpirationTimeMillis();
+        this.numberOfLastTokens = config.getNumberOfLastTokens();
+        this.maxTokens = config.getMaxTokens();
+        this.coolTimeToAddMillis = config.getCoolTimeToAddMillis();
+        this.enableAutoEvictIfQueueIsFull = config.isEnableAutoEvictIfQueueIsFull();
+        this.tokenStorage = config.getTokenStorage();
+
+        this.stripes = new Object[config.getRegistryLockStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+
+        if (config.getPersistenceMode() == PersistenceMode.IN_MEMORY) {
+            this.filePersistence = null;
+            this.writeBehindFlusher = null;
+        } else {
+            if (config.getPersistenceMode() != PersistenceMode.JSON_FILE) {
+                throw new IllegalArgumentException("Persistence mode " + config.getPersistenceMode()
+                    + " is not supported by the registry; use JSON_FILE or IN_MEMORY");
+            }
+            if (!config.isWriteBehindEnabled()) {
+                // A synchronous save would serialize every key on every add and eviction
+                throw new IllegalArgumentException("A file-backed registry requires writeBehindIntervalMillis > 0");
+            }
+            this.filePersistence = new FilePersistence(config);
+            this.writeBehindFlusher = new WriteBehindFlusher(this::saveNow, config.getWriteBehindIntervalMillis(),
+                config.getThreadMode());
+        }
+
+        EvictionThread.getInstance(config.getEvictionThreadConfig()).register(this);
+    }
+
+    private Object stripeFor(String key) {
+        int hash = key.hashCode();
+        // Spread the high bits like HashMap so that similar keys land on different stripes
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static void requireKey(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+    }
+
+    /**
+     * Add a token to the queue of a key if its cooldown period has passed.
+     * Creates the queue on the first token.
+     *
+     * @param key the tenant id
+     * @param token the token string to add
+     * @return true if token was added, false if cooldown period has not passed or queue is full and auto-eviction is disabled
+     */
+    public boolean addIfAvailable(String key, String token) {
+        requireKey(key);
+        long now = System.currentTimeMillis();
+        synchronized (stripeFor(key)) {
+            Queue queue = queues.get(key);
+            TokenSnapshot current = queue != null ? queue.tokens : TokenSnapshot.empty(tokenStorage);
+            if (queue != null) {
+                if (now - queue.lastAcceptedTimeMillis < coolTimeToAddMillis) {
+                    return false;
+                }
+                if (!current.isEmpty() && current.timeMillisFromOldest(current.size() - 1) > now) {
+                    // The clock went backwards; reject to keep the queue in time order
+                    return false;
+                }
+            }
+
+            boolean filled = current.size() >= maxTokens;
+            if (filled && !enableAutoEvictIfQueueIsFull) {
+                return false;
+            }
+            int evicted = filled ? 1 : 0;
+
+            if (queue == null) {
+                queue = new Queue();
+                queues.put(key, queue);
+            }
+            queue.tokens = current.withoutOldest(evicted).withNewest(new TokenElement(token, now), maxTokens);
+            queue.lastAcceptedTimeMillis = now;
+            totalTokens.addAndGet(1 - evicted);
+            schedule(key, queue);
+        }
+        persist();
+        return true;
+    }
+
+    /**
+     * Get the newest token of a key.
+     * Wait-free: reads the published snapshot without taking a lock.
+     * @return the newest token, or null if the key holds no tokens
+     */
+    public TokenElement newestToken(String key) {
+        requireKey(key);
+        Queue queue = queues.get(key);
+        return queue != null ? queue.tokens.newest() : null;
+    }
+
+    /**
+     * Get the tokens of a key in descending order (newest to oldest).
+     * Wait-free; the returned list is a read-only view of an immutable snapshot.
+     * @return the tokens, empty if the key holds no tokens
+     */
+    public List<TokenElement> getDescList(String key) {
+        requireKey(key);
+        Queue queue = queues.get(key);
+        return queue != null ? queue.tokens.descending() : List.of();
+    }
+
+    /**
+     * Get the queue size of a key.
+     * Wait-free: reads the published snapshot without taking a lock.
+     */
+    public int getQueueSize(String key) {
+        requireKey(key);
+        Queue queue = queues.get(key);
+        return queue != null ? queue.tokens.size() : 0;
+    }
+
+    /**
+     * Get the number of tokens held by all keys.
+     */
+    @Override
+    public int getQueueSize() {
+        return (int) Math.min(Integer.MAX_VALUE, totalTokens.get());
+    }
+
+    /**
+     * Get the number of keys holding tokens.
+     */
+    public int getKeyCount() {
+        return queues.size();
+    }
+
+    /**
+     * Get all keys currently holding tokens.
+     * @return an unmodifiable copy of the keys
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(new ArrayList<>(queues.keySet()));
+    }
+
+    /**
+     * Check if the queue of a key is filled to capacity.
+     */
+    public boolean isFilled(String key) {
+        return getQueueSize(key) >= maxTokens;
+    }
+
+    /**
+     * Check if a token can be added to the queue of a key, with the same rules as
+     * {@link com.github.tsutomunakamura.tokenha.TokenHa#availableToAdd()}.
+     */
+    public boolean availableToAdd(String key) {
+        requireKey(key);
+        Queue queue = queues.get(key);
+        if (queue == null) {
+            return true;
+        }
+        boolean passedCoolTime = System.currentTimeMillis() - queue.lastAcceptedTimeMillis >= coolTimeToAddMillis;
+        return passedCoolTime && (enableAutoEvictIfQueueIsFull || queue.tokens.size() < maxTokens);
+    }
+
+    /**
+     * Drop all tokens of a key.
+     * @return true if the key held tokens
+     */
+    public boolean remove(String key) {
+        requireKey(key);
+        synchronized (stripeFor(key)) {
+            Queue queue = queues.remove(key);
+            if (queue == null) {
+                return false;
+            }
+            totalTokens.addAndGet(-queue.tokens.size());
+            // The index entry is dropped lazily since the queue is gone
+        }
+        persist();
+        return true;
+    }
+
+    /**
+     * Get the earliest time at which a token of any key expires.
+     */
+    @Override
+    public long nextEvictionDeadlineMillis() {
+        synchronized (evictionIndex) {
+            ScheduledKey head = evictionIndex.peek();
+            return head != null ? head.atMillis : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Evict expired tokens of every key whose deadline has passed.
+     * Only keys at the head of the eviction index are visited.
+     * @return the evicted tokens of all keys, or null if none expired
+     */
+    @Override
+    public List<TokenElement> evictExpiredTokens() {
+        long now = System.currentTimeMillis();
+        List<ScheduledKey> due = new ArrayList<>();
+        synchronized (evictionIndex) {
+            while (!evictionIndex.isEmpty() && evictionIndex.peek().atMillis <= now) {
+                due.add(evictionIndex.poll());
+            }
+        }
+
+        List<TokenElement> evicted = new ArrayList<>();
+        for (ScheduledKey entry : due) {
+            synchronized (stripeFor(entry.key)) {
+                Queue queue = queues.get(entry.key);
+                if (queue == null || queue.scheduledAtMillis != entry.atMillis) {
+                    continue;
+                }
+                queue.scheduledAtMillis = Long.MAX_VALUE;
+                evictExpired(entry.key, queue, now, evicted);
+            }
+        }
+
+        if (evicted.isEmpty()) {
+            return null;
+        }
+        persist();
+        return evicted;
+    }
+
+    /**
+     * Remove the expired prefix of a queue and reschedule it. Must hold the stripe of the key.
+     */
+    private void evictExpired(String key, Queue queue, long now, List<TokenElement> evicted) {
+        TokenSnapshot current = queue.tokens;
+        int removable = current.size() - numberOfLastTokens;
+        int count = 0;
+        while (count < removable && now - current.timeMillisFromOldest(count) > expirationTimeMillis) {
+            evicted.add(current.getFromOldest(count));
+            count++;
+        }
+        if (count > 0) {
+            current = current.withoutOldest(count);
+            totalTokens.addAndGet(-count);
+            if (current.isEmpty()) {
+                // Nothing left to cool down from, like an emptied TokenHa
+                queues.remove(key);
+                return;
+            }
+            queue.tokens = current;
+        }
+        schedule(key, queue);
+    }
+
+    /**
+     * Put a key into the eviction index if its deadline is earlier than the scheduled one.
+     * Must hold the stripe of the key.
+     */
+    private void schedule(String key, Queue queue) {
+        TokenSnapshot current = queue.tokens;
+        if (current.size() <= numberOfLastTokens) {
+            return;
+        }
+        long oldest = current.timeMillisFromOldest(0);
+        long deadline = oldest > Long.MAX_VALUE - expirationTimeMillis - 1
+            ? Long.MAX_VALUE : oldest + expirationTimeMillis + 1;
+        // A later deadline is found when the earlier entry is polled, so it is not pushed here
+        if (deadline < queue.scheduledAtMillis) {
+            queue.scheduledAtMillis = deadline;
+            synchronized (evictionIndex) {
+                evictionIndex.add(new ScheduledKey(key, deadline));
+            }
+        }
+    }
+
+    /**
+     * Load all queues from the persistence file, replacing the queues of the loaded keys.
+     * Keys with more than {@code maxTokens} tokens keep the newest ones.
+     */
+    public void loadFromFile() throws IOException {
+        if (filePersistence == null) {
+            return;
+        }
+        Map<String, List<TokenElement>> loadedQueues;
+        try (Reader in = filePersistence.openReader()) {
+            loadedQueues = TokenJson.readQueues(in, maxTokens);
+        } catch (JsonSyntaxException e) {
+            logger.warn("Error parsing JSON: {}", e.getMessage());
+            return;
+        }
+        for (Map.Entry<String, List<TokenElement>> entry : loadedQueues.entrySet()) {
+            List<TokenElement> loaded = entry.getValue();
+            if (loaded.isEmpty()) {
+                continue;
+            }
+            synchronized (stripeFor(entry.getKey())) {
+                Queue queue = new Queue();
+                queue.tokens = TokenSnapshot.of(loaded, maxTokens, tokenStorage);
+                queue.lastAcceptedTimeMillis = queue.tokens.timeMillisFromOldest(queue.tokens.size() - 1);
+                Queue previous = queues.put(entry.getKey(), queue);
+                totalTokens.addAndGet(queue.tokens.size() - (previous != null ? previous.tokens.size() : 0));
+                schedule(entry.getKey(), queue);
+            }
+        }
+        logger.debug("Loaded {} keys from file", loadedQueues.size());
+    }
+
+    /**
+     * Mark the queues dirty so that the write-behind flusher saves them.
+     */
+    private void persist() {
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.markDirty();
+        }
+    }
+
+    private void saveNow() {
+        // Snapshot under the file lock so that a later save never writes an older snapshot
+        filePersistence.save(out -> TokenJson.writeQueues(snapshotQueues(), out));
+    }
+
+    /**
+     * Write pending changes to the persistence file immediately.
+     * Has no effect in {@code IN_MEMORY} mode.
+     */
+    public void flush() {
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.flush();
+        }
+    }
+
+    /**
+     * Serialize all queues to JSON. Each queue is read from its own snapshot,
+     * so the document is consistent per key.
+     * @return JSON string representation of the registry
+     */
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        try {
+            TokenJson.writeQueues(snapshotQueues(), out);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private Map<String, List<TokenElement>> snapshotQueues() {
+        Map<String, List<TokenElement>> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, Queue> entry : queues.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().tokens.ascending());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Check if the persistence file exists.
+     */
+    public boolean persistenceFileExists() {
+        return filePersistence != null && filePersistence.fileExists();
+    }
+
+    /**
+     * Unregister from the eviction thread, save pending changes and release the persistence file.
+     */
+    @Override
+    public void close() {
+        EvictionThread.getInstance().unregister(this);
+        if (writeBehindFlusher != null) {
+            writeBehindFlusher.close();
+        }
+        if (filePersistence != null) {
+            filePersistence.close();
+        }
+    }
+
+    /**
+     * Tokens of one key. Mutated only while holding the stripe of the key;
+     * the snapshot is volatile so reads need no lock.
+     */
+    private static final class Queue {
+        private volatile TokenSnapshot tokens;
+        private volatile long lastAcceptedTimeMillis;
+        private long scheduledAtMillis = Long.MAX_VALUE;
+    }
+
+    private static final class ScheduledKey implements Comparable<ScheduledKey> {
+        private final String key;
+        private final long atMillis;
+
+        ScheduledKey(String key, long atMillis) {
+            this.key = key;
+            this.atMillis = atMillis;
+        }
+
+        @Override
+        public int compareTo(ScheduledKey other) {
+            return Long.compare(atMillis, other.atMillis);
+        }
+    }
+}
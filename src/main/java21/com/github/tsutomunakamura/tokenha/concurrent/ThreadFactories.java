@@ -0,0 +1,64 @@
+package com.github.tsutomunakamura.tokenha.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+
+/**
+ * Creates the threads used for background work.
+ *
+ * This is the Java 21 variant packaged under {@code META-INF/versions/21} of the
+ * multi-release jar. {@link ThreadMode#VIRTUAL} creates virtual threads, so threads
+ * blocked on saves or fsyncs do not each hold an OS thread.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * Check if {@link ThreadMode#VIRTUAL} creates virtual threads on this runtime.
+     * @return true on Java 21 or later with the multi-release jar
+     */
+    public static boolean isVirtualThreadSupported() {
+        return true;
+    }
+
+    /**
+     * Create a factory for threads named {@code namePrefix} followed by a counter.
+     * Platform threads are daemon threads so they never keep the JVM alive.
+     * @param namePrefix prefix of the thread names
+     * @param mode kind of threads to create
+     * @return a new thread factory
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix, ThreadMode mode) {
+        if (mode == ThreadMode.VIRTUAL) {
+            return Thread.ofVirtual().name(namePrefix, 1).factory();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Create an executor for tasks that may block on I/O.
+     * Platform threads are pooled, at most {@code parallelism} of them;
+     * with virtual threads every task gets its own thread and callers bound the concurrency.
+     * @param namePrefix prefix of the thread names
+     * @param parallelism maximum number of pooled platform threads
+     * @param mode kind of threads to create
+     * @return a new executor
+     */
+    public static ExecutorService newWorkerPool(String namePrefix, int parallelism, ThreadMode mode) {
+        if (mode == ThreadMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(newThreadFactory(namePrefix, mode));
+        }
+        return Executors.newFixedThreadPool(parallelism, newThreadFactory(namePrefix, mode));
+    }
+}
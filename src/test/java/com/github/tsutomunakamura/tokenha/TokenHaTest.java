@@ -4,10 +4,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.List;
 
@@ -21,6 +23,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import com.github.tsutomunakamura.tokenha.config.EvictionThreadConfig;
 import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
 import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionThread;
 
 /**
  * Test class for TokenHa.
@@ -360,6 +363,152 @@ public class TokenHaTest {
         assertEquals(token1, tokenHa.newestToken().getToken(), "Only first token should be present");
     }
 
+    @Test
+    @DisplayName("addIfAvailable() should accept exactly one token when many threads race within the cool time")
+    void addIfAvailable_shouldAcceptOneToken_whenThreadsRace() throws Exception {
+        // Given
+        int threadCount = 16;
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.atomic.AtomicInteger accepted = new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final String token = "race-token-" + i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    if (tokenHa.addIfAvailable(token)) {
+                        accepted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+
+        // When
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(1, accepted.get(), "Only one racing caller should win the cool time slot");
+        assertEquals(1, tokenHa.getQueueSize(), "Only one token should be in queue");
+    }
+
+    @Test
+    @DisplayName("A claim overtaken by a later one should be rejected rather than break the cool time spacing")
+    void addClaimed_shouldRejectOvertakenClaim_whenCoolTimeIsSet() throws Exception {
+        // Given a token added by a later claim
+        TokenHaConfig coolConfig = config.toBuilder()
+            .coolTimeToAddMillis(1000)
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.IN_MEMORY)
+            .build();
+
+        try (TokenHa coolTokenHa = new TokenHa(coolConfig)) {
+            assertTrue(coolTokenHa.addIfAvailable("later-claim"));
+            long newest = coolTokenHa.newestToken().getTimeMillis();
+            Method addClaimed = TokenHa.class.getDeclaredMethod("addClaimed", String.class, long.class, long.class, long.class);
+            addClaimed.setAccessible(true);
+
+            // When an earlier claim enters the mutation section afterwards
+            boolean added = (boolean) addClaimed.invoke(coolTokenHa, "earlier-claim", newest - 500, newest - 2000, 0L);
+
+            // Then it is rejected and the later claim is kept
+            assertFalse(added);
+            assertEquals(1, coolTokenHa.getQueueSize());
+            assertEquals("later-claim", coolTokenHa.newestToken().getToken());
+            assertFalse(coolTokenHa.availableToAdd());
+        }
+    }
+
+    @Test
+    @DisplayName("addIfAvailable() should accept every token from racing threads without a cool time")
+    void addIfAvailable_shouldAcceptAllTokens_whenThreadsRaceWithoutCoolTime() throws Exception {
+        // Given
+        int threadCount = 8;
+        int addsPerThread = 200;
+        TokenHaConfig raceConfig = config.toBuilder()
+            .coolTimeToAddMillis(0)
+            .maxTokens(threadCount * addsPerThread)
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.IN_MEMORY)
+            .build();
+
+        try (TokenHa raceTokenHa = new TokenHa(raceConfig)) {
+            java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+            java.util.concurrent.atomic.AtomicInteger rejected = new java.util.concurrent.atomic.AtomicInteger();
+            Thread[] threads = new Thread[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                final int thread = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int j = 0; j < addsPerThread; j++) {
+                            if (!raceTokenHa.addIfAvailable("race-token-" + thread + "-" + j)) {
+                                rejected.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                threads[i].start();
+            }
+
+            // When
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Then
+            assertEquals(0, rejected.get(), "No caller should be rejected without a cool time");
+            assertEquals(threadCount * addsPerThread, raceTokenHa.getQueueSize());
+            List<TokenElement> tokens = raceTokenHa.getDescList();
+            for (int i = 1; i < tokens.size(); i++) {
+                assertTrue(tokens.get(i - 1).getTimeMillis() >= tokens.get(i).getTimeMillis(),
+                    "Tokens should stay in time order");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("addIfAvailable() should reject without blocking while another thread holds the monitor")
+    void addIfAvailable_shouldRejectWithoutBlocking_whenMonitorIsHeld() throws Exception {
+        // Given
+        assertTrue(tokenHa.addIfAvailable("token-1"));
+        java.util.concurrent.CountDownLatch locked = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (tokenHa) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+
+        try {
+            // When - the cool time has not passed, so the call must not wait for the monitor
+            long startNanos = System.nanoTime();
+            boolean result = tokenHa.addIfAvailable("token-2");
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+            // Then
+            assertFalse(result, "Token should be rejected due to cool time");
+            assertFalse(tokenHa.passedCoolTimeToAdd(), "Cool time should not have passed");
+            assertTrue(elapsedMillis < 500, "Rejected call should not block on the monitor");
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
     // Test cases for "public boolean availableToAdd()"
 
     @Test
@@ -396,6 +545,23 @@ public class TokenHaTest {
         assertFalse(tokenHa.availableToAdd(), "Should not be available to add due to cool time");
     }
 
+    // Test cases for "public long nextEvictionDeadlineMillis()"
+
+    @Test
+    @DisplayName("nextEvictionDeadlineMillis() should return the expiry of the oldest evictable token")
+    void nextEvictionDeadlineMillis_shouldFollowOldestEvictableToken() throws Exception {
+        assertEquals(Long.MAX_VALUE, tokenHa.nextEvictionDeadlineMillis(), "Empty queue has nothing to evict");
+
+        assertTrue(tokenHa.addIfAvailable("token-1"));
+        assertEquals(Long.MAX_VALUE, tokenHa.nextEvictionDeadlineMillis(),
+            "The last token (numberOfLastTokens=1) is never evicted");
+
+        Thread.sleep(1100);
+        assertTrue(tokenHa.addIfAvailable("token-2"));
+        long oldest = tokenHa.getDescList().get(1).getTimeMillis();
+        assertEquals(oldest + 10000 + 1, tokenHa.nextEvictionDeadlineMillis());
+    }
+
     // Test cases for "public List<TokenElement> evictExpiredTokens()"
 
     @Test
@@ -545,4 +711,405 @@ public class TokenHaTest {
     void getPersistenceFilePath_shouldReturnCorrectPath() {
         assertEquals("test-tokenha-data.json", tokenHa.getPersistenceFilePath(), "Persistence file path should match config");
     }
-}
\ No newline at end of file
+
+    // Test cases for write-behind persistence
+
+    @Test
+    @DisplayName("flush() should write pending tokens to file in write-behind mode")
+    void flush_shouldWritePendingTokens_inWriteBehindMode() throws Exception {
+        TokenHaConfig writeBehindConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-write-behind.json")
+            .writeBehindIntervalMillis(60000)
+            .build();
+        java.nio.file.Path path = java.nio.file.Paths.get("test-tokenha-write-behind.json");
+
+        try (TokenHa writeBehindTokenHa = new TokenHa(writeBehindConfig)) {
+            try {
+                assertTrue(writeBehindTokenHa.addIfAvailable("write-behind-token"));
+                assertFalse(java.nio.file.Files.readString(path).contains("write-behind-token"),
+                    "Token should not be saved before the flush");
+
+                writeBehindTokenHa.flush();
+
+                assertTrue(java.nio.file.Files.readString(path).contains("write-behind-token"),
+                    "Token should be saved after the flush");
+            } finally {
+                writeBehindTokenHa.deletePersistenceFile();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("close() should write pending tokens to file in write-behind mode")
+    void close_shouldWritePendingTokens_inWriteBehindMode() throws Exception {
+        TokenHaConfig writeBehindConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-write-behind.json")
+            .writeBehindIntervalMillis(60000)
+            .build();
+        java.nio.file.Path path = java.nio.file.Paths.get("test-tokenha-write-behind.json");
+
+        try {
+            try (TokenHa writeBehindTokenHa = new TokenHa(writeBehindConfig)) {
+                assertTrue(writeBehindTokenHa.addIfAvailable("write-behind-token"));
+            }
+            assertTrue(java.nio.file.Files.readString(path).contains("write-behind-token"),
+                "Pending token should be saved when the instance is closed");
+        } finally {
+            java.nio.file.Files.deleteIfExists(path);
+        }
+    }
+
+    // Test cases for write-ahead log persistence
+
+    @Test
+    @DisplayName("loadFromFile() should replay tokens written in write-ahead log mode")
+    void loadFromFile_shouldReplayWriteAheadLog() throws Exception {
+        TokenHaConfig walConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-wal.log")
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.WRITE_AHEAD_LOG)
+            .coolTimeToAddMillis(0)
+            .walCompactionThreshold(2)
+            .build();
+
+        try {
+            try (TokenHa walTokenHa = new TokenHa(walConfig)) {
+                for (int i = 1; i <= 5; i++) {
+                    assertTrue(walTokenHa.addIfAvailable("token-" + i));
+                }
+                assertTrue(walTokenHa.persistenceFileExists());
+            }
+
+            try (TokenHa reloaded = new TokenHa(walConfig)) {
+                reloaded.loadFromFile();
+
+                List<TokenElement> descList = reloaded.getDescList();
+                assertEquals(3, descList.size(), "Only maxTokens (3) tokens should be restored");
+                assertEquals("token-5", descList.get(0).getToken());
+                assertEquals("token-4", descList.get(1).getToken());
+                assertEquals("token-3", descList.get(2).getToken());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-wal.log"));
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-wal.log.lock"));
+        }
+    }
+
+    // Test cases for binary file persistence
+
+    @Test
+    @DisplayName("loadFromFile() should restore tokens written in binary file mode")
+    void loadFromFile_shouldRestoreBinaryFile() throws Exception {
+        TokenHaConfig binaryConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-data.bin")
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.BINARY_FILE)
+            .coolTimeToAddMillis(0)
+            .build();
+
+        try {
+            try (TokenHa binaryTokenHa = new TokenHa(binaryConfig)) {
+                for (int i = 1; i <= 5; i++) {
+                    assertTrue(binaryTokenHa.addIfAvailable("token-" + i));
+                }
+            }
+
+            try (TokenHa reloaded = new TokenHa(binaryConfig)) {
+                reloaded.loadFromFile();
+
+                List<TokenElement> descList = reloaded.getDescList();
+                assertEquals(3, descList.size());
+                assertEquals("token-5", descList.get(0).getToken());
+                assertEquals("token-3", descList.get(2).getToken());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-data.bin"));
+        }
+    }
+
+    @Test
+    @DisplayName("loadFromFile() should restore tokens saved atomically")
+    void loadFromFile_shouldRestoreAtomicSaves() throws Exception {
+        TokenHaConfig atomicConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-atomic.json")
+            .atomicSave(true)
+            .coolTimeToAddMillis(0)
+            .build();
+
+        try {
+            try (TokenHa atomicTokenHa = new TokenHa(atomicConfig)) {
+                assertTrue(atomicTokenHa.addIfAvailable("token-1"));
+                assertTrue(atomicTokenHa.addIfAvailable("token-2"));
+            }
+
+            try (TokenHa reloaded = new TokenHa(atomicConfig)) {
+                reloaded.loadFromFile();
+                assertEquals(2, reloaded.getQueueSize());
+                assertEquals("token-2", reloaded.newestToken().getToken());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-atomic.json"));
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-atomic.json.lock"));
+        }
+    }
+
+    // Test cases for memory-mapped ring persistence
+
+    @Test
+    @DisplayName("loadFromFile() should restore tokens written in mapped ring mode")
+    void loadFromFile_shouldRestoreMappedRing() throws Exception {
+        TokenHaConfig ringConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-ring.dat")
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.MAPPED_RING)
+            .coolTimeToAddMillis(0)
+            .mappedSlotSize(32)
+            .build();
+
+        try {
+            try (TokenHa ringTokenHa = new TokenHa(ringConfig)) {
+                for (int i = 1; i <= 5; i++) {
+                    assertTrue(ringTokenHa.addIfAvailable("token-" + i));
+                }
+                assertThrows(IllegalArgumentException.class,
+                    () -> ringTokenHa.addIfAvailable("a token that is longer than one slot"));
+                assertEquals(3, ringTokenHa.getQueueSize(), "Rejected token should not be added");
+                assertTrue(ringTokenHa.passedCoolTimeToAdd(), "Rejected token should release the cooldown claim");
+            }
+
+            try (TokenHa reloaded = new TokenHa(ringConfig)) {
+                reloaded.loadFromFile();
+
+                List<TokenElement> descList = reloaded.getDescList();
+                assertEquals(3, descList.size(), "Only maxTokens (3) tokens should be restored");
+                assertEquals("token-5", descList.get(0).getToken());
+                assertEquals("token-4", descList.get(1).getToken());
+                assertEquals("token-3", descList.get(2).getToken());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-ring.dat"));
+        }
+    }
+
+    // Test cases for packed token storage
+
+    @Test
+    @DisplayName("Packed token storage should behave like object storage")
+    void packedStorage_shouldKeepFifoOrderAndPersist() throws Exception {
+        TokenHaConfig packedConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-packed.json")
+            .coolTimeToAddMillis(0)
+            .tokenStorage(com.github.tsutomunakamura.tokenha.config.TokenStorage.PACKED)
+            .build();
+
+        try {
+            try (TokenHa packed = new TokenHa(packedConfig)) {
+                for (int i = 1; i <= 5; i++) {
+                    assertTrue(packed.addIfAvailable("token-" + i));
+                }
+                assertEquals(3, packed.getQueueSize());
+                assertEquals("token-5", packed.newestToken().getToken());
+                assertEquals(List.of("token-5", "token-4", "token-3"),
+                    packed.getDescList().stream().map(TokenElement::getToken).toList());
+            }
+
+            try (TokenHa reloaded = new TokenHa(packedConfig)) {
+                reloaded.loadFromFile();
+                assertEquals(List.of("token-5", "token-4", "token-3"),
+                    reloaded.getDescList().stream().map(TokenElement::getToken).toList());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("test-tokenha-packed.json"));
+        }
+    }
+
+    @Test
+    @DisplayName("Off-heap token storage should evict expired tokens down to numberOfLastTokens")
+    void offHeapStorage_shouldEvictExpiredTokens() throws Exception {
+        TokenHaConfig offHeapConfig = config.toBuilder()
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.IN_MEMORY)
+            .coolTimeToAddMillis(0)
+            .expirationTimeMillis(50)
+            .tokenStorage(com.github.tsutomunakamura.tokenha.config.TokenStorage.OFF_HEAP)
+            .build();
+
+        try (TokenHa offHeap = new TokenHa(offHeapConfig)) {
+            // Without a registration the eviction thread cannot evict the tokens before this test does
+            EvictionThread.getInstance().unregister(offHeap);
+            for (int i = 1; i <= 3; i++) {
+                assertTrue(offHeap.addIfAvailable("token-" + i));
+            }
+            Thread.sleep(100);
+
+            List<TokenElement> evicted = offHeap.evictExpiredTokens();
+            assertEquals(List.of("token-1", "token-2"), evicted.stream().map(TokenElement::getToken).toList());
+            assertEquals("token-3", offHeap.newestToken().getToken());
+            assertEquals(1, offHeap.getQueueSize());
+        }
+    }
+
+    // Test cases for the token store SPI
+
+    @Test
+    @DisplayName("In-memory mode should not create a persistence file")
+    void inMemoryMode_shouldNotCreateFile() throws Exception {
+        TokenHaConfig memoryConfig = config.toBuilder()
+            .persistenceFilePath("test-tokenha-in-memory.json")
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.IN_MEMORY)
+            .build();
+
+        try (TokenHa memoryTokenHa = new TokenHa(memoryConfig)) {
+            assertTrue(memoryTokenHa.addIfAvailable("token-1"));
+            memoryTokenHa.loadFromFile();
+
+            assertEquals(1, memoryTokenHa.getQueueSize(), "Loading from an in-memory store should keep the queue");
+            assertFalse(memoryTokenHa.persistenceFileExists());
+            assertFalse(java.nio.file.Files.exists(java.nio.file.Paths.get("test-tokenha-in-memory.json")));
+            assertThrows(IllegalStateException.class, () -> memoryTokenHa.setPersistenceFilePath("test-tokenha-other.json"));
+        }
+    }
+
+    @Test
+    @DisplayName("A custom token store factory should receive every mutation")
+    void customTokenStoreFactory_shouldReceiveMutations() throws Exception {
+        List<String> calls = new java.util.ArrayList<>();
+        com.github.tsutomunakamura.tokenha.persistence.TokenStore store =
+            new com.github.tsutomunakamura.tokenha.persistence.InMemoryTokenStore() {
+                @Override
+                public void append(TokenElement token, int evictedOldest) {
+                    calls.add("append " + token.getToken() + " " + evictedOldest);
+                }
+
+                @Override
+                public void close() {
+                    calls.add("close");
+                }
+            };
+        TokenHaConfig customConfig = config.toBuilder()
+            .coolTimeToAddMillis(0)
+            .tokenStoreFactory(c -> store)
+            .build();
+
+        try (TokenHa customTokenHa = new TokenHa(customConfig)) {
+            for (int i = 1; i <= 4; i++) {
+                assertTrue(customTokenHa.addIfAvailable("token-" + i));
+            }
+        }
+
+        assertEquals(List.of("append token-1 0", "append token-2 0", "append token-3 0", "append token-4 1", "close"), calls);
+    }
+
+    @Test
+    @DisplayName("A constructor failing after the token store is created should close the store")
+    void constructor_shouldCloseTokenStore_whenLaterStepFails() throws Exception {
+        // Given a store that fails when metrics are attached
+        List<String> calls = new java.util.ArrayList<>();
+        com.github.tsutomunakamura.tokenha.persistence.TokenStore store =
+            new com.github.tsutomunakamura.tokenha.persistence.InMemoryTokenStore() {
+                @Override
+                public void setMetrics(com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics metrics) {
+                    throw new IllegalStateException("metrics are not supported");
+                }
+
+                @Override
+                public void close() {
+                    calls.add("close");
+                }
+            };
+        TokenHaConfig failingConfig = config.toBuilder()
+            .metricsEnabled(true)
+            .tokenStoreFactory(c -> store)
+            .build();
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> new TokenHa(failingConfig));
+        assertEquals(List.of("close"), calls, "The store should be closed before the exception is rethrown");
+    }
+
+    @Test
+    @DisplayName("Lazy expiration should hide expired tokens from reads and drop them on add")
+    void lazyExpiration_shouldHideExpiredTokens() throws Exception {
+        TokenHaConfig lazyConfig = config.toBuilder()
+            .persistenceMode(com.github.tsutomunakamura.tokenha.config.PersistenceMode.IN_MEMORY)
+            .coolTimeToAddMillis(0)
+            .expirationTimeMillis(100)
+            .enableAutoEvictIfQueueIsFull(false)
+            .lazyExpiration(true)
+            .build();
+
+        try (TokenHa lazyTokenHa = new TokenHa(lazyConfig)) {
+            for (int i = 1; i <= 3; i++) {
+                assertTrue(lazyTokenHa.addIfAvailable("token-" + i));
+            }
+            assertTrue(lazyTokenHa.isFilled());
+            assertFalse(lazyTokenHa.addIfAvailable("rejected"), "A full queue of live tokens should reject adds");
+
+            Thread.sleep(200);
+
+            // Whether or not the eviction thread has run, only the last token stays visible
+            assertEquals(1, lazyTokenHa.getQueueSize(), "numberOfLastTokens=1 should keep the newest token");
+            assertEquals(List.of("token-3"), lazyTokenHa.getDescList().stream().map(TokenElement::getToken).toList());
+            assertEquals("token-3", lazyTokenHa.newestToken().getToken());
+            assertFalse(lazyTokenHa.isFilled());
+
+            assertTrue(lazyTokenHa.addIfAvailable("token-4"), "Expired tokens should not count towards maxTokens");
+            // token-3 is expired and no longer among the last tokens once token-4 is added
+            assertEquals(List.of("token-4"), lazyTokenHa.getDescList().stream().map(TokenElement::getToken).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Metrics should be off by default and record hot-path latencies when enabled")
+    void metrics_shouldRecordLatencies() throws Exception {
+        assertNull(tokenHa.getMetrics(), "Metrics should be disabled by default");
+
+        TokenHaConfig metricsConfig = config.toBuilder()
+            .coolTimeToAddMillis(0)
+            .persistenceFilePath("test-tokenha-metrics.json")
+            .metricsEnabled(true)
+            .build();
+
+        try (TokenHa metricsTokenHa = new TokenHa(metricsConfig)) {
+            try {
+                assertTrue(metricsTokenHa.addIfAvailable("token-1"));
+                assertTrue(metricsTokenHa.addIfAvailable("token-2"));
+                metricsTokenHa.loadFromFile();
+
+                com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics metrics = metricsTokenHa.getMetrics();
+                assertNotNull(metrics);
+                assertEquals(2, metrics.getLockWaitNanos().getCount());
+                assertEquals(2, metrics.getSnapshotRebuildNanos().getCount());
+                assertEquals(2, metrics.getSaveNanos().getCount());
+                assertEquals(2, metrics.getSerializationNanos().getCount());
+                assertEquals(2, metrics.getWriteNanos().getCount());
+                assertEquals(2, metrics.getSyncNanos().getCount());
+                assertEquals(1, metrics.getLoadNanos().getCount());
+                assertTrue(metrics.getSaveNanos().getMax() > 0);
+            } finally {
+                metricsTokenHa.deletePersistenceFile();
+            }
+        }
+    }
+
+    // Test cases for wait-free reads
+
+    @Test
+    @DisplayName("Read methods should not block while the monitor is held by a writer")
+    void readMethods_shouldNotBlock_whileMonitorIsHeld() throws Exception {
+        assertTrue(tokenHa.addIfAvailable("token-1"));
+
+        java.util.concurrent.ExecutorService reader = java.util.concurrent.Executors.newSingleThreadExecutor();
+        try {
+            synchronized (tokenHa) {
+                java.util.concurrent.Future<Integer> result = reader.submit(() -> {
+                    assertEquals("token-1", tokenHa.newestToken().getToken());
+                    assertEquals(1, tokenHa.getDescList().size());
+                    assertFalse(tokenHa.isFilled());
+                    assertFalse(tokenHa.availableToAdd());
+                    return tokenHa.getQueueSize();
+                });
+                assertEquals(1, result.get(5, java.util.concurrent.TimeUnit.SECONDS),
+                    "Readers should complete while another thread holds the monitor");
+            }
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.tsutomunakamura.tokenha.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+
+/**
+ * Test class for ThreadFactories.
+ */
+public class ThreadFactoriesTest {
+
+    @Test
+    @DisplayName("Platform threads should be named daemon threads")
+    void newThreadFactory_shouldCreateNamedDaemonThreads() {
+        ThreadFactory factory = ThreadFactories.newThreadFactory("test-worker-", ThreadMode.PLATFORM);
+
+        Thread first = factory.newThread(() -> {});
+        Thread second = factory.newThread(() -> {});
+
+        assertEquals("test-worker-1", first.getName());
+        assertEquals("test-worker-2", second.getName());
+        assertTrue(first.isDaemon());
+    }
+
+    @Test
+    @DisplayName("Virtual mode should create runnable threads on every supported runtime")
+    void newThreadFactory_shouldRunTasks_inVirtualMode() throws Exception {
+        ThreadFactory factory = ThreadFactories.newThreadFactory("test-virtual-", ThreadMode.VIRTUAL);
+        String[] name = new String[1];
+
+        Thread thread = factory.newThread(() -> name[0] = Thread.currentThread().getName());
+        thread.start();
+        thread.join(5000);
+
+        assertEquals("test-virtual-1", name[0]);
+        // Virtual threads are always daemon threads, so both variants never keep the JVM alive
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    @DisplayName("newWorkerPool() should run tasks in both modes")
+    void newWorkerPool_shouldRunTasks() throws Exception {
+        for (ThreadMode mode : ThreadMode.values()) {
+            ExecutorService pool = ThreadFactories.newWorkerPool("test-pool-", 2, mode);
+            try {
+                Future<String> name = pool.submit(() -> Thread.currentThread().getName());
+                assertTrue(name.get(5, TimeUnit.SECONDS).startsWith("test-pool-"));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -107,4 +107,74 @@ public class EvictionThreadConfigTest {
             assert e.getMessage().contains("Interval must be positive");
         }
     }
+
+    // Test cases for parallelism
+
+    @Test
+    @DisplayName("parallelism should default to 1 and be kept by toBuilder()")
+    void testParallelism() {
+        assert EvictionThreadConfig.defaultConfig().getParallelism() == 1;
+
+        EvictionThreadConfig config = new EvictionThreadConfig.Builder()
+            .parallelism(4)
+            .build();
+        assert config.toBuilder().build().getParallelism() == 4;
+        assert config.toString().contains("parallelism=4");
+
+        try {
+            new EvictionThreadConfig.Builder().parallelism(0);
+            assert false : "Expected IllegalArgumentException for zero parallelism";
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Parallelism must be positive");
+        }
+    }
+
+    @Test
+    @DisplayName("fromProperties() should read parallelism and fall back to default when invalid")
+    void testFromPropertiesWithParallelism() {
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.eviction.parallelism", "3");
+        assert EvictionThreadConfig.fromProperties(props).getParallelism() == 3;
+
+        props.setProperty("tokenha.eviction.parallelism", "-1");
+        assert EvictionThreadConfig.fromProperties(props).getParallelism() == 1;
+    }
+
+    @Test
+    @DisplayName("fromEnvironment() should read TOKENHA_EVICTION_PARALLELISM")
+    void testFromEnvironmentWithParallelism() {
+        environmentVariables.set("TOKENHA_EVICTION_PARALLELISM", "2");
+        assert EvictionThreadConfig.fromEnvironment().getParallelism() == 2;
+    }
+
+    @Test
+    @DisplayName("threadMode should default to PLATFORM and be read from properties and environment")
+    void testThreadMode() {
+        assert EvictionThreadConfig.defaultConfig().getThreadMode() == ThreadMode.PLATFORM;
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.eviction.thread.mode", "virtual");
+        assert EvictionThreadConfig.fromProperties(props).getThreadMode() == ThreadMode.VIRTUAL;
+        assert EvictionThreadConfig.fromProperties(props).toBuilder().build().getThreadMode() == ThreadMode.VIRTUAL;
+
+        props.setProperty("tokenha.eviction.thread.mode", "green");
+        assert EvictionThreadConfig.fromProperties(props).getThreadMode() == ThreadMode.PLATFORM;
+
+        environmentVariables.set("TOKENHA_EVICTION_THREAD_MODE", "VIRTUAL");
+        assert EvictionThreadConfig.fromEnvironment().getThreadMode() == ThreadMode.VIRTUAL;
+    }
+
+    @Test
+    @DisplayName("jmxEnabled should default to false and be read from properties and environment")
+    void testJmxEnabled() {
+        assert !EvictionThreadConfig.defaultConfig().isJmxEnabled();
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.eviction.jmx.enabled", "true");
+        assert EvictionThreadConfig.fromProperties(props).isJmxEnabled();
+        assert EvictionThreadConfig.fromProperties(props).toBuilder().build().isJmxEnabled();
+
+        environmentVariables.set("TOKENHA_EVICTION_JMX_ENABLED", "true");
+        assert EvictionThreadConfig.fromEnvironment().isJmxEnabled();
+    }
 }
@@ -9,6 +9,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 
+import com.github.tsutomunakamura.tokenha.persistence.InMemoryTokenStore;
+import com.github.tsutomunakamura.tokenha.persistence.TokenStoreFactory;
+
 import uk.org.webcompere.systemstubs.environment.EnvironmentVariables;
 import uk.org.webcompere.systemstubs.jupiter.SystemStub;
 import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
@@ -295,6 +298,342 @@ public class TokenHaConfigTest {
         }
     }
 
+    // Test cases for TokenHaConfig.Builder.writeBehindIntervalMillis(long writeBehindIntervalMillis)
+
+    @Test
+    @DisplayName("Builder.writeBehindIntervalMillis() should default to synchronous saves")
+    void testBuilderWriteBehindIntervalDefault() {
+        TokenHaConfig config = TokenHaConfig.defaultConfig();
+        assertEquals(0, config.getWriteBehindIntervalMillis());
+        assert !config.isWriteBehindEnabled();
+
+        TokenHaConfig writeBehindConfig = new TokenHaConfig.Builder().writeBehindIntervalMillis(200).build();
+        assertEquals(200, writeBehindConfig.getWriteBehindIntervalMillis());
+        assert writeBehindConfig.isWriteBehindEnabled();
+        assertEquals(200, writeBehindConfig.toBuilder().build().getWriteBehindIntervalMillis());
+    }
+
+    @Test
+    @DisplayName("Builder.writeBehindIntervalMillis() should throw IllegalArgumentException for negative interval")
+    void testBuilderWriteBehindIntervalValidation() {
+        try {
+            new TokenHaConfig.Builder().writeBehindIntervalMillis(-1);
+            fail("Should throw IllegalArgumentException for negative write-behind interval");
+        } catch (IllegalArgumentException e) {
+            // Expected exception
+            assert e.getMessage().contains("Write-behind interval cannot be negative");
+        }
+    }
+
+    @Test
+    @DisplayName("fromProperties() and fromEnvironment() should read the write-behind interval")
+    void testWriteBehindIntervalFromPropertiesAndEnvironment() {
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.write.behind.interval.millis", "250");
+        assertEquals(250, TokenHaConfig.fromProperties(props).getWriteBehindIntervalMillis());
+
+        environmentVariables.set("TOKENHA_WRITE_BEHIND_INTERVAL_MILLIS", "750");
+        assertEquals(750, TokenHaConfig.fromEnvironment().getWriteBehindIntervalMillis());
+    }
+
+    // Test cases for TokenHaConfig.Builder.persistenceMode(PersistenceMode persistenceMode)
+
+    @Test
+    @DisplayName("Builder.persistenceMode() should default to JSON file and reject null")
+    void testBuilderPersistenceMode() {
+        assertEquals(PersistenceMode.JSON_FILE, TokenHaConfig.defaultConfig().getPersistenceMode());
+
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .persistenceMode(PersistenceMode.WRITE_AHEAD_LOG)
+            .walCompactionThreshold(50)
+            .build();
+        assertEquals(PersistenceMode.WRITE_AHEAD_LOG, config.toBuilder().build().getPersistenceMode());
+        assertEquals(50, config.toBuilder().build().getWalCompactionThreshold());
+
+        try {
+            new TokenHaConfig.Builder().persistenceMode(null);
+            fail("Should throw IllegalArgumentException for null persistence mode");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Persistence mode cannot be null");
+        }
+        try {
+            new TokenHaConfig.Builder().walCompactionThreshold(0);
+            fail("Should throw IllegalArgumentException for zero compaction threshold");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("WAL compaction threshold must be positive and non-zero");
+        }
+    }
+
+    @Test
+    @DisplayName("fromProperties() and fromEnvironment() should read the persistence mode")
+    void testPersistenceModeFromPropertiesAndEnvironment() {
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.persistence.mode", "write-ahead-log");
+        props.setProperty("tokenha.wal.compaction.threshold", "10");
+        TokenHaConfig config = TokenHaConfig.fromProperties(props);
+        assertEquals(PersistenceMode.WRITE_AHEAD_LOG, config.getPersistenceMode());
+        assertEquals(10, config.getWalCompactionThreshold());
+
+        environmentVariables.set("TOKENHA_PERSISTENCE_MODE", "WRITE_AHEAD_LOG");
+        environmentVariables.set("TOKENHA_WAL_COMPACTION_THRESHOLD", "20");
+        config = TokenHaConfig.fromEnvironment();
+        assertEquals(PersistenceMode.WRITE_AHEAD_LOG, config.getPersistenceMode());
+        assertEquals(20, config.getWalCompactionThreshold());
+    }
+
+    // Test cases for the memory-mapped ring options
+
+    @Test
+    @DisplayName("Builder.mappedSlotSize() and mappedForcePolicy() should validate and round-trip")
+    void testBuilderMappedRingOptions() {
+        TokenHaConfig defaults = TokenHaConfig.defaultConfig();
+        assertEquals(256, defaults.getMappedSlotSize());
+        assertEquals(ForcePolicy.EVERY_WRITE, defaults.getMappedForcePolicy());
+
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .persistenceMode(PersistenceMode.MAPPED_RING)
+            .mappedSlotSize(64)
+            .mappedForcePolicy(ForcePolicy.ON_CLOSE)
+            .build();
+        assertEquals(64, config.toBuilder().build().getMappedSlotSize());
+        assertEquals(ForcePolicy.ON_CLOSE, config.toBuilder().build().getMappedForcePolicy());
+
+        try {
+            new TokenHaConfig.Builder().mappedSlotSize(16);
+            fail("Should throw IllegalArgumentException for a slot without room for token bytes");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Mapped slot size must be greater than 16 bytes");
+        }
+        try {
+            new TokenHaConfig.Builder().mappedForcePolicy(null);
+            fail("Should throw IllegalArgumentException for null force policy");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Mapped force policy cannot be null");
+        }
+    }
+
+    @Test
+    @DisplayName("fromProperties() and fromEnvironment() should read the memory-mapped ring options")
+    void testMappedRingOptionsFromPropertiesAndEnvironment() {
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.persistence.mode", "mapped-ring");
+        props.setProperty("tokenha.mapped.slot.size", "128");
+        props.setProperty("tokenha.mapped.force.policy", "on-close");
+        TokenHaConfig config = TokenHaConfig.fromProperties(props);
+        assertEquals(PersistenceMode.MAPPED_RING, config.getPersistenceMode());
+        assertEquals(128, config.getMappedSlotSize());
+        assertEquals(ForcePolicy.ON_CLOSE, config.getMappedForcePolicy());
+
+        environmentVariables.set("TOKENHA_MAPPED_SLOT_SIZE", "512");
+        environmentVariables.set("TOKENHA_MAPPED_FORCE_POLICY", "EVERY_WRITE");
+        config = TokenHaConfig.fromEnvironment();
+        assertEquals(512, config.getMappedSlotSize());
+        assertEquals(ForcePolicy.EVERY_WRITE, config.getMappedForcePolicy());
+    }
+
+    // Test cases for the thread mode
+
+    @Test
+    @DisplayName("threadMode should default to PLATFORM, round-trip and be read from properties and environment")
+    void testThreadMode() {
+        assertEquals(ThreadMode.PLATFORM, TokenHaConfig.defaultConfig().getThreadMode());
+
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .threadMode(ThreadMode.VIRTUAL)
+            .build();
+        assertEquals(ThreadMode.VIRTUAL, config.toBuilder().build().getThreadMode());
+        assert config.toString().contains("threadMode=VIRTUAL");
+
+        try {
+            new TokenHaConfig.Builder().threadMode(null);
+            fail("Should throw IllegalArgumentException for null thread mode");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Thread mode cannot be null");
+        }
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.thread.mode", "virtual");
+        assertEquals(ThreadMode.VIRTUAL, TokenHaConfig.fromProperties(props).getThreadMode());
+
+        environmentVariables.set("TOKENHA_THREAD_MODE", "VIRTUAL");
+        assertEquals(ThreadMode.VIRTUAL, TokenHaConfig.fromEnvironment().getThreadMode());
+    }
+
+    // Test cases for the registry options
+
+    @Test
+    @DisplayName("registryLockStripes should default to 64, validate and be read from properties and environment")
+    void testRegistryLockStripes() {
+        assertEquals(64, TokenHaConfig.defaultConfig().getRegistryLockStripes());
+        assertEquals(8, new TokenHaConfig.Builder().registryLockStripes(8).build().toBuilder().build().getRegistryLockStripes());
+
+        try {
+            new TokenHaConfig.Builder().registryLockStripes(0);
+            fail("Should throw IllegalArgumentException for zero stripes");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Registry lock stripes must be positive and non-zero");
+        }
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.registry.lock.stripes", "16");
+        assertEquals(16, TokenHaConfig.fromProperties(props).getRegistryLockStripes());
+
+        environmentVariables.set("TOKENHA_REGISTRY_LOCK_STRIPES", "32");
+        assertEquals(32, TokenHaConfig.fromEnvironment().getRegistryLockStripes());
+    }
+
+    @Test
+    @DisplayName("tokenStorage should default to OBJECTS and be configurable")
+    void testTokenStorage() {
+        assertEquals(TokenStorage.OBJECTS, TokenHaConfig.defaultConfig().getTokenStorage());
+        assertEquals(TokenStorage.PACKED, new TokenHaConfig.Builder().tokenStorage(TokenStorage.PACKED).build().toBuilder().build().getTokenStorage());
+
+        try {
+            new TokenHaConfig.Builder().tokenStorage(null);
+            fail("Should throw IllegalArgumentException for null token storage");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Token storage cannot be null");
+        }
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.token.storage", "packed");
+        assertEquals(TokenStorage.PACKED, TokenHaConfig.fromProperties(props).getTokenStorage());
+
+        environmentVariables.set("TOKENHA_TOKEN_STORAGE", "off-heap");
+        assertEquals(TokenStorage.OFF_HEAP, TokenHaConfig.fromEnvironment().getTokenStorage());
+    }
+
+    @Test
+    @DisplayName("atomicSave should default to false and be configurable")
+    void testAtomicSave() {
+        assertEquals(false, TokenHaConfig.defaultConfig().isAtomicSave());
+        assertEquals(true, new TokenHaConfig.Builder().atomicSave(true).build().toBuilder().build().isAtomicSave());
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.atomic.save", "true");
+        assertEquals(true, TokenHaConfig.fromProperties(props).isAtomicSave());
+
+        environmentVariables.set("TOKENHA_ATOMIC_SAVE", "true");
+        assertEquals(true, TokenHaConfig.fromEnvironment().isAtomicSave());
+    }
+
+    @Test
+    @DisplayName("groupCommitWindowMillis should default to 0 and reject negative values")
+    void testGroupCommitWindowMillis() {
+        assertEquals(0L, TokenHaConfig.defaultConfig().getGroupCommitWindowMillis());
+        assertEquals(false, TokenHaConfig.defaultConfig().isGroupCommitEnabled());
+        TokenHaConfig config = new TokenHaConfig.Builder().groupCommitWindowMillis(2).build().toBuilder().build();
+        assertEquals(2L, config.getGroupCommitWindowMillis());
+        assertEquals(true, config.isGroupCommitEnabled());
+
+        try {
+            new TokenHaConfig.Builder().groupCommitWindowMillis(-1);
+            fail("Should throw IllegalArgumentException for a negative window");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Group commit window cannot be negative");
+        }
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.group.commit.window.millis", "3");
+        assertEquals(3L, TokenHaConfig.fromProperties(props).getGroupCommitWindowMillis());
+
+        environmentVariables.set("TOKENHA_GROUP_COMMIT_WINDOW_MILLIS", "4");
+        assertEquals(4L, TokenHaConfig.fromEnvironment().getGroupCommitWindowMillis());
+    }
+
+    @Test
+    @DisplayName("durabilityLevel should default to FSYNC, parse names loosely and reject null")
+    void testDurabilityLevel() {
+        assertEquals(DurabilityLevel.FSYNC, TokenHaConfig.defaultConfig().getDurabilityLevel());
+        TokenHaConfig config = new TokenHaConfig.Builder().durabilityLevel(DurabilityLevel.FLUSH).build().toBuilder().build();
+        assertEquals(DurabilityLevel.FLUSH, config.getDurabilityLevel());
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.durability.level", " fsync-directory ");
+        assertEquals(DurabilityLevel.FSYNC_DIRECTORY,
+            TokenHaConfig.getEnumProperty(props, "tokenha.durability.level", DurabilityLevel.class, DurabilityLevel.FSYNC));
+        props.setProperty("tokenha.durability.level", "sometimes");
+        try {
+            TokenHaConfig.getEnumProperty(props, "tokenha.durability.level", DurabilityLevel.class, DurabilityLevel.FSYNC);
+            fail("Should throw IllegalArgumentException for an unknown durability level");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new TokenHaConfig.Builder().durabilityLevel(null);
+            fail("Should throw IllegalArgumentException for null durability level");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Durability level cannot be null");
+        }
+
+        props.setProperty("tokenha.durability.level", "none");
+        assertEquals(DurabilityLevel.NONE, TokenHaConfig.fromProperties(props).getDurabilityLevel());
+
+        environmentVariables.set("TOKENHA_DURABILITY_LEVEL", "FSYNC_DIRECTORY");
+        assertEquals(DurabilityLevel.FSYNC_DIRECTORY, TokenHaConfig.fromEnvironment().getDurabilityLevel());
+    }
+
+    @Test
+    @DisplayName("lazyExpiration should default to false and load from properties and environment")
+    void testLazyExpiration() {
+        assertEquals(false, TokenHaConfig.defaultConfig().isLazyExpiration());
+        assertEquals(true, new TokenHaConfig.Builder().lazyExpiration(true).build().toBuilder().build().isLazyExpiration());
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.lazy.expiration", "true");
+        assertEquals(true, TokenHaConfig.fromProperties(props).isLazyExpiration());
+
+        environmentVariables.set("TOKENHA_LAZY_EXPIRATION", "true");
+        assertEquals(true, TokenHaConfig.fromEnvironment().isLazyExpiration());
+    }
+
+    @Test
+    @DisplayName("metricsEnabled should default to false and load from properties and environment")
+    void testMetricsEnabled() {
+        assertEquals(false, TokenHaConfig.defaultConfig().isMetricsEnabled());
+        assertEquals(true, new TokenHaConfig.Builder().metricsEnabled(true).build().toBuilder().build().isMetricsEnabled());
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.metrics.enabled", "true");
+        assertEquals(true, TokenHaConfig.fromProperties(props).isMetricsEnabled());
+
+        environmentVariables.set("TOKENHA_METRICS_ENABLED", "true");
+        assertEquals(true, TokenHaConfig.fromEnvironment().isMetricsEnabled());
+    }
+
+    @Test
+    @DisplayName("jmxEnabled should default to false and load from properties and environment")
+    void testJmxEnabled() {
+        assertEquals(false, TokenHaConfig.defaultConfig().isJmxEnabled());
+        assertEquals(true, new TokenHaConfig.Builder().jmxEnabled(true).build().toBuilder().build().isJmxEnabled());
+
+        java.util.Properties props = new java.util.Properties();
+        props.setProperty("tokenha.jmx.enabled", "true");
+        assertEquals(true, TokenHaConfig.fromProperties(props).isJmxEnabled());
+
+        environmentVariables.set("TOKENHA_JMX_ENABLED", "true");
+        assertEquals(true, TokenHaConfig.fromEnvironment().isJmxEnabled());
+    }
+
+    // Test cases for TokenHaConfig.Builder.tokenStoreFactory(TokenStoreFactory tokenStoreFactory)
+
+    @Test
+    @DisplayName("Builder.tokenStoreFactory() should default to the persistence mode factory and reject null")
+    void testBuilderTokenStoreFactory() {
+        assertEquals(TokenStoreFactory.DEFAULT, TokenHaConfig.defaultConfig().getTokenStoreFactory());
+
+        TokenStoreFactory factory = config -> new InMemoryTokenStore();
+        TokenHaConfig config = new TokenHaConfig.Builder().tokenStoreFactory(factory).build();
+        assertEquals(factory, config.toBuilder().build().getTokenStoreFactory());
+
+        try {
+            new TokenHaConfig.Builder().tokenStoreFactory(null);
+            fail("Should throw IllegalArgumentException for null token store factory");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("Token store factory cannot be null");
+        }
+    }
+
     // Test cases for TokenHaConfig.Builder.build()
 
     @Test
@@ -335,6 +674,6 @@ public class TokenHaConfigTest {
         assert toString.contains("numberOfLastTokens=2");
         assert toString.contains("expirationTimeMillis=60000");
         assert toString.contains("persistenceFilePath='test-config.json'");
-        assert toString.contains("evictionThreadConfig=EvictionThreadConfig{initialDelayMillis=1500, intervalMillis=15000}");
+        assert toString.contains("evictionThreadConfig=EvictionThreadConfig{initialDelayMillis=1500, intervalMillis=15000, parallelism=1, threadMode=PLATFORM, jmxEnabled=false}");
     }
 }
\ No newline at end of file
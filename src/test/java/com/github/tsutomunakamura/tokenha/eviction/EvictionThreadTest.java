@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -17,6 +18,7 @@ import java.lang.reflect.Method;
 import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.junit.jupiter.api.AfterEach;
@@ -29,6 +31,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.github.tsutomunakamura.tokenha.TokenHa;
 import com.github.tsutomunakamura.tokenha.config.EvictionThreadConfig;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
 import com.github.tsutomunakamura.tokenha.element.TokenElement;
 
 /**
@@ -1047,6 +1051,244 @@ public class EvictionThreadTest {
         clearRegisteredInstances();
     }
     
+    @Test
+    @DisplayName("Test evictTokens skips instances whose deadline has not passed")
+    public void testEvictTokensSkipsInstancesNotDue() throws Exception {
+        System.out.println("🧪 TEST: evictTokens skips instances whose deadline has not passed");
+
+        TokenHa notDueMock = mock(TokenHa.class);
+        when(notDueMock.nextEvictionDeadlineMillis()).thenReturn(System.currentTimeMillis() + 60000);
+        evictionThread.register(notDueMock);
+
+        // First sweep reads the deadline of the new instance but does not evict it
+        invokeEvictTokens();
+        verify(notDueMock, times(1)).nextEvictionDeadlineMillis();
+        verify(notDueMock, never()).evictExpiredTokens();
+
+        // The instance is now scheduled at its deadline, so the next sweep does not touch it
+        invokeEvictTokens();
+        verify(notDueMock, times(1)).nextEvictionDeadlineMillis();
+        verify(notDueMock, never()).getQueueSize();
+
+        evictionThread.unregister(notDueMock);
+    }
+
+    @Test
+    @DisplayName("Test eviction fires close to the token deadline instead of the interval")
+    public void testEvictionFiresAtDeadline() throws Exception {
+        System.out.println("🧪 TEST: eviction fires close to the token deadline");
+
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .persistenceMode(PersistenceMode.IN_MEMORY)
+            .numberOfLastTokens(0)
+            .expirationTimeMillis(200)
+            .evictionThreadConfig(evictionThread.getConfig())
+            .build();
+
+        try (TokenHa tokenHa = new TokenHa(config)) {
+            assertTrue(tokenHa.addIfAvailable("short-lived"));
+            long deadline = tokenHa.nextEvictionDeadlineMillis();
+            long waitUntil = Math.max(deadline, System.currentTimeMillis() + evictionThread.getConfig().getInitialDelayMillis()) + 1000;
+
+            while (tokenHa.getQueueSize() > 0 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(0, tokenHa.getQueueSize(), "Token should be evicted shortly after its deadline");
+            assertTrue(System.currentTimeMillis() >= deadline, "Token should not be evicted before its deadline");
+        }
+    }
+
+    @Test
+    @DisplayName("Test evictTokens records the last sweep")
+    public void testEvictTokensRecordsLastSweep() throws Exception {
+        System.out.println("🧪 TEST: evictTokens records the last sweep");
+
+        when(mockTokenHa1.evictExpiredTokens()).thenReturn(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L)));
+        evictionThread.register(mockTokenHa1);
+        evictionThread.register(mockTokenHa2);
+
+        invokeEvictTokens();
+
+        EvictionSweep sweep = evictionThread.getLastSweep();
+        assertNotNull(sweep, "A sweep should be recorded");
+        assertEquals(2, sweep.getInstancesDue());
+        assertEquals(2, sweep.getInstancesEvicted());
+        assertEquals(2, sweep.getTokensEvicted());
+        assertEquals(evictionThread.getConfig().getParallelism(), sweep.getParallelism());
+        assertTrue(sweep.getDurationNanos() >= 0);
+    }
+
+    @Test
+    @DisplayName("Test evictTokens accumulates eviction metrics")
+    public void testEvictTokensRecordsMetrics() throws Exception {
+        System.out.println("🧪 TEST: evictTokens accumulates eviction metrics");
+
+        EvictionMetrics metrics = evictionThread.getMetrics();
+        long sweepsBefore = metrics.getSweepCount();
+        long scannedBefore = metrics.getInstancesScanned();
+        long evictedBefore = metrics.getInstancesEvicted();
+        long skippedBefore = metrics.getInstancesSkipped();
+        long tokensBefore = metrics.getTokensEvicted();
+        long durationsBefore = metrics.getSweepDurationNanos().getCount();
+        long lagsBefore = metrics.getEvictionLagMillis().getCount();
+
+        // One instance with two tokens expired 50 ms ago, one that is not due for a minute
+        when(mockTokenHa1.nextEvictionDeadlineMillis()).thenReturn(System.currentTimeMillis() - 50);
+        when(mockTokenHa1.evictExpiredTokens()).thenReturn(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L)));
+        when(mockTokenHa3.nextEvictionDeadlineMillis()).thenReturn(System.currentTimeMillis() + 60000);
+        evictionThread.register(mockTokenHa1);
+        evictionThread.register(mockTokenHa3);
+        invokeEvictTokens();
+
+        // Only the newly registered instance is due; the other two are skipped
+        evictionThread.register(mockTokenHa2);
+        invokeEvictTokens();
+
+        assertEquals(2, evictionThread.getLastSweep().getInstancesSkipped());
+        assertEquals(sweepsBefore + 2, metrics.getSweepCount());
+        assertEquals(scannedBefore + 3, metrics.getInstancesScanned());
+        assertEquals(evictedBefore + 2, metrics.getInstancesEvicted());
+        assertEquals(skippedBefore + 2, metrics.getInstancesSkipped());
+        assertEquals(tokensBefore + 2, metrics.getTokensEvicted());
+        assertEquals(durationsBefore + 2, metrics.getSweepDurationNanos().getCount());
+        assertEquals(lagsBefore + 1, metrics.getEvictionLagMillis().getCount());
+        assertTrue(metrics.getEvictionLagMillis().getMax() >= 50, "Lag should cover the time since the deadline");
+    }
+
+    @Test
+    @DisplayName("Test evictTokens evicts due instances on the worker pool when parallelism > 1")
+    public void testEvictTokensInParallel() throws Exception {
+        System.out.println("🧪 TEST: evictTokens evicts due instances on the worker pool");
+
+        Field instanceField = EvictionThread.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        EvictionThread original = (EvictionThread) instanceField.get(null);
+        instanceField.set(null, null);
+        EvictionThread parallel = EvictionThread.getInstance(new EvictionThreadConfig.Builder()
+            .initialDelayMillis(60000)
+            .parallelism(3)
+            .build());
+        try {
+            Set<String> threadNames = ConcurrentHashMap.newKeySet();
+            List<TokenHa> mocks = List.of(mockTokenHa1, mockTokenHa2, mockTokenHa3);
+            for (TokenHa tokenHa : mocks) {
+                when(tokenHa.evictExpiredTokens()).thenAnswer(invocation -> {
+                    threadNames.add(Thread.currentThread().getName());
+                    return null;
+                });
+                parallel.register(tokenHa);
+            }
+
+            Method evictTokensMethod = EvictionThread.class.getDeclaredMethod("evictTokens");
+            evictTokensMethod.setAccessible(true);
+            evictTokensMethod.invoke(parallel);
+
+            for (TokenHa tokenHa : mocks) {
+                verify(tokenHa, times(1)).evictExpiredTokens();
+            }
+            assertFalse(threadNames.isEmpty());
+            assertTrue(threadNames.stream().allMatch(name -> name.startsWith("tokenha-eviction-worker-")),
+                "Eviction should run on worker threads: " + threadNames);
+            assertEquals(3, parallel.getLastSweep().getInstancesDue());
+            assertEquals(3, parallel.getLastSweep().getParallelism());
+
+            for (TokenHa tokenHa : mocks) {
+                parallel.unregister(tokenHa);
+            }
+        } finally {
+            Method stopMethod = EvictionThread.class.getDeclaredMethod("stop");
+            stopMethod.setAccessible(true);
+            stopMethod.invoke(parallel);
+            instanceField.set(null, original);
+        }
+    }
+
+    @Test
+    @DisplayName("Test TokenHa pushes its deadline so eviction does not wait for the interval")
+    public void testTokenHaPushesDeadline() throws Exception {
+        System.out.println("🧪 TEST: TokenHa pushes its deadline to the eviction thread");
+
+        Field instanceField = EvictionThread.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        EvictionThread original = (EvictionThread) instanceField.get(null);
+        instanceField.set(null, null);
+        EvictionThread pushed = EvictionThread.getInstance(new EvictionThreadConfig.Builder()
+            .initialDelayMillis(0)
+            .intervalMillis(60000)
+            .build());
+        Field scheduleField = EvictionThread.class.getDeclaredField("schedule");
+        scheduleField.setAccessible(true);
+        try {
+            TokenHaConfig config = new TokenHaConfig.Builder()
+                .persistenceMode(PersistenceMode.IN_MEMORY)
+                .numberOfLastTokens(0)
+                .expirationTimeMillis(200)
+                .evictionThreadConfig(pushed.getConfig())
+                .build();
+
+            try (TokenHa tokenHa = new TokenHa(config)) {
+                assertTrue(tokenHa.publishesEvictionDeadlines());
+
+                // The first sweep finds no token that can expire and leaves the instance idle
+                long waitUntil = System.currentTimeMillis() + 2000;
+                while (pushed.getLastSweep() == null && System.currentTimeMillis() < waitUntil) {
+                    Thread.sleep(10);
+                }
+                assertNotNull(pushed.getLastSweep(), "The registration sweep should have run");
+                synchronized (pushed) {
+                    assertTrue(((java.util.PriorityQueue<?>) scheduleField.get(pushed)).isEmpty(),
+                        "An instance without expirable tokens should not be scheduled");
+                }
+
+                assertTrue(tokenHa.addIfAvailable("short-lived"));
+                long deadline = tokenHa.nextEvictionDeadlineMillis();
+                waitUntil = deadline + 2000;
+                while (tokenHa.getQueueSize() > 0 && System.currentTimeMillis() < waitUntil) {
+                    Thread.sleep(20);
+                }
+
+                assertEquals(0, tokenHa.getQueueSize(), "The pushed deadline should be evicted long before the interval");
+                assertTrue(System.currentTimeMillis() >= deadline, "Token should not be evicted before its deadline");
+            }
+        } finally {
+            Method stopMethod = EvictionThread.class.getDeclaredMethod("stop");
+            stopMethod.setAccessible(true);
+            stopMethod.invoke(pushed);
+            instanceField.set(null, original);
+        }
+    }
+
+    @Test
+    @DisplayName("Test the eviction thread MBean is registered only while the thread runs with JMX enabled")
+    public void testMBeanRegisteredWhileRunning() throws Exception {
+        System.out.println("🧪 TEST: eviction thread MBean follows the thread lifecycle");
+
+        Field instanceField = EvictionThread.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        EvictionThread original = (EvictionThread) instanceField.get(null);
+        instanceField.set(null, null);
+        EvictionThread withJmx = EvictionThread.getInstance(new EvictionThreadConfig.Builder()
+            .initialDelayMillis(60000)
+            .jmxEnabled(true)
+            .build());
+        javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+        javax.management.ObjectName name = new javax.management.ObjectName("com.github.tsutomunakamura.tokenha:type=EvictionThread");
+        try {
+            withJmx.register(mockTokenHa1);
+            assertTrue(server.isRegistered(name), "Starting the thread should register the MBean");
+            assertEquals(1, server.getAttribute(name, "RegisteredInstances"));
+
+            withJmx.unregister(mockTokenHa1);
+            assertFalse(server.isRegistered(name), "Stopping the thread should unregister the MBean");
+        } finally {
+            Method stopMethod = EvictionThread.class.getDeclaredMethod("stop");
+            stopMethod.setAccessible(true);
+            stopMethod.invoke(withJmx);
+            instanceField.set(null, original);
+        }
+    }
+
     // Test cases for improving coverage of getInstance() method
     
     @Test
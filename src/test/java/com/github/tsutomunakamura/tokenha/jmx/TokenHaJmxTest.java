@@ -0,0 +1,99 @@
+package com.github.tsutomunakamura.tokenha.jmx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.eviction.EvictionThread;
+
+public class TokenHaJmxTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    @DisplayName("A TokenHa with JMX enabled should expose its state until it is closed")
+    void tokenHaMBean_shouldExposeStateUntilClosed() throws Exception {
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .persistenceMode(PersistenceMode.IN_MEMORY)
+            .coolTimeToAddMillis(60000)
+            .jmxEnabled(true)
+            .build();
+        ObjectName pattern = new ObjectName(TokenHaJmx.DOMAIN + ":type=TokenHa,*");
+        Set<ObjectName> before = server.queryNames(pattern, null);
+
+        ObjectName name;
+        try (TokenHa tokenHa = new TokenHa(config)) {
+            Set<ObjectName> added = new HashSet<>(server.queryNames(pattern, null));
+            added.removeAll(before);
+            assertEquals(1, added.size(), "One MBean should be registered per instance");
+            name = added.iterator().next();
+
+            assertNotNull(tokenHa.getMetrics(), "JMX should enable the metrics it exposes");
+            assertEquals(-1L, server.getAttribute(name, "NewestTokenAgeMillis"));
+            assertTrue(tokenHa.addIfAvailable("token-1"));
+            assertFalse(tokenHa.addIfAvailable("token-2"), "The cooldown should reject the second add");
+
+            assertEquals(1, server.getAttribute(name, "QueueSize"));
+            assertEquals(1L, server.getAttribute(name, "AcceptedCount"));
+            assertEquals(1L, server.getAttribute(name, "RejectedCount"));
+            assertEquals(1L, server.getAttribute(name, "SaveCount"));
+            assertTrue((Long) server.getAttribute(name, "NewestTokenAgeMillis") >= 0);
+            assertTrue((Long) server.getAttribute(name, "SaveLatencyMaxNanos") >= 0);
+            assertEquals(config.getPersistenceFilePath(), server.getAttribute(name, "PersistenceFilePath"));
+        }
+
+        assertFalse(server.isRegistered(name), "Closing the instance should unregister its MBean");
+    }
+
+    @Test
+    @DisplayName("A TokenHa without JMX should not register an MBean")
+    void tokenHaWithoutJmx_shouldNotRegister() throws Exception {
+        TokenHaConfig config = new TokenHaConfig.Builder()
+            .persistenceMode(PersistenceMode.IN_MEMORY)
+            .build();
+        ObjectName pattern = new ObjectName(TokenHaJmx.DOMAIN + ":type=TokenHa,*");
+        Set<ObjectName> before = server.queryNames(pattern, null);
+
+        try (TokenHa tokenHa = new TokenHa(config)) {
+            assertEquals(before, server.queryNames(pattern, null));
+            assertNull(tokenHa.getMetrics());
+        }
+    }
+
+    @Test
+    @DisplayName("The eviction thread MBean should expose its configuration and sweep statistics")
+    void evictionThreadMBean_shouldExposeState() throws Exception {
+        EvictionThread evictionThread = EvictionThread.getInstance();
+        ObjectName name = TokenHaJmx.register(evictionThread);
+        try {
+            assertNotNull(name);
+            assertTrue(server.isRegistered(name));
+            assertEquals(evictionThread.getConfig().getIntervalMillis(), server.getAttribute(name, "IntervalMillis"));
+            assertEquals(evictionThread.getConfig().getParallelism(), server.getAttribute(name, "Parallelism"));
+            assertEquals(evictionThread.getInstanceCount(), server.getAttribute(name, "RegisteredInstances"));
+            assertEquals(evictionThread.getMetrics().getSweepCount(), server.getAttribute(name, "SweepCount"));
+
+            // Registering again replaces the previous MBean
+            assertEquals(name, TokenHaJmx.register(evictionThread));
+        } finally {
+            TokenHaJmx.unregister(name);
+        }
+        assertFalse(server.isRegistered(name));
+        TokenHaJmx.unregister(null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.tsutomunakamura.tokenha.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    @Test
+    @DisplayName("An empty histogram should report zeros")
+    void emptyHistogram_shouldReportZeros() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    @DisplayName("Small values should be counted exactly")
+    void smallValues_shouldBeExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(11, histogram.getCount());
+        assertEquals(55, histogram.getTotal());
+        assertEquals(10, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Percentiles of large values should be within the bucket precision")
+    void largeValues_shouldBeWithinPrecision() {
+        Histogram histogram = new Histogram();
+        List<Long> values = new ArrayList<>();
+        for (long value = 1; value < 1_000_000_000L; value = value * 3 + 7) {
+            values.add(value);
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[] {10, 50, 90, 99}) {
+            long expected = values.get((int) Math.ceil(percentile / 100 * values.size()) - 1);
+            long actual = histogram.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 16 + 1,
+                "p" + percentile + " should be close to " + expected + " but was " + actual);
+        }
+        assertEquals(values.get(values.size() - 1), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Every bucket should contain the values mapped to it")
+    void buckets_shouldCoverAllValues() {
+        for (long value : new long[] {0, 31, 32, 33, 34, 1000, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value <= Histogram.upperBoundOf(bucket), "Value " + value + " exceeds its bucket");
+            if (bucket > 0) {
+                assertTrue(value > Histogram.upperBoundOf(bucket - 1), "Value " + value + " belongs to an earlier bucket");
+            }
+        }
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    @DisplayName("Out of range percentiles should be rejected")
+    void invalidPercentile_shouldThrow() {
+        Histogram histogram = new Histogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(Double.NaN));
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for BinaryFileTokenStore.
+ */
+public class BinaryFileTokenStoreTest {
+
+    private static final String TEST_FILE = "test-binary-token-store.bin";
+    private static final Path TEST_PATH = Paths.get(TEST_FILE);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(TEST_PATH);
+    }
+
+    @Test
+    @DisplayName("save() and load() should round-trip tokens in order")
+    void saveAndLoad_shouldRoundTrip() throws IOException {
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L),
+                new TokenElement("token-3", 3000L)));
+            // A shorter save must not leave bytes of the previous one behind
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L)));
+        }
+
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            List<TokenElement> tokens = store.load();
+            assertEquals(2, tokens.size());
+            assertEquals("token-1", tokens.get(0).getToken());
+            assertEquals(2000L, tokens.get(1).getTimeMillis());
+            assertEquals("token-2", store.load(1).get(0).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("load() should return an empty list for empty or corrupt content")
+    void load_shouldReturnEmptyList_forEmptyOrCorruptContent() throws IOException {
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            assertTrue(store.load().isEmpty());
+        }
+        Files.write(TEST_PATH, new byte[] {'T', 'K', 'H', 'A', 1, 5, 0});
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            assertTrue(store.load().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("The binary store should request full saves and rewrite the document on incremental calls")
+    void binaryStore_shouldRewriteDocument_onIncrementalCalls() throws IOException {
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            assertTrue(store.needsFullSave());
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L)));
+
+            store.append(new TokenElement("token-3", 3000L), 1);
+            store.evict(1);
+
+            List<TokenElement> tokens = store.load();
+            assertEquals(1, tokens.size());
+            assertEquals("token-3", tokens.get(0).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("append() and evict() should fail and keep the file when it cannot be parsed")
+    void incrementalCalls_shouldFail_whenFileIsCorrupt() throws IOException {
+        Files.write(TEST_PATH, new byte[] {'T', 'K', 'H', 'A', 1, 5, 0});
+        byte[] corrupt = Files.readAllBytes(TEST_PATH);
+        try (BinaryFileTokenStore store = new BinaryFileTokenStore(TEST_FILE)) {
+            assertThrows(UncheckedIOException.class, () -> store.append(new TokenElement("token-1", 1000L), 0));
+            assertThrows(UncheckedIOException.class, () -> store.evict(1));
+        }
+        assertArrayEquals(corrupt, Files.readAllBytes(TEST_PATH));
+    }
+}
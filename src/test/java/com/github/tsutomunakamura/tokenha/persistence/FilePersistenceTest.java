@@ -18,6 +18,7 @@ import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,8 @@ import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 
 import com.github.tsutomunakamura.tokenha.TokenHa;
+import com.github.tsutomunakamura.tokenha.config.DurabilityLevel;
+import com.github.tsutomunakamura.tokenha.metrics.TokenHaMetrics;
 
 /**
  * Test class for FilePersistence.
@@ -600,4 +603,105 @@ public class FilePersistenceTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSaveStreamsContentAsUtf8() throws Exception {
+        try (FilePersistence filePersistence = new FilePersistence(TEST_FILE)) {
+            currentTestInstance = filePersistence;
+            filePersistence.save("{\"tokens\":[{\"token\":\"a much longer previous document\",\"timeMillis\":1}]}");
+
+            StringBuilder expected = new StringBuilder();
+            filePersistence.save(out -> {
+                // More than one write buffer of multi-byte characters
+                for (int i = 0; i < 5000; i++) {
+                    out.write("\u3042" + i);
+                }
+            });
+            for (int i = 0; i < 5000; i++) {
+                expected.append("\u3042").append(i);
+            }
+
+            byte[] bytes = Files.readAllBytes(Path.of(TEST_FILE));
+            assertEquals(expected.toString(), new String(bytes, java.nio.charset.StandardCharsets.UTF_8),
+                "The previous content should be replaced by the streamed content");
+        }
+    }
+
+    @Test
+    public void testAtomicSaveKeepsPreviousContentWhenWriteFails() throws Exception {
+        String atomicFile = "test-atomic-persistence.json";
+        try {
+            Files.writeString(Path.of(atomicFile + ".tmp"), "left over by an interrupted save");
+            try (FilePersistence filePersistence = new FilePersistence(atomicFile, true)) {
+                assertTrue(filePersistence.isAtomicSave());
+                assertTrue(filePersistence.fileExists(), "The file should be created on open");
+                assertFalse(Files.exists(Path.of(atomicFile + ".tmp")), "A leftover temporary file should be removed");
+                assertTrue(Files.exists(Path.of(atomicFile + ".lock")), "The lock should be held on the sidecar file");
+
+                filePersistence.save("{\"tokens\":[]}");
+                assertEquals("{\"tokens\":[]}", filePersistence.load());
+
+                filePersistence.save(out -> {
+                    out.write("{\"tokens\":[{\"tok");
+                    throw new IOException("Simulated crash in the middle of a save");
+                });
+                assertEquals("{\"tokens\":[]}", filePersistence.load(), "A failed save should leave the previous content");
+                assertFalse(Files.exists(Path.of(atomicFile + ".tmp")));
+            }
+        } finally {
+            Files.deleteIfExists(Path.of(atomicFile));
+            Files.deleteIfExists(Path.of(atomicFile + ".tmp"));
+            Files.deleteIfExists(Path.of(atomicFile + ".lock"));
+        }
+    }
+
+    @Test
+    public void testEveryDurabilityLevelSavesContent() throws Exception {
+        String durableFile = "test-durability-persistence.json";
+        try {
+            for (DurabilityLevel level : DurabilityLevel.values()) {
+                for (boolean atomicSave : new boolean[] {false, true}) {
+                    for (long window : new long[] {0, 1}) {
+                        try (FilePersistence filePersistence = new FilePersistence(durableFile, atomicSave, window, level)) {
+                            assertEquals(level, filePersistence.getDurabilityLevel());
+                            String content = "{\"level\":\"" + level + "\",\"atomic\":" + atomicSave + ",\"window\":" + window + "}";
+                            filePersistence.save(content);
+                            assertEquals(content, filePersistence.load());
+                        }
+                    }
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> new FilePersistence(durableFile, false, 0, null));
+        } finally {
+            Files.deleteIfExists(Path.of(durableFile));
+            Files.deleteIfExists(Path.of(durableFile + ".tmp"));
+            Files.deleteIfExists(Path.of(durableFile + ".lock"));
+        }
+    }
+
+    @Test
+    public void testSaveTimingsSeparateSerializationFromWrite() throws Exception {
+        try (FilePersistence filePersistence = new FilePersistence(TEST_FILE)) {
+            currentTestInstance = filePersistence;
+            TokenHaMetrics metrics = new TokenHaMetrics();
+            filePersistence.setMetrics(metrics);
+
+            // Slow serialization of a document spanning several write buffers
+            filePersistence.saveBytes(out -> {
+                for (int i = 0; i < 4; i++) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    out.write(new byte[10_000]);
+                }
+            });
+
+            assertEquals(1, metrics.getSerializationNanos().getCount());
+            assertEquals(1, metrics.getWriteNanos().getCount());
+            assertTrue(metrics.getSerializationNanos().getMax() >= TimeUnit.MILLISECONDS.toNanos(80));
+            assertTrue(metrics.getWriteNanos().getMax() < TimeUnit.MILLISECONDS.toNanos(80));
+            assertEquals(40_000, Files.size(Path.of(TEST_FILE)));
+        }
+    }
+}
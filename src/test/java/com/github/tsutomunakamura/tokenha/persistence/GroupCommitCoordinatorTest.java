@@ -0,0 +1,142 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for GroupCommitCoordinator.
+ */
+public class GroupCommitCoordinatorTest {
+
+    private final GroupCommitCoordinator coordinator = GroupCommitCoordinator.getInstance();
+
+    @Test
+    @DisplayName("Concurrent syncs within one window should share batches and channel syncs")
+    void sync_shouldBatchConcurrentRequests(@TempDir Path dir) throws Exception {
+        int threads = 8;
+        List<FileChannel> channels = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            FileChannel channel = FileChannel.open(dir.resolve("file-" + i),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.wrap("data".getBytes(StandardCharsets.UTF_8)));
+            channels.add(channel);
+        }
+        long requestsBefore = coordinator.getRequestCount();
+        long syncsBefore = coordinator.getSyncCount();
+        long batchesBefore = coordinator.getBatchCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                FileChannel channel = channels.get(i % channels.size());
+                results.add(executor.submit(() -> {
+                    start.await();
+                    coordinator.sync(channel, true, 200, null);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+
+        assertEquals(threads, coordinator.getRequestCount() - requestsBefore);
+        long batches = coordinator.getBatchCount() - batchesBefore;
+        long syncs = coordinator.getSyncCount() - syncsBefore;
+        assertTrue(batches < threads, "Requests should be grouped, batches=" + batches);
+        assertTrue(syncs < threads, "Each channel should be synced once per batch, syncs=" + syncs);
+    }
+
+    @Test
+    @DisplayName("A failed sync should be reported to its caller")
+    void sync_shouldPropagateFailure(@TempDir Path dir) throws Exception {
+        FileChannel channel = FileChannel.open(dir.resolve("closed"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.close();
+
+        assertThrows(IOException.class, () -> coordinator.sync(channel, true, 1, null));
+    }
+
+    @Test
+    @DisplayName("FilePersistence should save durably through the group commit")
+    void filePersistence_shouldSaveThroughGroupCommit(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("group-commit.json");
+        long requestsBefore = coordinator.getRequestCount();
+
+        try (FilePersistence persistence = new FilePersistence(file.toString(), false, 5)) {
+            persistence.save("{\"tokens\":[]}");
+        }
+        try (FilePersistence persistence = new FilePersistence(file.toString() + ".atomic", true, 5)) {
+            persistence.save("{\"tokens\":[]}");
+        }
+
+        assertEquals("{\"tokens\":[]}", Files.readString(file));
+        assertEquals("{\"tokens\":[]}", Files.readString(Path.of(file + ".atomic")));
+        assertTrue(coordinator.getRequestCount() - requestsBefore >= 2);
+        assertThrows(IllegalArgumentException.class, () -> new FilePersistence(file.toString(), false, -1));
+    }
+
+    @Test
+    @DisplayName("Concurrent saves of one file should share syncs through the group commit")
+    void filePersistence_shouldBatchConcurrentSavesOfOneFile(@TempDir Path dir) throws Exception {
+        int threads = 8;
+        Path file = dir.resolve("shared.json");
+        List<String> contents = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            contents.add("{\"tokens\":[\"token-" + i + "\"]}");
+        }
+        long requestsBefore = coordinator.getRequestCount();
+        long syncsBefore = coordinator.getSyncCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FilePersistence persistence = new FilePersistence(file.toString(), false, 200)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (String content : contents) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    persistence.save(content);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads, coordinator.getRequestCount() - requestsBefore);
+        long syncs = coordinator.getSyncCount() - syncsBefore;
+        assertTrue(syncs < threads, "Saves of one file should share syncs, syncs=" + syncs);
+        assertTrue(contents.contains(Files.readString(file)), "File should hold one complete save");
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for JsonFileTokenStore.
+ */
+public class JsonFileTokenStoreTest {
+
+    private static final String TEST_FILE = "test-json-token-store.json";
+    private static final Path TEST_PATH = Paths.get(TEST_FILE);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(TEST_PATH);
+    }
+
+    @Test
+    @DisplayName("save() and load() should round-trip tokens in order")
+    void saveAndLoad_shouldRoundTrip() throws IOException {
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L)));
+        }
+
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            List<TokenElement> tokens = store.load();
+            assertEquals(2, tokens.size());
+            assertEquals("token-1", tokens.get(0).getToken());
+            assertEquals(2000L, tokens.get(1).getTimeMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("load() should return an empty list for empty or invalid content")
+    void load_shouldReturnEmptyList_forEmptyOrInvalidContent() throws IOException {
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            assertTrue(store.load().isEmpty());
+        }
+        Files.writeString(TEST_PATH, "{ invalid json");
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            assertTrue(store.load().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("load(limit) should return only the newest tokens")
+    void loadWithLimit_shouldReturnNewestTokens() throws IOException {
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L),
+                new TokenElement("token-3", 3000L)));
+
+            List<TokenElement> tokens = store.load(2);
+            assertEquals(2, tokens.size());
+            assertEquals("token-2", tokens.get(0).getToken());
+            assertEquals("token-3", tokens.get(1).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("The JSON store should request full saves and rewrite the document on incremental calls")
+    void jsonStore_shouldRewriteDocument_onIncrementalCalls() throws IOException {
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            assertTrue(store.needsFullSave());
+            store.save(List.of(new TokenElement("token-1", 1000L), new TokenElement("token-2", 2000L)));
+
+            store.append(new TokenElement("token-3", 3000L), 1);
+            store.evict(1);
+
+            List<TokenElement> tokens = store.load();
+            assertEquals(1, tokens.size());
+            assertEquals("token-3", tokens.get(0).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("append() and evict() should fail and keep the file when it cannot be parsed")
+    void incrementalCalls_shouldFail_whenFileIsCorrupt() throws IOException {
+        Files.writeString(TEST_PATH, "{ invalid json");
+        byte[] corrupt = Files.readAllBytes(TEST_PATH);
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            assertThrows(UncheckedIOException.class, () -> store.append(new TokenElement("token-1", 1000L), 0));
+            assertThrows(UncheckedIOException.class, () -> store.evict(1));
+        }
+        assertArrayEquals(corrupt, Files.readAllBytes(TEST_PATH));
+    }
+
+    @Test
+    @DisplayName("delete() should remove the file")
+    void delete_shouldRemoveFile() throws IOException {
+        try (JsonFileTokenStore store = new JsonFileTokenStore(TEST_FILE)) {
+            store.save(List.of());
+            assertTrue(store.exists());
+            assertTrue(store.delete());
+            assertFalse(store.exists());
+        }
+    }
+}
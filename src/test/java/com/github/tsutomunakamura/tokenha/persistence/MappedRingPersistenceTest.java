@@ -0,0 +1,229 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.ForcePolicy;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for MappedRingPersistence.
+ */
+public class MappedRingPersistenceTest {
+
+    private static final String TEST_FILE = "test-mapped-ring.dat";
+    private static final Path TEST_PATH = Paths.get(TEST_FILE);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(TEST_PATH);
+    }
+
+    private static List<String> tokenNames(List<TokenElement> tokens) {
+        List<String> names = new ArrayList<>();
+        for (TokenElement token : tokens) {
+            names.add(token.getToken());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("Constructor should pre-size the file for all slots")
+    void constructor_shouldPreSizeFile() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            assertTrue(ring.exists());
+            assertEquals(MappedRingPersistence.HEADER_BYTES + 4 * 64, Files.size(TEST_PATH));
+            assertTrue(ring.load().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("load() should return tokens from oldest to newest after wrapping around")
+    void load_shouldFollowRingOrder() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 3, 64, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of());
+            for (int i = 1; i <= 7; i++) {
+                ring.append(new TokenElement("token-" + i, i * 1000L), i > 3 ? 1 : 0);
+            }
+            ring.evict(1);
+        }
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 3, 64, ForcePolicy.EVERY_WRITE)) {
+            List<TokenElement> tokens = ring.load();
+            assertEquals(List.of("token-6", "token-7"), tokenNames(tokens));
+            assertEquals(6000L, tokens.get(0).getTimeMillis());
+            assertEquals(7000L, tokens.get(1).getTimeMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("append() should overwrite the oldest slot when the ring is full")
+    void append_shouldOverwriteOldest_whenFull() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 64, ForcePolicy.ON_CLOSE)) {
+            ring.save(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L)));
+            ring.append(new TokenElement("token-3", 3L), 0);
+            assertEquals(List.of("token-2", "token-3"), tokenNames(ring.load()));
+        }
+    }
+
+    @Test
+    @DisplayName("load() should preserve null and non-ASCII tokens")
+    void load_shouldPreserveNullAndUnicodeTokens() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of(new TokenElement(null, 1L)));
+            ring.append(new TokenElement("测试🚀 àáâ", 2L), 0);
+        }
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            List<TokenElement> tokens = ring.load();
+            assertEquals(2, tokens.size());
+            assertNull(tokens.get(0).getToken());
+            assertEquals("测试🚀 àáâ", tokens.get(1).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("needsFullSave() should be true after opening until save() is called or an intact ring is loaded")
+    void needsFullSave_shouldFollowLifecycle() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            assertTrue(ring.needsFullSave());
+            ring.save(List.of());
+            assertFalse(ring.needsFullSave());
+            ring.append(new TokenElement("token-1", 1L), 0);
+            assertFalse(ring.needsFullSave());
+            ring.load();
+            assertFalse(ring.needsFullSave(), "The loaded tokens match the ring");
+            ring.append(new TokenElement("token-2", 2L), 0);
+            ring.load(1);
+            assertTrue(ring.needsFullSave(), "The ring holds more tokens than were loaded");
+        }
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            assertTrue(ring.needsFullSave());
+            assertEquals(List.of("token-1", "token-2"), tokenNames(ring.load()));
+            assertFalse(ring.needsFullSave());
+        }
+    }
+
+    @Test
+    @DisplayName("save() should write the new tokens after the current window before publishing them")
+    void save_shouldKeepOldWindowUntilPublished() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 4, 64, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L)));
+            ring.save(List.of(new TokenElement("token-3", 3L), new TokenElement("token-4", 4L)));
+            assertEquals(List.of("token-3", "token-4"), tokenNames(ring.load()));
+        }
+        byte[] bytes = Files.readAllBytes(TEST_PATH);
+        String slots = new String(bytes, StandardCharsets.ISO_8859_1);
+        assertTrue(slots.contains("token-1") && slots.contains("token-2"),
+            "The second save must not overwrite the slots of the first one");
+    }
+
+    @Test
+    @DisplayName("accepts() should compare the UTF-8 length with the slot payload size")
+    void accepts_shouldUseUtf8Length() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 24, ForcePolicy.EVERY_WRITE)) {
+            assertTrue(ring.accepts(null));
+            assertTrue(ring.accepts("12345678"));
+            assertFalse(ring.accepts("123456789"));
+            assertTrue(ring.accepts("测试"), "Two 3 byte characters fit into 8 bytes");
+            assertFalse(ring.accepts("测试测"));
+            assertThrows(IllegalArgumentException.class, () -> ring.append(new TokenElement("123456789", 1L), 0));
+        }
+        assertEquals(4, MappedRingPersistence.utf8Length("🚀"));
+        assertEquals(2, MappedRingPersistence.utf8Length("à"));
+    }
+
+    @Test
+    @DisplayName("load() should skip a slot with a bad checksum")
+    void load_shouldSkipCorruptSlot() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L)));
+        }
+        byte[] bytes = Files.readAllBytes(TEST_PATH);
+        bytes[MappedRingPersistence.HEADER_BYTES + MappedRingPersistence.SLOT_HEADER_BYTES] ^= 0x7f;
+        Files.write(TEST_PATH, bytes);
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE)) {
+            assertEquals(List.of("token-2"), tokenNames(ring.load()));
+            assertTrue(ring.needsFullSave(), "The ring still counts the corrupt slot");
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should keep the newest tokens when the ring geometry changes")
+    void constructor_shouldMigrate_whenGeometryChanges() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 3, 32, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of(new TokenElement("token-1", 1L), new TokenElement("token-2", 2L),
+                new TokenElement("token-3", 3L)));
+        }
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 64, ForcePolicy.EVERY_WRITE)) {
+            assertEquals(List.of("token-2", "token-3"), tokenNames(ring.load()));
+            assertEquals(MappedRingPersistence.HEADER_BYTES + 2 * 64, Files.size(TEST_PATH));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should keep the ring and release the lock when its tokens do not fit smaller slots")
+    void constructor_shouldFailAndReleaseLock_whenTokensDoNotFitNewSlots() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 64, ForcePolicy.EVERY_WRITE)) {
+            ring.save(List.of(new TokenElement("a-token-longer-than-sixteen-bytes", 1L)));
+        }
+
+        assertThrows(IOException.class, () -> new MappedRingPersistence(TEST_FILE, 2, 24, ForcePolicy.EVERY_WRITE));
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 64, ForcePolicy.EVERY_WRITE)) {
+            assertEquals(List.of("a-token-longer-than-sixteen-bytes"), tokenNames(ring.load()));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should reformat a file that is not a ring")
+    void constructor_shouldReformatForeignFile() throws IOException {
+        Files.writeString(TEST_PATH, "{\"tokens\":[]} and some more bytes to fill the header");
+
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE)) {
+            assertTrue(ring.load().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should fail when another instance holds the lock")
+    void constructor_shouldFail_whenLocked() throws IOException {
+        try (MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE)) {
+            assertThrows(IOException.class, () -> new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should reject invalid geometry")
+    void constructor_shouldRejectInvalidGeometry() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedRingPersistence(TEST_FILE, 0, 32, ForcePolicy.EVERY_WRITE));
+        assertThrows(IllegalArgumentException.class, () -> new MappedRingPersistence(TEST_FILE, 2, 16, ForcePolicy.EVERY_WRITE));
+        assertThrows(IllegalArgumentException.class, () -> new MappedRingPersistence(TEST_FILE, 2, 32, null));
+    }
+
+    @Test
+    @DisplayName("append() should throw IllegalStateException after close")
+    void append_shouldThrow_afterClose() throws IOException {
+        MappedRingPersistence ring = new MappedRingPersistence(TEST_FILE, 2, 32, ForcePolicy.EVERY_WRITE);
+        ring.close();
+        assertThrows(IllegalStateException.class, () -> ring.append(new TokenElement("token", 1L), 0));
+    }
+}
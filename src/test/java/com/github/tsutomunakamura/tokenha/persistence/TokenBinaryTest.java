@@ -0,0 +1,116 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for TokenBinary.
+ */
+public class TokenBinaryTest {
+
+    private static List<TokenElement> sampleTokens() {
+        List<TokenElement> tokens = new ArrayList<>();
+        tokens.add(new TokenElement("token-1", 1692186615000L));
+        tokens.add(new TokenElement(null, 1692186616000L));
+        tokens.add(new TokenElement("", 1692186617000L));
+        // Clock went backwards: negative delta
+        tokens.add(new TokenElement("トークン-🔑", 1692186614000L));
+        return tokens;
+    }
+
+    private static byte[] encode(List<TokenElement> tokens) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TokenBinary.writeTokens(tokens, out);
+        return out.toByteArray();
+    }
+
+    private static List<TokenElement> decode(byte[] bytes, int limit) throws IOException {
+        return TokenBinary.readTokens(new ByteArrayInputStream(bytes), limit);
+    }
+
+    @Test
+    @DisplayName("Tokens should round-trip through the binary format")
+    void writeAndRead_shouldRoundTrip() throws IOException {
+        List<TokenElement> tokens = decode(encode(sampleTokens()), Integer.MAX_VALUE);
+
+        assertEquals(4, tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(sampleTokens().get(i).getToken(), tokens.get(i).getToken());
+            assertEquals(sampleTokens().get(i).getTimeMillis(), tokens.get(i).getTimeMillis());
+        }
+        assertTrue(decode(encode(List.of()), 10).isEmpty());
+        assertTrue(decode(new byte[0], 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("readTokens() should return only the newest tokens")
+    void readTokens_shouldKeepNewestTokens() throws IOException {
+        List<TokenElement> tokens = decode(encode(sampleTokens()), 2);
+
+        assertEquals(2, tokens.size());
+        assertEquals("", tokens.get(0).getToken());
+        assertEquals("トークン-🔑", tokens.get(1).getToken());
+        assertEquals(1692186614000L, tokens.get(1).getTimeMillis());
+    }
+
+    @Test
+    @DisplayName("The binary format should be much smaller than JSON")
+    void binary_shouldBeSmallerThanJson() throws IOException {
+        List<TokenElement> tokens = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tokens.add(new TokenElement("token-" + i, 1692186615000L + i * 1000L));
+        }
+
+        int binary = encode(tokens).length;
+        int json = TokenJson.toJson(tokens).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(binary * 3 < json, "binary=" + binary + " json=" + json);
+    }
+
+    @Test
+    @DisplayName("readTokens() should reject corrupt, truncated and foreign content")
+    void readTokens_shouldRejectCorruptContent() throws IOException {
+        byte[] bytes = encode(sampleTokens());
+
+        byte[] flipped = bytes.clone();
+        flipped[8] ^= 0x01;
+        assertThrows(StreamCorruptedException.class, () -> decode(flipped, 10));
+        assertThrows(StreamCorruptedException.class, () -> decode(Arrays.copyOf(bytes, bytes.length - 1), 10));
+        assertThrows(StreamCorruptedException.class, () -> decode(Arrays.copyOf(bytes, bytes.length + 1), 10));
+        assertThrows(StreamCorruptedException.class,
+            () -> decode("{\"tokens\":[]}".getBytes(StandardCharsets.UTF_8), 10));
+    }
+
+    @Test
+    @DisplayName("Converters should translate between JSON and binary files")
+    void converters_shouldTranslateFiles(@TempDir Path dir) throws IOException {
+        Path json = dir.resolve("tokens.json");
+        Path binary = dir.resolve("tokens.bin");
+        Path back = dir.resolve("tokens-back.json");
+        Files.writeString(json, TokenJson.toJson(sampleTokens()));
+
+        assertEquals(4, TokenBinary.convertJsonToBinary(json, binary));
+        assertEquals(4, TokenBinary.convertBinaryToJson(binary, back));
+
+        assertEquals(Files.readString(json), Files.readString(back));
+        assertNull(decode(Files.readAllBytes(binary), 10).get(1).getToken());
+    }
+}
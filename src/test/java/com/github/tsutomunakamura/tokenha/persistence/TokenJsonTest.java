@@ -0,0 +1,122 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.data.RegistryData;
+import com.github.tsutomunakamura.tokenha.data.TokenData;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Test class for TokenJson.
+ */
+public class TokenJsonTest {
+
+    private static final Gson gson = new Gson();
+
+    private static List<TokenElement> sampleTokens() {
+        List<TokenElement> tokens = new ArrayList<>();
+        tokens.add(new TokenElement("token-1", 1000L));
+        tokens.add(new TokenElement(null, 2000L));
+        tokens.add(new TokenElement("<a href=\"x\">&'</a>\néあ", 3000L));
+        return tokens;
+    }
+
+    @Test
+    @DisplayName("toJson() should produce the same document as Gson")
+    void toJson_shouldMatchGson() {
+        List<TokenElement> tokens = sampleTokens();
+
+        assertEquals(gson.toJson(new TokenData(tokens)), TokenJson.toJson(tokens));
+        assertEquals(gson.toJson(new TokenData(List.of())), TokenJson.toJson(List.of()));
+    }
+
+    @Test
+    @DisplayName("writeQueues() should produce the same document as Gson")
+    void writeQueues_shouldMatchGson() throws IOException {
+        Map<String, List<TokenElement>> queues = new LinkedHashMap<>();
+        queues.put("user-1", sampleTokens());
+        queues.put("user-2", List.of(new TokenElement("token-9", 9000L)));
+        StringWriter out = new StringWriter();
+
+        TokenJson.writeQueues(queues, out);
+
+        assertEquals(gson.toJson(new RegistryData(queues)), out.toString());
+    }
+
+    @Test
+    @DisplayName("Written documents should be read back by Gson")
+    void toJson_shouldRoundTripWithGson() {
+        TokenData data = gson.fromJson(TokenJson.toJson(sampleTokens()), TokenData.class);
+
+        assertEquals(3, data.getTokens().size());
+        assertEquals(null, data.getTokens().get(1).getToken());
+        assertEquals(sampleTokens().get(2).getToken(), data.getTokens().get(2).getToken());
+        assertEquals(3000L, data.getTokens().get(2).getTimeMillis());
+    }
+
+    @Test
+    @DisplayName("readTokens() should keep only the newest tokens while reading")
+    void readTokens_shouldKeepNewestTokens() throws IOException {
+        List<TokenElement> tokens = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            tokens.add(new TokenElement("token-" + i, i));
+        }
+        String json = TokenJson.toJson(tokens);
+
+        List<TokenElement> newest = TokenJson.readTokens(new StringReader(json), 3);
+
+        assertEquals(3, newest.size());
+        assertEquals("token-998", newest.get(0).getToken());
+        assertEquals(1000L, newest.get(2).getTimeMillis());
+        assertEquals(1000, TokenJson.readTokens(new StringReader(json), Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("readTokens() should read null tokens, unknown fields and empty documents like Gson")
+    void readTokens_shouldReadLikeGson() throws IOException {
+        List<TokenElement> tokens = TokenJson.readTokens(new StringReader(
+            "{\"version\":2,\"tokens\":[{\"timeMillis\":5,\"extra\":[1]},{\"token\":\"t\",\"timeMillis\":\"6\"}]}"), 10);
+
+        assertEquals(2, tokens.size());
+        assertNull(tokens.get(0).getToken());
+        assertEquals(5L, tokens.get(0).getTimeMillis());
+        assertEquals(6L, tokens.get(1).getTimeMillis());
+        assertTrue(TokenJson.readTokens(new StringReader(""), 10).isEmpty());
+        assertTrue(TokenJson.readTokens(new StringReader("{\"tokens\":null}"), 10).isEmpty());
+        assertThrows(JsonSyntaxException.class, () -> TokenJson.readTokens(new StringReader("{ invalid json"), 10));
+    }
+
+    @Test
+    @DisplayName("readQueues() should keep the newest tokens of each key")
+    void readQueues_shouldKeepNewestTokensPerKey() throws IOException {
+        Map<String, List<TokenElement>> queues = new LinkedHashMap<>();
+        queues.put("user-1", sampleTokens());
+        queues.put("user-2", List.of(new TokenElement("token-9", 9000L)));
+        StringWriter out = new StringWriter();
+        TokenJson.writeQueues(queues, out);
+
+        Map<String, List<TokenElement>> loaded = TokenJson.readQueues(new StringReader(out.toString()), 2);
+
+        assertEquals(List.of("user-1", "user-2"), new ArrayList<>(loaded.keySet()));
+        assertEquals(2, loaded.get("user-1").size());
+        assertNull(loaded.get("user-1").get(0).getToken());
+        assertEquals("token-9", loaded.get("user-2").get(0).getToken());
+        assertThrows(JsonSyntaxException.class, () -> TokenJson.readQueues(new StringReader("{\"queues\":{\"a\":[}"), 2));
+    }
+}
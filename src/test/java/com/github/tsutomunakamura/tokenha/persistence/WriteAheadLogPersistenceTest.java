@@ -0,0 +1,227 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mockStatic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for WriteAheadLogPersistence.
+ */
+public class WriteAheadLogPersistenceTest {
+
+    private static final String TEST_FILE = "test-wal-persistence.log";
+    private static final Path TEST_PATH = Paths.get(TEST_FILE);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(TEST_PATH);
+        Files.deleteIfExists(Paths.get(TEST_FILE + ".tmp"));
+        Files.deleteIfExists(Paths.get(TEST_FILE + ".lock"));
+    }
+
+    private static List<String> tokenNames(List<TokenElement> tokens) {
+        List<String> names = new ArrayList<>();
+        for (TokenElement token : tokens) {
+            names.add(token.getToken());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("load() should replay add and evict records in order")
+    void load_shouldReplayAddAndEvictRecords() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.save(List.of());
+            wal.append(new TokenElement("token-1", 1000L), 0);
+            wal.append(new TokenElement("token-2", 2000L), 0);
+            wal.append(new TokenElement("token-3", 3000L), 1);
+            wal.evict(1);
+            wal.append(new TokenElement("token-4", 4000L), 0);
+        }
+
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            List<TokenElement> tokens = wal.load();
+            assertEquals(List.of("token-3", "token-4"), tokenNames(tokens));
+            assertEquals(3000L, tokens.get(0).getTimeMillis());
+            assertEquals(4000L, tokens.get(1).getTimeMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("load() should return an empty list for a new log")
+    void load_shouldReturnEmptyList_forNewLog() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            assertTrue(wal.load().isEmpty());
+            assertTrue(wal.exists());
+        }
+    }
+
+    @Test
+    @DisplayName("load() should preserve null and non-ASCII tokens")
+    void load_shouldPreserveNullAndUnicodeTokens() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.save(List.of(new TokenElement(null, 1L)));
+            wal.append(new TokenElement("测试🚀 àáâ", 2L), 0);
+        }
+
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            List<TokenElement> tokens = wal.load();
+            assertEquals(2, tokens.size());
+            assertNull(tokens.get(0).getToken());
+            assertEquals("测试🚀 àáâ", tokens.get(1).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("needsFullSave() should request a snapshot after opening, loading and reaching the threshold")
+    void needsFullSave_shouldFollowSnapshotLifecycle() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 2)) {
+            assertTrue(wal.needsFullSave(), "A fresh log should start with a snapshot");
+
+            wal.save(List.of(new TokenElement("token-1", 1L)));
+            assertFalse(wal.needsFullSave());
+
+            wal.append(new TokenElement("token-2", 2L), 0);
+            assertFalse(wal.needsFullSave());
+            wal.evict(1);
+            assertTrue(wal.needsFullSave(), "Threshold reached");
+
+            wal.save(List.of(new TokenElement("token-2", 2L)));
+            assertFalse(wal.needsFullSave());
+
+            wal.load();
+            assertTrue(wal.needsFullSave(), "Replayed log should be rewritten on the next mutation");
+        }
+    }
+
+    @Test
+    @DisplayName("save() should replace the log with a single snapshot")
+    void save_shouldCompactLog() throws IOException {
+        List<TokenElement> current = new ArrayList<>();
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 1000)) {
+            wal.save(List.of());
+            for (int i = 0; i < 50; i++) {
+                TokenElement token = new TokenElement("token-" + i, i);
+                wal.append(token, i >= 3 ? 1 : 0);
+                current.add(token);
+                if (current.size() > 3) {
+                    current.remove(0);
+                }
+            }
+            long sizeBefore = Files.size(TEST_PATH);
+
+            wal.save(current);
+
+            assertTrue(Files.size(TEST_PATH) < sizeBefore, "Compacted log should be smaller");
+            assertFalse(Files.exists(Paths.get(TEST_FILE + ".tmp")), "Temporary file should be renamed away");
+            wal.append(new TokenElement("token-50", 50), 1);
+        }
+
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 1000)) {
+            assertEquals(List.of("token-48", "token-49", "token-50"), tokenNames(wal.load()));
+        }
+    }
+
+    @Test
+    @DisplayName("save() should sync the directory after renaming the compacted log")
+    void save_shouldSyncDirectoryAfterCompaction() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 1000);
+                MockedStatic<FilePersistence> filePersistence = mockStatic(FilePersistence.class)) {
+            wal.save(List.of(new TokenElement("token-1", 1L)));
+
+            filePersistence.verify(() -> FilePersistence.syncDirectory(TEST_PATH));
+        }
+    }
+
+    @Test
+    @DisplayName("load() should discard a torn record at the tail of the log")
+    void load_shouldDiscardTornTail() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.save(List.of(new TokenElement("token-1", 1L)));
+            wal.append(new TokenElement("token-2", 2L), 0);
+        }
+        long validSize = Files.size(TEST_PATH);
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.append(new TokenElement("token-3", 3L), 0);
+        }
+        // Simulate a crash in the middle of the last append
+        try (var channel = java.nio.channels.FileChannel.open(TEST_PATH, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(TEST_PATH) - 3);
+        }
+
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            assertEquals(List.of("token-1", "token-2"), tokenNames(wal.load()));
+            assertEquals(validSize, Files.size(TEST_PATH), "Torn tail should be truncated");
+        }
+    }
+
+    @Test
+    @DisplayName("load() should stop at a record with a bad checksum")
+    void load_shouldStopAtCorruptRecord() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.save(List.of(new TokenElement("token-1", 1L)));
+        }
+        long validSize = Files.size(TEST_PATH);
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            wal.append(new TokenElement("token-2", 2L), 0);
+        }
+        byte[] bytes = Files.readAllBytes(TEST_PATH);
+        bytes[bytes.length - 6] ^= 0x7f;
+        Files.write(TEST_PATH, bytes);
+
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            assertEquals(List.of("token-1"), tokenNames(wal.load()));
+            assertEquals(validSize, Files.size(TEST_PATH));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should fail when another instance holds the lock")
+    void constructor_shouldFail_whenLocked() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            assertThrows(IOException.class, () -> new WriteAheadLogPersistence(TEST_FILE, 100));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should reject a non-positive compaction threshold")
+    void constructor_shouldRejectInvalidThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new WriteAheadLogPersistence(TEST_FILE, 0));
+    }
+
+    @Test
+    @DisplayName("append() should throw IllegalStateException after close")
+    void append_shouldThrow_afterClose() throws IOException {
+        WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100);
+        wal.close();
+        assertThrows(IllegalStateException.class, () -> wal.append(new TokenElement("token", 1L), 0));
+    }
+
+    @Test
+    @DisplayName("delete() should remove the log")
+    void delete_shouldRemoveLog() throws IOException {
+        try (WriteAheadLogPersistence wal = new WriteAheadLogPersistence(TEST_FILE, 100)) {
+            assertTrue(wal.exists());
+            assertTrue(wal.delete());
+            assertFalse(wal.exists());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.tsutomunakamura.tokenha.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.ThreadMode;
+
+/**
+ * Test class for WriteBehindFlusher.
+ */
+public class WriteBehindFlusherTest {
+
+    @Test
+    @DisplayName("Constructor should reject non-positive intervals")
+    void constructor_shouldRejectNonPositiveInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehindFlusher(() -> {}, 0));
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehindFlusher(() -> {}, -1));
+    }
+
+    @Test
+    @DisplayName("flush() should not save when nothing is dirty")
+    void flush_shouldNotSave_whenNotDirty() {
+        AtomicInteger saves = new AtomicInteger();
+        try (WriteBehindFlusher flusher = new WriteBehindFlusher(saves::incrementAndGet, 60000)) {
+            flusher.flush();
+            assertEquals(0, saves.get(), "Clean state should not be saved");
+        }
+        assertEquals(0, saves.get(), "Closing a clean flusher should not save");
+    }
+
+    @Test
+    @DisplayName("flush() should coalesce multiple dirty marks into one save")
+    void flush_shouldCoalesceDirtyMarks() {
+        AtomicInteger saves = new AtomicInteger();
+        try (WriteBehindFlusher flusher = new WriteBehindFlusher(saves::incrementAndGet, 60000)) {
+            flusher.markDirty();
+            flusher.markDirty();
+            flusher.markDirty();
+            assertTrue(flusher.isDirty());
+
+            flusher.flush();
+
+            assertEquals(1, saves.get(), "Dirty marks should be coalesced into one save");
+            assertFalse(flusher.isDirty());
+        }
+    }
+
+    @Test
+    @DisplayName("Background flush should save dirty state within the interval")
+    void backgroundFlush_shouldSaveWithinInterval() throws Exception {
+        AtomicInteger saves = new AtomicInteger();
+        try (WriteBehindFlusher flusher = new WriteBehindFlusher(saves::incrementAndGet, 50)) {
+            flusher.markDirty();
+            flusher.markDirty();
+
+            Thread.sleep(300);
+
+            assertEquals(1, saves.get(), "Background flush should save exactly once");
+            assertFalse(flusher.isDirty());
+        }
+    }
+
+    @Test
+    @DisplayName("Background flush should save on a dispatched thread in virtual thread mode")
+    void backgroundFlush_shouldSave_inVirtualThreadMode() throws Exception {
+        AtomicInteger saves = new AtomicInteger();
+        String[] saveThread = new String[1];
+        Runnable save = () -> {
+            saveThread[0] = Thread.currentThread().getName();
+            saves.incrementAndGet();
+        };
+        try (WriteBehindFlusher flusher = new WriteBehindFlusher(save, 50, ThreadMode.VIRTUAL)) {
+            flusher.markDirty();
+
+            Thread.sleep(300);
+
+            assertEquals(1, saves.get(), "Background flush should save exactly once");
+            assertFalse(flusher.isDirty());
+            assertTrue(saveThread[0].startsWith("tokenha-write-behind-"), "Unexpected thread: " + saveThread[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("close() should save pending changes")
+    void close_shouldSavePendingChanges() {
+        AtomicInteger saves = new AtomicInteger();
+        WriteBehindFlusher flusher = new WriteBehindFlusher(saves::incrementAndGet, 60000);
+        flusher.markDirty();
+
+        flusher.close();
+
+        assertEquals(1, saves.get(), "Pending changes should be saved on close");
+    }
+
+    @Test
+    @DisplayName("Failed background flush should keep the state dirty for retry")
+    void backgroundFlush_shouldRetry_whenSaveFails() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable failingSave = () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Simulated save failure");
+        };
+        WriteBehindFlusher flusher = new WriteBehindFlusher(failingSave, 50);
+        try {
+            flusher.markDirty();
+
+            Thread.sleep(300);
+
+            assertTrue(attempts.get() >= 2, "Failed save should be retried");
+            assertTrue(flusher.isDirty(), "State should stay dirty until a save succeeds");
+        } finally {
+            assertThrows(IllegalStateException.class, flusher::close);
+        }
+    }
+
+    @Test
+    @DisplayName("The shared scheduler should be held by open flushers and shut down after the last close")
+    void close_shouldReleaseSharedScheduler() throws Exception {
+        int usersBefore = WriteBehindFlusher.getSchedulerUsers();
+        WriteBehindFlusher first = new WriteBehindFlusher(() -> {}, 60000);
+        WriteBehindFlusher second = new WriteBehindFlusher(() -> {}, 60000);
+        assertEquals(usersBefore + 2, WriteBehindFlusher.getSchedulerUsers());
+        assertTrue(WriteBehindFlusher.isSchedulerRunning());
+
+        first.close();
+        first.close();
+        assertEquals(usersBefore + 1, WriteBehindFlusher.getSchedulerUsers(), "Closing twice should release once");
+        second.close();
+        assertEquals(usersBefore, WriteBehindFlusher.getSchedulerUsers());
+        assertEquals(usersBefore > 0, WriteBehindFlusher.isSchedulerRunning());
+
+        // A new flusher starts the scheduler again
+        AtomicInteger saves = new AtomicInteger();
+        try (WriteBehindFlusher flusher = new WriteBehindFlusher(saves::incrementAndGet, 50)) {
+            flusher.markDirty();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (saves.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, saves.get(), "Restarted scheduler should flush");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.TokenStorage;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for OffHeapTokenSnapshot.
+ */
+public class OffHeapTokenSnapshotTest {
+
+    private static String name(int i) {
+        return i % 10 == 0 ? null : "トークン-" + i + "-" + "x".repeat(i % 30);
+    }
+
+    private static TokenSnapshot addTokens(List<TokenSnapshot> history, int count, int capacity) {
+        TokenSnapshot current = TokenSnapshot.empty(TokenStorage.OFF_HEAP);
+        for (int i = 1; i <= count; i++) {
+            current = current.withoutOldest(current.size() >= capacity ? 1 : 0).withNewest(new TokenElement(name(i), i), capacity);
+            history.add(current);
+        }
+        return current;
+    }
+
+    private static void assertSnapshot(TokenSnapshot snapshot, int newest) {
+        for (int j = 0; j < snapshot.size(); j++) {
+            int expected = newest - j;
+            assertEquals(name(expected), snapshot.get(j).getToken());
+            assertEquals(expected, snapshot.get(j).getTimeMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("Off-heap snapshot should keep order while the ring wraps around")
+    void snapshot_shouldKeepOrder_acrossWrapArounds() {
+        List<TokenSnapshot> history = new ArrayList<>();
+        TokenSnapshot current = addTokens(history, 100, 4);
+
+        assertTrue(current instanceof OffHeapTokenSnapshot);
+        assertEquals(4, current.size());
+        assertSnapshot(current, 100);
+        // Snapshots that later tokens have not overwritten yet are still readable
+        for (int i = 96; i <= 100; i++) {
+            assertSnapshot(history.get(i - 1), i);
+        }
+    }
+
+    @Test
+    @DisplayName("Reading a snapshot overwritten by later tokens should throw ConcurrentModificationException")
+    void snapshot_shouldThrow_whenOverwritten() {
+        List<TokenSnapshot> history = new ArrayList<>();
+        TokenSnapshot old = addTokens(history, 100, 4);
+
+        TokenSnapshot current = old;
+        for (int i = 101; i <= 120; i++) {
+            current = current.withoutOldest(1).withNewest(new TokenElement(name(i - 100), i), 4);
+        }
+        assertSame(((OffHeapTokenSnapshot) old).ring(), ((OffHeapTokenSnapshot) current).ring());
+        assertThrows(ConcurrentModificationException.class, () -> old.get(0));
+        assertThrows(ConcurrentModificationException.class, () -> old.timeMillisFromOldest(0));
+        assertEquals(name(20), current.newest().getToken());
+    }
+
+    @Test
+    @DisplayName("The ring should be reused once it fits the tokens, also after the queue was emptied")
+    void ring_shouldBeReused() {
+        List<TokenSnapshot> history = new ArrayList<>();
+        OffHeapTokenSnapshot warm = (OffHeapTokenSnapshot) addTokens(history, 100, 4);
+        DirectTokenRing ring = warm.ring();
+
+        TokenSnapshot current = warm;
+        for (int i = 101; i <= 1000; i++) {
+            current = current.withoutOldest(current.size() >= 4 ? 1 : 0).withNewest(new TokenElement(name(i % 100), i), 4);
+        }
+        assertSame(ring, ((OffHeapTokenSnapshot) current).ring());
+
+        TokenSnapshot emptied = current.withoutOldest(current.size());
+        assertTrue(emptied.isEmpty());
+        assertNotSame(TokenSnapshot.empty(TokenStorage.OFF_HEAP), emptied);
+        assertSame(ring, ((OffHeapTokenSnapshot) emptied.withNewest(new TokenElement("again", 1001), 4)).ring());
+    }
+
+    @Test
+    @DisplayName("The ring should grow when tokens get longer")
+    void ring_shouldGrow_whenTokensGetLonger() {
+        TokenSnapshot current = TokenSnapshot.empty(TokenStorage.OFF_HEAP);
+        for (int i = 1; i <= 50; i++) {
+            current = current.withoutOldest(current.size() >= 3 ? 1 : 0)
+                .withNewest(new TokenElement("t" + "x".repeat(i * 10), i), 3);
+        }
+
+        assertEquals(3, current.size());
+        assertEquals("t" + "x".repeat(500), current.newest().getToken());
+        assertEquals("t" + "x".repeat(480), current.getFromOldest(0).getToken());
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.TokenStorage;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for PackedTokenSnapshot.
+ */
+public class PackedTokenSnapshotTest {
+
+    private static List<String> tokenNames(List<TokenElement> tokens) {
+        List<String> names = new ArrayList<>();
+        for (TokenElement token : tokens) {
+            names.add(token.getToken());
+        }
+        return names;
+    }
+
+    private static TokenElement token(int i) {
+        return new TokenElement("token-" + i, i);
+    }
+
+    @Test
+    @DisplayName("Packed snapshot should list tokens newest first")
+    void snapshot_shouldListNewestFirst() {
+        TokenSnapshot snapshot = TokenSnapshot.empty(TokenStorage.PACKED)
+            .withNewest(token(1), 3)
+            .withNewest(token(2), 3)
+            .withNewest(token(3), 3);
+
+        assertTrue(snapshot instanceof PackedTokenSnapshot);
+        assertEquals(List.of("token-3", "token-2", "token-1"), tokenNames(snapshot));
+        assertEquals("token-3", snapshot.newest().getToken());
+        assertEquals(3, snapshot.newest().getTimeMillis());
+        assertEquals(1, snapshot.timeMillisFromOldest(0));
+        assertEquals(List.of("token-1", "token-2", "token-3"), tokenNames(snapshot.toAscendingList()));
+    }
+
+    @Test
+    @DisplayName("Earlier packed snapshots should not change across compactions")
+    void snapshot_shouldBeImmutable() {
+        TokenSnapshot current = TokenSnapshot.empty(TokenStorage.PACKED);
+        List<TokenSnapshot> history = new ArrayList<>();
+        // Growing token lengths force the arena to be compacted and resized several times
+        for (int i = 1; i <= 200; i++) {
+            TokenElement element = new TokenElement("token-" + i + "-" + "x".repeat(i % 50), i);
+            current = current.withoutOldest(current.size() >= 5 ? 1 : 0).withNewest(element, 5);
+            history.add(current);
+        }
+
+        for (int i = 0; i < history.size(); i++) {
+            TokenSnapshot snapshot = history.get(i);
+            int newest = i + 1;
+            assertEquals(Math.min(newest, 5), snapshot.size());
+            for (int j = 0; j < snapshot.size(); j++) {
+                int expected = newest - j;
+                assertEquals("token-" + expected + "-" + "x".repeat(expected % 50), snapshot.get(j).getToken());
+                assertEquals(expected, snapshot.get(j).getTimeMillis());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Packed snapshot should keep null, empty and non-ASCII tokens")
+    void snapshot_shouldKeepNullAndUnicodeTokens() {
+        List<TokenElement> tokens = List.of(
+            new TokenElement(null, 1),
+            new TokenElement("", 2),
+            new TokenElement("トークン-🔑", 3));
+        TokenSnapshot snapshot = TokenSnapshot.of(tokens, 3, TokenStorage.PACKED);
+
+        assertNull(snapshot.getFromOldest(0).getToken());
+        assertEquals("", snapshot.getFromOldest(1).getToken());
+        assertEquals("トークン-🔑", snapshot.getFromOldest(2).getToken());
+        assertEquals(2, snapshot.timeMillisFromOldest(1));
+    }
+
+    @Test
+    @DisplayName("withoutOldest() should drop the oldest packed tokens")
+    void withoutOldest_shouldDropOldest() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token(1), token(2), token(3)), 3, TokenStorage.PACKED);
+
+        assertEquals(List.of("token-3", "token-2"), tokenNames(snapshot.withoutOldest(1)));
+        assertSame(snapshot, snapshot.withoutOldest(0));
+        assertSame(TokenSnapshot.empty(TokenStorage.PACKED), snapshot.withoutOldest(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.timeMillisFromOldest(3));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(token(4)));
+    }
+}
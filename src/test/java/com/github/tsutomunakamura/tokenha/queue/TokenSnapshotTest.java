@@ -0,0 +1,103 @@
+package com.github.tsutomunakamura.tokenha.queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for TokenSnapshot.
+ */
+public class TokenSnapshotTest {
+
+    private static List<String> tokenNames(List<TokenElement> tokens) {
+        List<String> names = new ArrayList<>();
+        for (TokenElement token : tokens) {
+            names.add(token.getToken());
+        }
+        return names;
+    }
+
+    private static TokenElement token(int i) {
+        return new TokenElement("token-" + i, i);
+    }
+
+    @Test
+    @DisplayName("Snapshot should list tokens newest first")
+    void snapshot_shouldListNewestFirst() {
+        TokenSnapshot snapshot = TokenSnapshot.empty()
+            .withNewest(token(1), 3)
+            .withNewest(token(2), 3)
+            .withNewest(token(3), 3);
+
+        assertEquals(List.of("token-3", "token-2", "token-1"), tokenNames(snapshot));
+        assertEquals("token-3", snapshot.newest().getToken());
+        assertEquals("token-1", snapshot.getFromOldest(0).getToken());
+        assertEquals(List.of("token-1", "token-2", "token-3"), tokenNames(snapshot.toAscendingList()));
+    }
+
+    @Test
+    @DisplayName("Earlier snapshots should not change when later ones are derived")
+    void snapshot_shouldBeImmutable() {
+        TokenSnapshot first = TokenSnapshot.empty();
+        List<TokenSnapshot> history = new ArrayList<>();
+        // Enough mutations to wrap the backing array several times
+        for (int i = 1; i <= 20; i++) {
+            first = first.withoutOldest(first.size() >= 3 ? 1 : 0).withNewest(token(i), 3);
+            history.add(first);
+        }
+
+        for (int i = 0; i < history.size(); i++) {
+            TokenSnapshot snapshot = history.get(i);
+            int newest = i + 1;
+            assertEquals("token-" + newest, snapshot.get(0).getToken());
+            assertEquals(Math.min(newest, 3), snapshot.size());
+            assertEquals("token-" + (newest - snapshot.size() + 1), snapshot.get(snapshot.size() - 1).getToken());
+        }
+    }
+
+    @Test
+    @DisplayName("withoutOldest() should drop the oldest tokens")
+    void withoutOldest_shouldDropOldest() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token(1), token(2), token(3)), 3);
+
+        assertEquals(List.of("token-3", "token-2"), tokenNames(snapshot.withoutOldest(1)));
+        assertSame(snapshot, snapshot.withoutOldest(0));
+        assertTrue(snapshot.withoutOldest(3).isEmpty());
+        assertNull(snapshot.withoutOldest(5).newest());
+    }
+
+    @Test
+    @DisplayName("Snapshot should reject modification and out of range access")
+    void snapshot_shouldBeReadOnly() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token(1)), 3);
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(token(2)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getFromOldest(-1));
+    }
+
+    @Test
+    @DisplayName("descending() should be a reused read-only view that cannot derive snapshots")
+    void descending_shouldBeReadOnlyView() {
+        TokenSnapshot snapshot = TokenSnapshot.of(List.of(token(1), token(2)), 3);
+
+        List<TokenElement> view = snapshot.descending();
+
+        assertEquals(List.of("token-2", "token-1"), tokenNames(view));
+        assertSame(view, snapshot.descending());
+        assertFalse(view instanceof TokenSnapshot);
+        assertThrows(UnsupportedOperationException.class, () -> view.add(token(3)));
+    }
+}
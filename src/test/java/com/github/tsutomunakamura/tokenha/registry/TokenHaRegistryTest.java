@@ -0,0 +1,248 @@
+package com.github.tsutomunakamura.tokenha.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.tsutomunakamura.tokenha.config.PersistenceMode;
+import com.github.tsutomunakamura.tokenha.config.TokenHaConfig;
+import com.github.tsutomunakamura.tokenha.element.TokenElement;
+
+/**
+ * Test class for TokenHaRegistry.
+ */
+public class TokenHaRegistryTest {
+
+    private static final String TEST_FILE = "test-registry.json";
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(TEST_FILE));
+    }
+
+    private static TokenHaConfig.Builder config() {
+        return new TokenHaConfig.Builder()
+            .maxTokens(3)
+            .numberOfLastTokens(1)
+            .coolTimeToAddMillis(0)
+            .expirationTimeMillis(60000)
+            .persistenceMode(PersistenceMode.IN_MEMORY)
+            .persistenceFilePath(TEST_FILE)
+            .registryLockStripes(4);
+    }
+
+    private static List<String> tokenNames(List<TokenElement> tokens) {
+        List<String> names = new ArrayList<>();
+        for (TokenElement token : tokens) {
+            names.add(token.getToken());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("Each key should have its own queue")
+    void addIfAvailable_shouldKeepQueuesPerKey() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().build())) {
+            assertTrue(registry.addIfAvailable("alice", "a1"));
+            Thread.sleep(2);
+            assertTrue(registry.addIfAvailable("bob", "b1"));
+            Thread.sleep(2);
+            assertTrue(registry.addIfAvailable("alice", "a2"));
+
+            assertEquals(List.of("a2", "a1"), tokenNames(registry.getDescList("alice")));
+            assertEquals("b1", registry.newestToken("bob").getToken());
+            assertNull(registry.newestToken("carol"));
+            assertTrue(registry.getDescList("carol").isEmpty());
+            assertEquals(2, registry.getKeyCount());
+            assertEquals(3, registry.getQueueSize());
+            assertThrows(IllegalArgumentException.class, () -> registry.addIfAvailable(null, "token"));
+        }
+    }
+
+    @Test
+    @DisplayName("Cooldown should be tracked per key")
+    void addIfAvailable_shouldApplyCooldownPerKey() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().coolTimeToAddMillis(60000).build())) {
+            assertTrue(registry.addIfAvailable("alice", "a1"));
+            assertFalse(registry.availableToAdd("alice"));
+            assertFalse(registry.addIfAvailable("alice", "a2"));
+
+            assertTrue(registry.availableToAdd("bob"));
+            assertTrue(registry.addIfAvailable("bob", "b1"));
+            assertEquals(1, registry.getQueueSize("alice"));
+        }
+    }
+
+    @Test
+    @DisplayName("Full queues should evict the oldest token or reject depending on the configuration")
+    void addIfAvailable_shouldHandleFullQueue() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().build())) {
+            for (int i = 1; i <= 4; i++) {
+                assertTrue(registry.addIfAvailable("alice", "a" + i));
+                Thread.sleep(2);
+            }
+            assertEquals(List.of("a4", "a3", "a2"), tokenNames(registry.getDescList("alice")));
+            assertTrue(registry.isFilled("alice"));
+            assertEquals(3, registry.getQueueSize());
+        }
+
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().enableAutoEvictIfQueueIsFull(false).build())) {
+            for (int i = 1; i <= 3; i++) {
+                assertTrue(registry.addIfAvailable("alice", "a" + i));
+                Thread.sleep(2);
+            }
+            assertFalse(registry.availableToAdd("alice"));
+            assertFalse(registry.addIfAvailable("alice", "a4"));
+        }
+    }
+
+    @Test
+    @DisplayName("nextEvictionDeadlineMillis() should follow the earliest evictable token of all keys")
+    void nextEvictionDeadlineMillis_shouldFollowEarliestKey() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().build())) {
+            assertEquals(Long.MAX_VALUE, registry.nextEvictionDeadlineMillis());
+
+            registry.addIfAvailable("alice", "a1");
+            // The last token of a key is never evicted
+            assertEquals(Long.MAX_VALUE, registry.nextEvictionDeadlineMillis());
+
+            Thread.sleep(2);
+            registry.addIfAvailable("alice", "a2");
+            long oldest = registry.getDescList("alice").get(1).getTimeMillis();
+            assertEquals(oldest + 60001, registry.nextEvictionDeadlineMillis());
+            assertNull(registry.evictExpiredTokens(), "Nothing has expired yet");
+        }
+    }
+
+    @Test
+    @DisplayName("evictExpiredTokens() should keep the last tokens and drop emptied keys")
+    void evictExpiredTokens_shouldEvictExpiredTokensOfAllKeys() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().expirationTimeMillis(100).build());
+                TokenHaRegistry emptying = new TokenHaRegistry(config().numberOfLastTokens(0).expirationTimeMillis(100).build())) {
+            for (int i = 1; i <= 3; i++) {
+                registry.addIfAvailable("alice", "a" + i);
+                registry.addIfAvailable("bob", "b" + i);
+                Thread.sleep(2);
+            }
+            emptying.addIfAvailable("carol", "c1");
+
+            Thread.sleep(150);
+            // The eviction thread may already have evicted them, so check the resulting state
+            registry.evictExpiredTokens();
+            emptying.evictExpiredTokens();
+
+            assertEquals(List.of("a3"), tokenNames(registry.getDescList("alice")));
+            assertEquals(List.of("b3"), tokenNames(registry.getDescList("bob")));
+            assertEquals(2, registry.getQueueSize());
+            assertEquals(Long.MAX_VALUE, registry.nextEvictionDeadlineMillis());
+
+            assertEquals(0, emptying.getKeyCount());
+            assertTrue(emptying.availableToAdd("carol"));
+        }
+    }
+
+    @Test
+    @DisplayName("remove() should drop all tokens of a key")
+    void remove_shouldDropKey() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().build())) {
+            registry.addIfAvailable("alice", "a1");
+            assertTrue(registry.remove("alice"));
+            assertFalse(registry.remove("alice"));
+            assertEquals(0, registry.getQueueSize());
+            assertTrue(registry.getKeys().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("All keys should be saved to and loaded from one shared file")
+    void loadFromFile_shouldRestoreAllKeys() throws Exception {
+        TokenHaConfig config = config().persistenceMode(PersistenceMode.JSON_FILE).writeBehindIntervalMillis(60000).build();
+        try (TokenHaRegistry registry = new TokenHaRegistry(config)) {
+            for (int i = 0; i < 100; i++) {
+                registry.addIfAvailable("user-" + i, "token-" + i);
+            }
+            assertTrue(registry.persistenceFileExists());
+        }
+
+        try (TokenHaRegistry registry = new TokenHaRegistry(config.toBuilder().coolTimeToAddMillis(60000).build())) {
+            assertEquals(0, registry.getKeyCount());
+            registry.loadFromFile();
+            assertEquals(100, registry.getKeyCount());
+            assertEquals(100, registry.getQueueSize());
+            assertEquals("token-42", registry.newestToken("user-42").getToken());
+            // Cooldown continues from the loaded tokens
+            assertFalse(registry.availableToAdd("user-42"));
+        }
+    }
+
+    @Test
+    @DisplayName("Write-behind mode should save all keys on flush()")
+    void flush_shouldSaveInWriteBehindMode() throws Exception {
+        TokenHaConfig config = config()
+            .persistenceMode(PersistenceMode.JSON_FILE)
+            .writeBehindIntervalMillis(60000)
+            .build();
+        try (TokenHaRegistry registry = new TokenHaRegistry(config)) {
+            registry.addIfAvailable("alice", "a1");
+            assertFalse(Files.readString(Paths.get(TEST_FILE)).contains("alice"));
+            registry.flush();
+            assertTrue(Files.readString(Paths.get(TEST_FILE)).contains("alice"));
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent adds to many keys should keep the totals consistent")
+    void addIfAvailable_shouldBeThreadSafeAcrossKeys() throws Exception {
+        try (TokenHaRegistry registry = new TokenHaRegistry(config().maxTokens(1000).build())) {
+            int threads = 8;
+            int keysPerThread = 500;
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * keysPerThread;
+                workers.add(new Thread(() -> {
+                    for (int i = 0; i < keysPerThread; i++) {
+                        registry.addIfAvailable("user-" + (offset + i), "token");
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            assertEquals(threads * keysPerThread, registry.getKeyCount());
+            assertEquals(threads * keysPerThread, registry.getQueueSize());
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should reject file persistence without write-behind and unsupported modes")
+    void constructor_shouldRejectUnsupportedPersistence() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new TokenHaRegistry(config().persistenceMode(PersistenceMode.JSON_FILE).build()));
+        assertThrows(IllegalArgumentException.class, () -> new TokenHaRegistry(
+            config().persistenceMode(PersistenceMode.WRITE_AHEAD_LOG).writeBehindIntervalMillis(60000).build()));
+        assertFalse(Files.exists(Paths.get(TEST_FILE)));
+    }
+
+    @Test
+    @DisplayName("Constructor should reject a null configuration")
+    void constructor_shouldRejectNullConfig() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenHaRegistry(null));
+    }
+}